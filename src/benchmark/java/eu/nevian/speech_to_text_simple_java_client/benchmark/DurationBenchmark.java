@@ -0,0 +1,131 @@
+package eu.nevian.speech_to_text_simple_java_client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.Mp3FrameIndexer;
+import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegProcessHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares the time needed to read the duration of an MP3 file with {@link Mp3FrameIndexer} and with an ffprobe
+ * process (availability check, run and JSON parsing, as {@code AudioFileHelper.getAudioFileDuration} used to do), for
+ * each way the indexer can find the duration:
+ * <ul>
+ *     <li>VBR with a Xing header (read from the first frame);</li>
+ *     <li>CBR without a Xing header (size divided by the bitrate);</li>
+ *     <li>VBR without a Xing header (walk over every frame);</li>
+ *     <li>the same, with every frame offset recorded ({@link Mp3FrameIndexer#index}).</li>
+ * </ul>
+ * Usage: {@code ./gradlew benchmark -PbenchmarkClass=DurationBenchmark --args="[minutes]"}. The inputs are generated
+ * with ffmpeg (pink noise, 60 minutes by default).
+ */
+public class DurationBenchmark {
+    private static final int DEFAULT_INPUT_MINUTES = 60;
+    private static final int WARM_UP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int minutes = args.length == 0 ? DEFAULT_INPUT_MINUTES : Integer.parseInt(args[0]);
+
+        Path workspace = Files.createTempDirectory("sttsjc-duration-benchmark");
+        try {
+            Path xingInput = generateInput(workspace, "vbr-xing", minutes, List.of("-q:a", "4"));
+            Path cbrInput = generateInput(workspace, "cbr", minutes, List.of("-b:a", "128k", "-write_xing", "0"));
+            Path vbrInput = generateInput(workspace, "vbr", minutes, List.of("-q:a", "4", "-write_xing", "0"));
+
+            System.out.printf("%-28s %-18s %-18s %-12s%n", "input (" + minutes + " min)", "indexer (ms)", "ffprobe (ms)", "duration (s)");
+            report("VBR, Xing header", xingInput, false);
+            report("CBR, no Xing header", cbrInput, false);
+            report("VBR, no Xing header", vbrInput, false);
+            report("VBR, frame index", vbrInput, true);
+        } finally {
+            try (var paths = Files.walk(workspace)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static void report(String label, Path input, boolean indexFrames) throws IOException {
+        double indexerDuration = indexFrames
+                ? Mp3FrameIndexer.index(input).durationInSeconds()
+                : Mp3FrameIndexer.probe(input).durationInSeconds();
+        double indexerMillis = time(() -> {
+            if (indexFrames) {
+                Mp3FrameIndexer.index(input);
+            } else {
+                Mp3FrameIndexer.probe(input);
+            }
+        });
+        double ffprobeMillis = time(() -> readDurationWithFfprobe(input));
+
+        System.out.printf("%-28s %-18.3f %-18.3f %.2f / %.2f%n",
+                label, indexerMillis, ffprobeMillis, indexerDuration, readDurationWithFfprobe(input));
+    }
+
+    private static double readDurationWithFfprobe(Path input) throws IOException {
+        if (FfmpegProcessHelper.isFfprobeNotAvailable()) {
+            throw new IOException("ffprobe is not available on this system");
+        }
+
+        Process process = FfmpegProcessHelper.createGetAudioDurationProcessBuilder(input.toString()).start();
+        double duration = new ObjectMapper().readTree(process.getInputStream()).path("format").path("duration").asDouble();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ffprobe process was interrupted", e);
+        }
+        return duration;
+    }
+
+    private static Path generateInput(Path workspace, String name, int minutes, List<String> encoderArguments) throws IOException {
+        Path inputPath = workspace.resolve(name + ".mp3");
+        List<String> command = new ArrayList<>(List.of(
+                "-y", "-loglevel", "error",
+                "-f", "lavfi", "-i", "anoisesrc=color=pink:sample_rate=44100:duration=" + (minutes * 60),
+                "-acodec", "libmp3lame"));
+        command.addAll(encoderArguments);
+        command.add(inputPath.toString());
+
+        ProcessBuilder processBuilder = FfmpegProcessHelper.createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        try {
+            int exitCode = processBuilder.start().waitFor();
+            if (exitCode != 0) {
+                throw new IOException("ffmpeg exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ffmpeg process was interrupted", e);
+        }
+        return inputPath;
+    }
+
+    /**
+     * Returns the mean time of a task in milliseconds, after a few runs to warm up the JIT and the page cache.
+     */
+    private static double time(Task task) throws IOException {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            task.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+}
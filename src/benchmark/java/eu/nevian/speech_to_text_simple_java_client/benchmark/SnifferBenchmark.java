@@ -0,0 +1,138 @@
+package eu.nevian.speech_to_text_simple_java_client.benchmark;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.MediaSniffer;
+import org.apache.tika.Tika;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the cost of telling audio from video with {@link MediaSniffer} and with Tika, for a set of small files
+ * that start with the signature of a common container:
+ * <ul>
+ *     <li>the first call, which includes loading the classes (and, for Tika, its MIME registry), as a short CLI run
+ *     pays it;</li>
+ *     <li>the mean time and the bytes allocated per call once warmed up.</li>
+ * </ul>
+ * Tika is measured both the way {@code AudioFileHelper.getFileType} used it (a new {@code Tika} per call, detection by
+ * file name) and with content detection on a shared instance.
+ * <p>
+ * Usage: {@code ./gradlew benchmark -PbenchmarkClass=SnifferBenchmark}. The first-call times depend on the order in
+ * which the detectors are run, so the sniffer, which loads the least, runs first. Nothing here needs ffmpeg.
+ */
+public class SnifferBenchmark {
+    private static final int INPUT_SIZE = 16 * 1024;
+    private static final int WARM_UP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        Path workspace = Files.createTempDirectory("sttsjc-sniffer-benchmark");
+        try {
+            Path[] inputs = generateInputs(workspace);
+
+            long sniffFirstCallNanos = firstCall(() -> sniffAll(inputs));
+            long tikaFirstCallNanos = firstCall(() -> detectAllByNameWithNewTika(inputs));
+            Tika sharedTika = new Tika();
+            long tikaContentFirstCallNanos = firstCall(() -> detectAllByContent(sharedTika, inputs));
+
+            System.out.printf("%-32s %-18s %-18s %-18s%n", "detector (" + inputs.length + " files)", "first call (ms)",
+                    "per file (us)", "per file (bytes)");
+            report("MediaSniffer", sniffFirstCallNanos, inputs.length, () -> sniffAll(inputs));
+            report("new Tika(), by name", tikaFirstCallNanos, inputs.length, () -> detectAllByNameWithNewTika(inputs));
+            report("shared Tika, by content", tikaContentFirstCallNanos, inputs.length,
+                    () -> detectAllByContent(sharedTika, inputs));
+
+            System.out.println();
+            for (Path input : inputs) {
+                System.out.printf("%-20s sniffer: %-6s tika: %s%n", input.getFileName(), MediaSniffer.sniff(input),
+                        sharedTika.detect(input));
+            }
+        } finally {
+            try (var paths = Files.walk(workspace)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static void sniffAll(Path[] inputs) throws IOException {
+        for (Path input : inputs) {
+            MediaSniffer.sniff(input);
+        }
+    }
+
+    private static void detectAllByNameWithNewTika(Path[] inputs) {
+        for (Path input : inputs) {
+            new Tika().detect(input.toString());
+        }
+    }
+
+    private static void detectAllByContent(Tika tika, Path[] inputs) throws IOException {
+        for (Path input : inputs) {
+            tika.detect(input);
+        }
+    }
+
+    private static long firstCall(Task task) throws IOException {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long firstCallNanos, int fileCount, Task task) throws IOException {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            task.run();
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            task.run();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        long calls = (long) MEASURED_ITERATIONS * fileCount;
+        System.out.printf("%-32s %-18.2f %-18.2f %-18d%n", label, firstCallNanos / 1e6, elapsedNanos / 1e3 / calls,
+                allocatedBytes / calls);
+    }
+
+    private static Path[] generateInputs(Path workspace) throws IOException {
+        Map<String, byte[]> signatures = new LinkedHashMap<>();
+        signatures.put("id3.mp3", ascii("ID3\u0004\u0000\u0000\u0000\u0000\u0000\u0000"));
+        signatures.put("frames.mp3", new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00});
+        signatures.put("audio.wav", ascii("RIFF\u0000\u0000\u0000\u0000WAVEfmt "));
+        signatures.put("audio.flac", ascii("fLaC"));
+        signatures.put("audio.ogg", ascii("OggS\u0000\u0002"));
+        signatures.put("audio.m4a", ascii("\u0000\u0000\u0000 ftypM4A \u0000\u0000\u0000\u0000"));
+        signatures.put("video.mp4", ascii("\u0000\u0000\u0000 ftypisom\u0000\u0000\u0002\u0000"));
+        signatures.put("video.webm", new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3});
+
+        Path[] inputs = new Path[signatures.size()];
+        int index = 0;
+        for (Map.Entry<String, byte[]> signature : signatures.entrySet()) {
+            ByteBuffer content = ByteBuffer.allocate(INPUT_SIZE).put(signature.getValue());
+            inputs[index] = Files.write(workspace.resolve(signature.getKey()), content.array());
+            index++;
+        }
+        return inputs;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,149 @@
+package eu.nevian.speech_to_text_simple_java_client.benchmark;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.SplitPlanner;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegProcessHelper;
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares the time needed to split an audio file with each strategy, for several input lengths:
+ * <ul>
+ *     <li>one ffmpeg run per part, seeking after {@code -i} (how parts used to be cut: each run decodes the input from
+ *     the beginning, so the total cost grows with the square of the input length);</li>
+ *     <li>one ffmpeg run per part, seeking before {@code -i} ({@link AudioFileHelper#encodeAudioFilePart}, used by the
+ *     pipelined mode);</li>
+ *     <li>one ffmpeg run for all parts with the segment muxer ({@link AudioFileHelper#splitAudioFileBySize});</li>
+ *     <li>the same, for an MP3 source with a bitrate low enough to be split with stream copy.</li>
+ * </ul>
+ * Usage: {@code ./gradlew benchmark --args="[minutes...]"}. The inputs are generated with ffmpeg (pink noise, at
+ * 192 kbit/s so that it is encoded again, and at 128 kbit/s for stream copy), and the size limit is set so that every
+ * encoded part holds about ten minutes of audio. Parts are encoded with the {@link EncodingProfile#MP3_64K} profile,
+ * which keeps the 128 kbit/s input within the stream copy range.
+ */
+public class SplitBenchmark {
+    private static final int[] DEFAULT_INPUT_MINUTES = {15, 30, 60, 120};
+    private static final int PART_MINUTES = 10;
+    private static final long INPUT_BITRATE_IN_BITS_PER_SECOND = 192_000;
+    private static final long STREAM_COPY_INPUT_BITRATE_IN_BITS_PER_SECOND = 128_000;
+    private static final EncodingProfile ENCODING_PROFILE = EncodingProfile.MP3_64K;
+
+    public static void main(String[] args) throws IOException {
+        int[] inputMinutes = args.length == 0
+                ? DEFAULT_INPUT_MINUTES
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        Path workspace = Files.createTempDirectory("sttsjc-split-benchmark");
+        try {
+            System.out.printf("%-10s %-6s %-22s %-22s %-22s %-22s%n",
+                    "minutes", "parts", "output seek / part (s)", "input seek / part (s)", "segment muxer (s)",
+                    "stream copy (s)");
+
+            for (int minutes : inputMinutes) {
+                AudioFile input = generateInput(workspace, minutes, INPUT_BITRATE_IN_BITS_PER_SECOND);
+                long maxSizeInBytes = (long) SplitPlanner.estimateTranscodedSizeInBytes(PART_MINUTES * 60, ENCODING_PROFILE);
+                List<AudioFile> plannedParts = AudioFileHelper.planAudioFileSplit(input, maxSizeInBytes, workspace,
+                        ENCODING_PROFILE);
+
+                double outputSeekSeconds = time(() -> {
+                    for (AudioFile part : plannedParts) {
+                        List<String> command = new ArrayList<>(List.of(
+                                "-y", "-loglevel", "error",
+                                "-i", part.getSourceFilePath(),
+                                "-ss", String.valueOf(part.getStartTime()),
+                                "-t", String.valueOf(part.getDuration())));
+                        command.addAll(ENCODING_PROFILE.getFfmpegArguments());
+                        command.add(part.getFilePath());
+                        run(FfmpegProcessHelper.createFfmpegProcessBuilder(command.toArray(String[]::new)));
+                        AudioFileHelper.deleteEncodedAudioFilePart(part);
+                    }
+                });
+
+                double inputSeekSeconds = time(() -> {
+                    for (AudioFile plannedPart : plannedParts) {
+                        for (AudioFile part : AudioFileHelper.encodeAudioFilePart(plannedPart, maxSizeInBytes)) {
+                            AudioFileHelper.deleteEncodedAudioFilePart(part);
+                        }
+                    }
+                });
+
+                double segmentSeconds = time(() -> {
+                    for (AudioFile part : AudioFileHelper.splitAudioFileBySize(input, maxSizeInBytes, workspace,
+                            ENCODING_PROFILE)) {
+                        AudioFileHelper.deleteEncodedAudioFilePart(part);
+                    }
+                });
+
+                Files.delete(Path.of(input.getFilePath()));
+
+                AudioFile streamCopyInput = generateInput(workspace, minutes, STREAM_COPY_INPUT_BITRATE_IN_BITS_PER_SECOND);
+                double streamCopySeconds = time(() -> {
+                    for (AudioFile part : AudioFileHelper.splitAudioFileBySize(streamCopyInput, maxSizeInBytes, workspace,
+                            ENCODING_PROFILE)) {
+                        AudioFileHelper.deleteEncodedAudioFilePart(part);
+                    }
+                });
+                Files.delete(Path.of(streamCopyInput.getFilePath()));
+
+                System.out.printf("%-10d %-6d %-22.2f %-22.2f %-22.2f %-22.2f%n",
+                        minutes, plannedParts.size(), outputSeekSeconds, inputSeekSeconds, segmentSeconds, streamCopySeconds);
+            }
+        } finally {
+            try (var paths = Files.walk(workspace)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static AudioFile generateInput(Path workspace, int minutes, long bitRateInBitsPerSecond) throws IOException {
+        Path inputPath = workspace.resolve("input-" + minutes + "min-" + bitRateInBitsPerSecond + ".mp3");
+        run(FfmpegProcessHelper.createFfmpegProcessBuilder(
+                "-y", "-loglevel", "error",
+                "-f", "lavfi", "-i", "anoisesrc=color=pink:sample_rate=44100:duration=" + (minutes * 60),
+                "-acodec", "libmp3lame", "-b:a", String.valueOf(bitRateInBitsPerSecond),
+                inputPath.toString()));
+
+        AudioFile input = new AudioFile();
+        input.setFilePath(inputPath.toString());
+        input.setFileType(FileType.AUDIO);
+        input.setDuration(AudioFileHelper.getAudioFileDuration(inputPath.toString()));
+        input.setFileSize(Files.size(inputPath));
+        return input;
+    }
+
+    private static void run(ProcessBuilder processBuilder) throws IOException {
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        try {
+            int exitCode = processBuilder.start().waitFor();
+            if (exitCode != 0) {
+                throw new IOException("ffmpeg exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ffmpeg process was interrupted", e);
+        }
+    }
+
+    private static double time(Task task) throws IOException {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -1,35 +1,41 @@
 package eu.nevian.speech_to_text_simple_java_client;
 
-import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
-import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+import eu.nevian.speech_to_text_simple_java_client.batch.BatchInput;
+import eu.nevian.speech_to_text_simple_java_client.batch.BatchInputResolver;
+import eu.nevian.speech_to_text_simple_java_client.batch.BatchRunner;
 import eu.nevian.speech_to_text_simple_java_client.commandlinemanagement.CommandLineManagement;
 import eu.nevian.speech_to_text_simple_java_client.commandlinemanagement.CommandLineOptions;
 import eu.nevian.speech_to_text_simple_java_client.config.ApplicationConfigResolver;
 import eu.nevian.speech_to_text_simple_java_client.config.ApplicationDefaults;
 import eu.nevian.speech_to_text_simple_java_client.config.ResolvedApplicationConfig;
 import eu.nevian.speech_to_text_simple_java_client.config.UserConfig;
-import eu.nevian.speech_to_text_simple_java_client.exceptions.FileValidationException;
+import eu.nevian.speech_to_text_simple_java_client.daemon.TranscriptionDaemon;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.InvalidLanguageOptionException;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.InvalidOptionValueException;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.LoadingConfigurationException;
-import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiService;
-import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.WhisperApiService;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.TranscriptionJobException;
+import eu.nevian.speech_to_text_simple_java_client.transcriptcache.TranscriptCache;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJob;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobContext;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobResult;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransport;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransportStatistics;
 import eu.nevian.speech_to_text_simple_java_client.utils.ConfigLoader;
-import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
-import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegProcessHelper;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegToolchain;
 import eu.nevian.speech_to_text_simple_java_client.utils.MessageManager;
 import eu.nevian.speech_to_text_simple_java_client.utils.TextFileHelper;
-import eu.nevian.speech_to_text_simple_java_client.utils.TemporaryWorkspaceHelper;
+import eu.nevian.speech_to_text_simple_java_client.watch.FolderWatcher;
 import org.apache.commons.cli.*;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 public class Main {
     private static final String CONFIG_FILE_PATH = "config.properties";
+    private static final String BATCH_SUMMARY_FILE_PATH = "batch-summary.jsonl";
 
     public static void main(String[] args) {
         System.exit(run(args));
@@ -59,21 +65,37 @@ public class Main {
         }
 
         List<String> positionalArgs = cmdOptions.getRemainingArgs();
+        String manifestOption = cmdOptions.getManifestOption();
+        Path manifestPath = manifestOption != null ? Path.of(manifestOption) : null;
 
-        if (positionalArgs.isEmpty()) {
-            System.err.println("Error: Missing required file path argument");
+        boolean daemonMode = cmdOptions.getDaemonOption() != null;
+        boolean watchMode = cmdOptions.getWatchOption() != null;
+
+        if (daemonMode && (!positionalArgs.isEmpty() || manifestPath != null)) {
+            System.err.println("Error: No file path argument is expected with --daemon, files are submitted over HTTP.");
+            cmdOptions.printCustomHelp();
+            return 1;
+        }
+
+        if (watchMode && (!positionalArgs.isEmpty() || manifestPath != null)) {
+            System.err.println("Error: No file path argument is expected with --watch, files are taken from the watched directory.");
             cmdOptions.printCustomHelp();
             return 1;
         }
 
-        if (positionalArgs.size() > 1) {
-            System.err.println("Error: Too many file path arguments. Expected exactly one <FILE>.");
+        if (!daemonMode && !watchMode && positionalArgs.isEmpty() && manifestPath == null) {
+            System.err.println("Error: Missing required file path argument");
             cmdOptions.printCustomHelp();
             return 1;
         }
 
+        // Several files, a directory, a glob or a manifest: transcribe them all in this JVM
+        boolean batchMode = !daemonMode && !watchMode && (manifestPath != null || positionalArgs.size() > 1
+                || BatchInputResolver.isMultipleFileArgument(positionalArgs.getFirst()));
+
         // Keep the original input path.
-        String originalInputPath = positionalArgs.getFirst();
+        String originalInputPath = daemonMode || watchMode || batchMode ? null : positionalArgs.getFirst();
+
         Path configFilePath = ConfigLoader.resolveConfigFilePath(CONFIG_FILE_PATH);
         if (ConfigLoader.configFileDoesNotExist(configFilePath)) {
             System.err.println(MessageManager.getConfigFileNotFoundGuidanceMessage(configFilePath.toString()));
@@ -92,7 +114,7 @@ public class Main {
                     userConfig,
                     applicationDefaults
             );
-        } catch (InvalidLanguageOptionException e) {
+        } catch (InvalidLanguageOptionException | InvalidOptionValueException e) {
             System.err.println(e.getMessage());
             cmdOptions.printCustomHelp();
             return 1;
@@ -101,169 +123,189 @@ public class Main {
             return 1;
         }
 
-        Path originalInputResolvedPath = Path.of(originalInputPath).toAbsolutePath().normalize();
-        Path originalInputDirectoryPath = originalInputResolvedPath.getParent() != null
-                ? originalInputResolvedPath.getParent()
-                : Path.of(".").toAbsolutePath().normalize();
-        String originalInputFileName = originalInputResolvedPath.getFileName() != null
-                ? originalInputResolvedPath.getFileName().toString()
-                : originalInputResolvedPath.toString();
-        int originalInputExtensionSeparatorIndex = originalInputFileName.lastIndexOf('.');
-        String originalInputBaseName = originalInputExtensionSeparatorIndex > 0
-                ? originalInputFileName.substring(0, originalInputExtensionSeparatorIndex)
-                : originalInputFileName;
-
         if (resolvedApplicationConfig.warningMessage() != null) {
             System.err.println(resolvedApplicationConfig.warningMessage());
         }
 
-        if (FfmpegProcessHelper.isFfmpegNotAvailable()) {
+        FfmpegToolchain ffmpegToolchain = FfmpegToolchain.load(resolvedApplicationConfig.stateDirectoryPath());
+        if (!ffmpegToolchain.isFfmpegAvailable()) {
             System.err.println("Error: ffmpeg is not available on this system. Please install it and ensure it is available on PATH.");
             return 1;
         }
 
-        if (FfmpegProcessHelper.isFfprobeNotAvailable()) {
+        if (!ffmpegToolchain.isFfprobeAvailable()) {
             System.err.println("Error: ffprobe is not available on this system. Please install it and ensure it is available on PATH.");
             return 1;
         }
 
-        System.out.println("Welcome!\n");
+        // Only use what this ffmpeg build can do
+        EncodingProfile encodingProfile = ffmpegToolchain.resolveEncodingProfile(resolvedApplicationConfig.encodingProfile());
+        if (encodingProfile == null) {
+            System.err.println("Error: ffmpeg " + ffmpegToolchain.getVersion() + " has none of the encoders needed to prepare the audio (libmp3lame).");
+            return 1;
+        }
+        if (encodingProfile != resolvedApplicationConfig.encodingProfile()) {
+            System.err.println("Warning: ffmpeg " + ffmpegToolchain.getVersion() + " cannot encode "
+                    + resolvedApplicationConfig.encodingProfile() + " (" + resolvedApplicationConfig.encodingProfile().getCodec()
+                    + "). Using " + encodingProfile + " instead.");
+        }
 
-        AudioFile audioFile = new AudioFile();
-        List<AudioFile> audioFileList = new ArrayList<>();
+        boolean trimSilence = resolvedApplicationConfig.trimSilence();
+        if (trimSilence && !(ffmpegToolchain.hasFilter("silenceremove") && ffmpegToolchain.hasFilter("silencedetect"))) {
+            System.err.println("Warning: ffmpeg " + ffmpegToolchain.getVersion() + " has no silence filters. Silences will not be trimmed.");
+            trimSilence = false;
+        }
 
-        // Step 2: Check if the file exists and type
-        try {
-            System.out.println("Validating file...\n");
+        double tempoFactor = resolvedApplicationConfig.tempoFactor();
+        if (tempoFactor != 1 && !ffmpegToolchain.hasFilter("atempo")) {
+            System.err.println("Warning: ffmpeg " + ffmpegToolchain.getVersion() + " has no atempo filter. The audio will be uploaded at its original speed.");
+            tempoFactor = 1;
+        }
 
-            if (AudioFileHelper.validateFile(originalInputPath)) {
-                audioFile.setFilePath(originalInputPath);
-                System.out.println(MessageManager.getFileFoundMessage(audioFile.getFilePath()));
+        if (daemonMode) {
+            TranscriptionJobContext transcriptionJobContext = TranscriptionJobContext.open(resolvedApplicationConfig,
+                    encodingProfile, trimSilence, tempoFactor);
+            TranscriptionDaemon transcriptionDaemon;
+            try {
+                transcriptionDaemon = TranscriptionDaemon.start(transcriptionJobContext,
+                        resolvedApplicationConfig.daemonPort(), resolvedApplicationConfig.maxConcurrentJobs(),
+                        resolvedApplicationConfig.daemonQueueCapacity());
+            } catch (IOException e) {
+                System.err.println("Error starting daemon: " + e.getMessage());
+                return 1;
             }
+            Runtime.getRuntime().addShutdownHook(new Thread(transcriptionDaemon::stop));
 
-            FileType fileType = AudioFileHelper.getFileType(audioFile.getFilePath());
-            audioFile.setFileType(fileType);
-
-            System.out.println();
-            System.out.println(MessageManager.getFileTypeValidatedMessage(audioFile.getFileType().getType()));
-        } catch (FileValidationException | FileNotFoundException e) {
-            System.err.println(e.getMessage());
-            return 1;
+            System.out.println("Listening on http://localhost:" + transcriptionDaemon.getPort() + " ("
+                    + resolvedApplicationConfig.maxConcurrentJobs() + " job(s) at a time, up to "
+                    + resolvedApplicationConfig.daemonQueueCapacity() + " queued). Press Ctrl+C to stop.");
+            try {
+                transcriptionDaemon.awaitStop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                transcriptionDaemon.stop();
+            }
+            return 0;
         }
 
-        try (TemporaryWorkspaceHelper temporaryWorkspace = TemporaryWorkspaceHelper.createTemporaryWorkspace()) {
-            Path temporaryWorkspacePath = temporaryWorkspace.getWorkspacePath();
-
-            // Step 3: If the file is a video, extract the audio from it
-            if (audioFile.getFileType() == FileType.VIDEO) {
-                try {
-                    System.out.println("\nVideo detected. Extracting audio...\n");
-                    String audioFilePath = AudioFileHelper.extractAudioFromVideo(audioFile.getFilePath(), temporaryWorkspacePath);
-                    audioFile.setFilePath(audioFilePath);
-                    audioFile.setFileType(FileType.AUDIO);
-                    System.out.println("Audio extracted to: " + audioFile.getFilePath());
-                } catch (IOException e) {
-                    System.err.println("Error extracting audio from video: " + e.getMessage());
-                    return 1;
-                }
+        if (watchMode) {
+            TranscriptionJobContext transcriptionJobContext = TranscriptionJobContext.open(resolvedApplicationConfig,
+                    encodingProfile, trimSilence, tempoFactor);
+            FolderWatcher folderWatcher;
+            try {
+                folderWatcher = FolderWatcher.open(transcriptionJobContext, resolvedApplicationConfig.watchDirectoryPath(),
+                        resolvedApplicationConfig.maxConcurrentJobs(), resolvedApplicationConfig.watchSettleTime());
+            } catch (IOException e) {
+                System.err.println("Error watching " + resolvedApplicationConfig.watchDirectoryPath() + ": " + e.getMessage());
+                return 1;
             }
+            Runtime.getRuntime().addShutdownHook(new Thread(folderWatcher::stop));
 
-            // Step 4: Get audio file duration and size
+            System.out.println("Watching " + resolvedApplicationConfig.watchDirectoryPath() + " ("
+                    + resolvedApplicationConfig.maxConcurrentJobs() + " file(s) at a time). Press Ctrl+C to stop.");
             try {
-                audioFile.setDuration(AudioFileHelper.getAudioFileDuration(audioFile.getFilePath()));
-                audioFile.setFileSize(AudioFileHelper.getAudioFileSizeInBytes(audioFile.getFilePath()));
-                System.out.println();
-                System.out.println(audioFile);
-
-                // Step 5: Split the audio file if it is too big
-                long maxFileSizeInBytes = resolvedApplicationConfig.audioFileLimitSizeInBytes();
-                if (audioFile.getFileSize() > maxFileSizeInBytes) {
-                    System.out.println("\nFile is too big. Splitting it into smaller files...\n");
-                }
-
-                audioFileList.addAll(
-                        AudioFileHelper.splitAudioFileBySize(audioFile, maxFileSizeInBytes, temporaryWorkspacePath)
-                );
-
-                if (audioFileList.size() > 1) {
-                    System.out.println("Audio split into " + audioFileList.size() + " smaller files:");
-                    for (AudioFile af : audioFileList) {
-                        System.out.println(af);
-                    }
-                }
+                folderWatcher.run();
             } catch (IOException e) {
+                System.err.println("Error watching " + resolvedApplicationConfig.watchDirectoryPath() + ": " + e.getMessage());
+                return 1;
+            }
+            return 0;
+        }
+
+        if (batchMode) {
+            List<BatchInput> batchInputs;
+            try {
+                batchInputs = BatchInputResolver.resolve(positionalArgs, manifestPath,
+                        resolvedApplicationConfig.effectiveLanguage());
+            } catch (InvalidOptionValueException | IOException e) {
                 System.err.println(e.getMessage());
                 return 1;
             }
+            if (batchInputs.isEmpty()) {
+                System.err.println("Error: No audio or video file found.");
+                return 1;
+            }
 
-            // Step 8: It's time to call the API
-            ApiService apiService = new WhisperApiService(resolvedApplicationConfig.serviceDefinition());
+            TranscriptionJobContext transcriptionJobContext = TranscriptionJobContext.open(resolvedApplicationConfig,
+                    encodingProfile, trimSilence, tempoFactor);
+            System.out.println("Transcribing " + batchInputs.size() + " file(s), " + resolvedApplicationConfig.maxConcurrentJobs()
+                    + " at a time...\n");
 
+            String summaryOption = cmdOptions.getSummaryOption();
+            Path summaryPath = Path.of(summaryOption != null ? summaryOption : BATCH_SUMMARY_FILE_PATH);
+            int failedCount;
             try {
-                String apiKey = resolvedApplicationConfig.apiKey();
-
-                System.out.println("\n###### Checking access to OpenAI API: Whisper model ######");
-                String responseText = apiService.checkAiModelIsAvailable(apiKey);
-                System.out.println("\nAPI Response: " + (!responseText.isEmpty()));
-
-                System.out.println("\n###### Transcribe audio to text ######");
-
-                StringBuilder audioTranscription = new StringBuilder();
-                for (AudioFile af : audioFileList) {
-                    if (!audioTranscription.isEmpty()) {
-                        audioTranscription.append("\n//\n");
-                    }
-                    audioTranscription.append(
-                            apiService.transcribeAudioFile(
-                                    apiKey,
-                                    resolvedApplicationConfig.effectiveLanguage(),
-                                    af.getFilePath()
-                            )
-                    );
-                }
-
-                String transcriptionText = audioTranscription.toString();
-
-                TextFileHelper.saveTranscriptionToFile(transcriptionText, "transcription.txt");
-                System.out.println("\n\nDONE!\n");
-                System.out.println("The API response has: " + transcriptionText.length() + " characters and "
-                        + TextFileHelper.countWords(transcriptionText) + " words.\n");
-
-                System.out.print("Do you want to move the transcription.txt file to the same folder as the original file? (y/n) ");
-                String userAnswer;
-                try (Scanner scanner = new Scanner(System.in)) {
-                    userAnswer = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
-                }
-                boolean shouldMoveTranscriptionFile = "y".equalsIgnoreCase(userAnswer);
-
-                Path sourceTranscriptionPath = Path.of("transcription.txt").toAbsolutePath().normalize();
-                String destinationFileName = originalInputBaseName + "_TRANSCRIPTION.txt";
-                Path destinationTranscriptionPath = originalInputDirectoryPath.resolve(destinationFileName)
-                        .toAbsolutePath()
-                        .normalize();
-
-                if (shouldMoveTranscriptionFile) {
-                    try {
-                        TextFileHelper.moveTranscriptionFile(sourceTranscriptionPath.toFile(), originalInputDirectoryPath.toString(), destinationFileName);
-                        System.out.println("Transcription file has been moved to the original file's folder.");
-                        System.out.println("You can find it at: " + destinationTranscriptionPath);
-                    } catch (IOException e) {
-                        System.err.println("Failed to move the transcription file.");
-                        System.err.println("You can find it at: " + sourceTranscriptionPath);
-                    }
-                } else {
-                    System.out.println("Transcription file will not be moved. You can find it at: " + sourceTranscriptionPath);
-                }
+                failedCount = new BatchRunner(transcriptionJobContext, resolvedApplicationConfig.maxConcurrentJobs())
+                        .run(batchInputs, summaryPath);
             } catch (IOException e) {
-                System.err.println("Error fetching data from API: " + e.getMessage());
+                System.err.println("Error writing batch summary: " + e.getMessage());
                 return 1;
             }
-        } catch (IOException e) {
-            System.err.println("Error creating temporary workspace: " + e.getMessage());
+
+            printRunStatistics(transcriptionJobContext);
+            return failedCount == 0 ? 0 : 1;
+        }
+
+        System.out.println("Welcome!\n");
+
+        // Steps 2 to 8: Validate the file, prepare its audio and transcribe it
+        TranscriptionJobContext transcriptionJobContext = TranscriptionJobContext.open(resolvedApplicationConfig,
+                encodingProfile, trimSilence, tempoFactor);
+        TranscriptionJob transcriptionJob = new TranscriptionJob(transcriptionJobContext, Path.of(originalInputPath),
+                resolvedApplicationConfig.effectiveLanguage(), true);
+
+        Path sourceTranscriptionPath = Path.of("transcription.txt").toAbsolutePath().normalize();
+        TranscriptionJobResult transcriptionJobResult;
+        try {
+            transcriptionJobResult = transcriptionJob.run(sourceTranscriptionPath);
+        } catch (TranscriptionJobException e) {
+            System.err.println(e.getMessage());
             return 1;
         }
 
+        String transcriptionText = transcriptionJobResult.transcriptionText();
+        System.out.println("\n\nDONE!\n");
+        System.out.println("The API response has: " + transcriptionText.length() + " characters and "
+                + TextFileHelper.countWords(transcriptionText) + " words.");
+        printRunStatistics(transcriptionJobContext);
+
+        System.out.print("Do you want to move the transcription.txt file to the same folder as the original file? (y/n) ");
+        String userAnswer;
+        try (Scanner scanner = new Scanner(System.in)) {
+            userAnswer = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        }
+        boolean shouldMoveTranscriptionFile = "y".equalsIgnoreCase(userAnswer);
+
+        Path destinationTranscriptionPath = TextFileHelper.getTranscriptionFilePath(Path.of(originalInputPath));
+
+        if (shouldMoveTranscriptionFile) {
+            try {
+                TextFileHelper.moveTranscriptionFile(sourceTranscriptionPath.toFile(),
+                        destinationTranscriptionPath.getParent().toString(),
+                        destinationTranscriptionPath.getFileName().toString());
+                System.out.println("Transcription file has been moved to the original file's folder.");
+                System.out.println("You can find it at: " + destinationTranscriptionPath);
+            } catch (IOException e) {
+                System.err.println("Failed to move the transcription file.");
+                System.err.println("You can find it at: " + sourceTranscriptionPath);
+            }
+        } else {
+            System.out.println("Transcription file will not be moved. You can find it at: " + sourceTranscriptionPath);
+        }
+
         return 0;
     }
 
+    private static void printRunStatistics(TranscriptionJobContext transcriptionJobContext) {
+        HttpTransportStatistics transportStatistics = HttpTransport.getStatistics();
+        System.out.println("HTTP connections: " + transportStatistics.connectionsOpened() + " opened, "
+                + transportStatistics.connectionsReused() + " reused.");
+        TranscriptCache transcriptCache = transcriptionJobContext.getTranscriptCache();
+        if (transcriptCache != null) {
+            System.out.println("Transcript cache: " + transcriptCache.getHits() + " hits, "
+                    + transcriptCache.getMisses() + " misses.");
+        }
+        System.out.println();
+    }
+
 }
@@ -0,0 +1,10 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * Codec and bitrate of the audio stream of a file, as reported by ffprobe.
+ *
+ * @param codecName             ffprobe name of the codec (for example {@code mp3}, {@code aac} or {@code opus}).
+ * @param bitRateInBitsPerSecond Bitrate of the audio stream, or 0 if ffprobe could not tell.
+ */
+public record AudioCodecInfo(String codecName, long bitRateInBitsPerSecond) {
+}
@@ -1,5 +1,6 @@
 package eu.nevian.speech_to_text_simple_java_client.audiofile;
 
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
 import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
 
 /**
@@ -17,9 +18,39 @@ public class AudioFile {
     /** Audio duration in seconds. */
     private double duration;
 
-    /** File size in bytes. */
+    /** File size in bytes. For audio that is not stored in a file, the maximum size it may reach. */
     private long fileSize;
 
+    /** Where the audio content comes from when it is uploaded. */
+    private AudioFileStorage storage = AudioFileStorage.FILE;
+
+    /** For audio that is not stored in its own file: path to the file the audio is cut from. */
+    private String sourceFilePath;
+
+    /** For audio that is not stored in its own file: offset, in seconds, of the audio inside the source file. */
+    private double startTime;
+
+    /** For audio stored as a range of bytes of the source file: offset, in bytes, of the range. */
+    private long byteOffset;
+
+    /**
+     * For audio cut from another file: how it is encoded, or null if the audio packets of the source are copied as
+     * they are.
+     */
+    private EncodingProfile encodingProfile;
+
+    /**
+     * For audio cut from another file: speed-up applied when it is encoded. Start time and duration stay on the
+     * timeline of the source; the uploaded audio lasts duration / tempoFactor.
+     */
+    private double tempoFactor = 1;
+
+    /**
+     * What the inspection of the file found, or null if it was not inspected. Only kept for the current run, it is not
+     * journaled.
+     */
+    private MediaInfo mediaInfo;
+
     /**
      * Default constructor.
      */
@@ -42,6 +73,14 @@ public class AudioFile {
         this.fileType = fileType;
     }
 
+    public MediaInfo getMediaInfo() {
+        return mediaInfo;
+    }
+
+    public void setMediaInfo(MediaInfo mediaInfo) {
+        this.mediaInfo = mediaInfo;
+    }
+
     public double getDuration() {
         return duration;
     }
@@ -66,6 +105,64 @@ public class AudioFile {
         this.fileSize = fileSize;
     }
 
+    public AudioFileStorage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(AudioFileStorage storage) {
+        this.storage = storage;
+    }
+
+    public String getSourceFilePath() {
+        return sourceFilePath;
+    }
+
+    public void setSourceFilePath(String sourceFilePath) {
+        this.sourceFilePath = sourceFilePath;
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(double startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public void setByteOffset(long byteOffset) {
+        this.byteOffset = byteOffset;
+    }
+
+    public EncodingProfile getEncodingProfile() {
+        return encodingProfile;
+    }
+
+    public void setEncodingProfile(EncodingProfile encodingProfile) {
+        this.encodingProfile = encodingProfile;
+    }
+
+    public double getTempoFactor() {
+        return tempoFactor;
+    }
+
+    public void setTempoFactor(double tempoFactor) {
+        this.tempoFactor = tempoFactor;
+    }
+
+    /**
+     * Returns the duration of the audio that is uploaded, shorter than {@link #getDuration()} when the tempo is
+     * changed.
+     *
+     * @return Duration in seconds.
+     */
+    public double getUploadedDuration() {
+        return duration / tempoFactor;
+    }
+
     @Override
     public String toString() {
         return "AudioFile{" +
@@ -73,6 +170,8 @@ public class AudioFile {
                 ", fileType='" + fileType + '\'' +
                 ", duration=" + String.format("%.2f", getDurationInMinutes()) + " minutes" +
                 ", fileSize=" + String.format("%.2f", getFileSizeInMB()) + " MB" +
+                (storage != AudioFileStorage.FILE ? ", storage=" + storage : "") +
+                (tempoFactor != 1 ? ", tempo=" + tempoFactor + "x" : "") +
                 '}';
     }
 }
@@ -3,24 +3,44 @@ package eu.nevian.speech_to_text_simple_java_client.audiofile;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.FileValidationException;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
 import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
 import eu.nevian.speech_to_text_simple_java_client.utils.MessageManager;
 import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegProcessHelper;
+import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegToolchain;
 import org.apache.tika.Tika;
 import org.apache.tika.mime.MediaType;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Helper class for audio files.
  */
 public class AudioFileHelper {
+    /** Number of times a part over the size limit is split again before giving up. */
+    private static final int MAX_RESPLIT_DEPTH = 3;
+
+    /** Reads the ffprobe output. Thread safe once configured, so it is shared. */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** Holds the Tika detector, so its MIME registry is only loaded for files {@link MediaSniffer} cannot tell. */
+    private static final class TikaHolder {
+        private static final Tika TIKA = new Tika();
+    }
+
     /**
      * Private constructor to prevent instantiation. All methods are static.
      */
@@ -44,10 +64,26 @@ public class AudioFileHelper {
         return true;
     }
 
+    /**
+     * Tell if a file is an audio or a video file, from the signature of its container (see {@link MediaSniffer}).
+     * Files with an unknown signature are detected by Tika, which is only loaded for them.
+     *
+     * @param filePath The path to the file.
+     * @return The type of the file.
+     * @throws FileValidationException If the file is neither an audio nor a video file.
+     */
     public static FileType getFileType(String filePath) throws FileValidationException {
+        try {
+            FileType sniffedFileType = MediaSniffer.sniff(Paths.get(filePath));
+            if (sniffedFileType != null) {
+                return sniffedFileType;
+            }
+        } catch (IOException e) {
+            // Let Tika decide from the file name
+        }
+
         // Check the file type
-        final Tika tika = new Tika();
-        final MediaType mediaType = MediaType.parse(tika.detect(filePath));
+        final MediaType mediaType = MediaType.parse(TikaHolder.TIKA.detect(filePath));
 
         if (mediaType.getType().startsWith("audio")){
             return FileType.AUDIO;
@@ -60,29 +96,70 @@ public class AudioFileHelper {
 
     /**
      * Extract the audio from a video file. The audio extracted is saved in the temporary workspace with a timestamp
-     * suffix to avoid overwriting an existing .mp3 file.
+     * suffix to avoid overwriting an existing audio file.
      *
      * @param videoFilePath The path to the video file
      * @param temporaryWorkspace Temporary directory for generated files
+     * @param encodingProfile How the extracted audio is encoded
      * @return The path to the extracted audio file
      * @throws IOException If ffmpeg is not available on the system or if the process was interrupted
      */
-    public static String extractAudioFromVideo(String videoFilePath, Path temporaryWorkspace) throws IOException {
+    public static String extractAudioFromVideo(String videoFilePath, Path temporaryWorkspace,
+                                               EncodingProfile encodingProfile) throws IOException {
+        return extractAudioFromVideo(videoFilePath, temporaryWorkspace, encodingProfile, encodingProfile.getExtension());
+    }
+
+    /**
+     * Extract the audio from a video file that was already inspected. When the audio stream is in a codec the API
+     * accepts, and copying it gives a file no bigger than encoding it would (or one small enough to be uploaded as it
+     * is), its packets are copied instead of being encoded again, which takes a fraction of the time.
+     *
+     * @param videoFilePath The path to the video file
+     * @param mediaInfo What the inspection of the video file found
+     * @param temporaryWorkspace Temporary directory for generated files
+     * @param encodingProfile How the extracted audio is encoded when it is not copied
+     * @param tempoFactor Speed-up applied later to the audio (the audio is never copied when it is not 1, as it is
+     *                    encoded again anyway)
+     * @param maxFileSizeInBytes Maximum size of a file sent to the API
+     * @return The path to the extracted audio file
+     * @throws IOException If ffmpeg is not available on the system or if the process was interrupted
+     */
+    public static String extractAudioFromVideo(String videoFilePath, MediaInfo mediaInfo, Path temporaryWorkspace,
+                                               EncodingProfile encodingProfile, double tempoFactor,
+                                               long maxFileSizeInBytes) throws IOException {
+        String streamCopyExtension = tempoFactor == 1
+                ? SplitPlanner.getStreamCopyExtension(mediaInfo.audioCodecName())
+                : null;
+        if (streamCopyExtension != null) {
+            AudioCodecInfo audioCodecInfo = mediaInfo.getAudioCodecInfo();
+            long copiedSizeInBytes = (long) (audioCodecInfo.bitRateInBitsPerSecond() / 8.0 * mediaInfo.durationInSeconds());
+            if (audioCodecInfo.bitRateInBitsPerSecond() > 0
+                    && (audioCodecInfo.bitRateInBitsPerSecond() <= encodingProfile.getBitRateInBitsPerSecond()
+                    || copiedSizeInBytes <= maxFileSizeInBytes)) {
+                return extractAudioFromVideo(videoFilePath, temporaryWorkspace, null, streamCopyExtension);
+            }
+        }
+
+        return extractAudioFromVideo(videoFilePath, temporaryWorkspace, encodingProfile, encodingProfile.getExtension());
+    }
+
+    private static String extractAudioFromVideo(String videoFilePath, Path temporaryWorkspace,
+                                                EncodingProfile encodingProfile, String audioExtension) throws IOException {
         if (FfmpegProcessHelper.isFfmpegNotAvailable()) {
             throw new IOException("ffmpeg is not available on this system. You can install it with 'sudo apt install " +
                     "ffmpeg' on your Linux distribution.");
         }
 
-        System.out.println("Extracting audio from video file...");
-
         String baseName = getFileNameWithoutExtension(videoFilePath);
-        String audioFilePath = temporaryWorkspace.resolve(baseName + "_" + System.currentTimeMillis() + ".mp3").toString();
+        String extension = "." + audioExtension;
+        String audioFilePath = temporaryWorkspace.resolve(baseName + "_" + System.currentTimeMillis() + extension).toString();
         // Retry if a file with the same timestamp already exists (VERY RARE).
         while (Files.exists(Paths.get(audioFilePath))) {
-            audioFilePath = temporaryWorkspace.resolve(baseName + "_" + System.currentTimeMillis() + ".mp3").toString();
+            audioFilePath = temporaryWorkspace.resolve(baseName + "_" + System.currentTimeMillis() + extension).toString();
         }
 
-        ProcessBuilder processBuilder = FfmpegProcessHelper.createExtractAudioProcessBuilder(videoFilePath, audioFilePath);
+        ProcessBuilder processBuilder = FfmpegProcessHelper.createExtractAudioProcessBuilder(videoFilePath, audioFilePath,
+                encodingProfile);
         Process process = processBuilder.start();
 
         try {
@@ -99,41 +176,169 @@ public class AudioFileHelper {
     }
 
     /**
-     * Get the duration of an audio file in seconds. This method uses the ffprobe command, which is a part of the ffmpeg
-     * suite.
+     * Inspect a media file once: its container, duration, size and bitrate, and the codec, sample rate and channels of
+     * its first audio stream. MP3 files are read in process by {@link Mp3FrameIndexer}, and WAV files by
+     * {@link WavFileReader}; other files, and the ones they cannot read, go through a single ffprobe run, which is a
+     * part of the ffmpeg suite.
      *
-     * @param audioFilePath The path to the audio file.
-     * @return The duration of the audio file in seconds.
-     * @throws IOException If an error occurs while getting the duration of the audio file.
+     * @param filePath The path to the media file.
+     * @return What the file holds.
+     * @throws IOException If ffprobe fails or the duration of the file cannot be found.
      */
-    public static double getAudioFileDuration(String audioFilePath) throws IOException {
+    public static MediaInfo inspectMediaFile(String filePath) throws IOException {
+        Mp3FrameIndex mp3FrameIndex = probeMp3File(filePath);
+        if (mp3FrameIndex != null) {
+            return new MediaInfo("mp3", mp3FrameIndex.durationInSeconds(), Files.size(Paths.get(filePath)),
+                    mp3FrameIndex.bitRateInBitsPerSecond(), 1, 0, "mp3", mp3FrameIndex.bitRateInBitsPerSecond(),
+                    mp3FrameIndex.sampleRate(), mp3FrameIndex.channels());
+        }
+
+        WavFormat wavFormat = readWavFile(filePath);
+        if (wavFormat != null) {
+            return new MediaInfo("wav", wavFormat.getDurationInSeconds(), Files.size(Paths.get(filePath)),
+                    wavFormat.getBitRateInBitsPerSecond(), 1, 0, wavFormat.getCodecName(),
+                    wavFormat.getBitRateInBitsPerSecond(), wavFormat.sampleRate(), wavFormat.channels());
+        }
+
         if (FfmpegProcessHelper.isFfprobeNotAvailable()) {
             throw new IOException("ffprobe is not available on this system. You can install it with 'sudo apt install ffmpeg' on your Linux distribution.");
         }
 
-        ProcessBuilder processBuilder = FfmpegProcessHelper.createGetAudioDurationProcessBuilder(audioFilePath);
+        ProcessBuilder processBuilder = FfmpegProcessHelper.createInspectMediaProcessBuilder(filePath);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
         Process process = processBuilder.start();
 
+        // Read the output before waiting, so ffprobe never blocks on a full pipe
+        JsonNode rootNode = OBJECT_MAPPER.readTree(process.getInputStream());
         try {
             int exitCode = process.waitFor();
             if (exitCode != 0) {
-                throw new IOException("Error getting audio duration: ffprobe exit code " + exitCode);
+                throw new IOException("Error inspecting media file: ffprobe exit code " + exitCode);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Error getting audio duration: ffprobe process was interrupted", e);
+            throw new IOException("Error inspecting media file: ffprobe process was interrupted", e);
         }
 
-        // Read the output of the ffprobe command
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(process.getInputStream());
-        JsonNode durationNode = rootNode.path("format").path("duration");
+        JsonNode formatNode = rootNode.path("format");
+        String audioCodecName = "";
+        long audioBitRate = 0;
+        int sampleRate = 0;
+        int channels = 0;
+        int audioStreamCount = 0;
+        int videoStreamCount = 0;
+        double longestStreamDuration = 0;
+        for (JsonNode streamNode : rootNode.path("streams")) {
+            String codecType = streamNode.path("codec_type").asText("");
+            if (codecType.equals("audio")) {
+                if (audioStreamCount == 0) {
+                    audioCodecName = streamNode.path("codec_name").asText("");
+                    audioBitRate = streamNode.path("bit_rate").asLong(0);
+                    sampleRate = streamNode.path("sample_rate").asInt(0);
+                    channels = streamNode.path("channels").asInt(0);
+                }
+                audioStreamCount++;
+            } else if (codecType.equals("video") && streamNode.path("disposition").path("attached_pic").asInt(0) == 0) {
+                // Cover art is stored as a video stream of a single picture
+                videoStreamCount++;
+            }
+            longestStreamDuration = Math.max(longestStreamDuration, streamNode.path("duration").asDouble(0));
+        }
+
+        double duration = formatNode.path("duration").asDouble(longestStreamDuration);
+        if (duration <= 0) {
+            throw new IOException("Error inspecting media file: Duration not found in ffprobe output");
+        }
 
-        if (durationNode.isMissingNode()) {
-            throw new IOException("Error getting audio duration: Duration not found in ffprobe output");
+        return new MediaInfo(
+                formatNode.path("format_name").asText(""),
+                duration,
+                formatNode.path("size").asLong(Files.size(Paths.get(filePath))),
+                formatNode.path("bit_rate").asLong(0),
+                audioStreamCount,
+                videoStreamCount,
+                audioCodecName,
+                audioBitRate,
+                sampleRate,
+                channels
+        );
+    }
+
+    /**
+     * Get the duration of an audio file in seconds, from {@link #inspectMediaFile(String)}.
+     *
+     * @param audioFilePath The path to the audio file.
+     * @return The duration of the audio file in seconds.
+     * @throws IOException If an error occurs while getting the duration of the audio file.
+     */
+    public static double getAudioFileDuration(String audioFilePath) throws IOException {
+        return inspectMediaFile(audioFilePath).durationInSeconds();
+    }
+
+    /**
+     * Shorten the long silences of an audio (or video) file and find the pauses left in it. Silences longer than two
+     * seconds are cut down to half a second, and the pauses of the result are listed in a {@link SilenceMap} that is
+     * used to split the audio between words. This method uses the ffmpeg command, in a single pass over the input.
+     *
+     * @param audioFile The audio file to trim. It may also be a video file.
+     * @param temporaryWorkspace Temporary directory for generated files.
+     * @param encodingProfile How the trimmed audio is encoded.
+     * @return The trimmed audio file, with its duration and size, and its pauses.
+     * @throws IOException If an error occurs while trimming the audio file.
+     */
+    public static SilenceTrimResult trimSilence(AudioFile audioFile, Path temporaryWorkspace,
+                                                EncodingProfile encodingProfile) throws IOException {
+        String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
+        Path trimmedPath = temporaryWorkspace.resolve(baseName + "-trimmed." + encodingProfile.getExtension());
+
+        ProcessBuilder processBuilder = FfmpegProcessHelper.createTrimSilenceProcessBuilder(
+                audioFile.getFilePath(), trimmedPath.toString(), encodingProfile);
+        Process process = processBuilder.start();
+
+        List<String> logLines = new ArrayList<>();
+        try (BufferedReader logReader = process.inputReader()) {
+            String logLine;
+            while ((logLine = logReader.readLine()) != null) {
+                logLines.add(logLine);
+            }
+        }
+
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                Files.deleteIfExists(trimmedPath);
+                throw new IOException("Error trimming silence: ffmpeg exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Error trimming silence: ffmpeg process was interrupted", e);
         }
 
-        return durationNode.asDouble();
+        AudioFile trimmedAudioFile = new AudioFile();
+        trimmedAudioFile.setFilePath(trimmedPath.toString());
+        trimmedAudioFile.setFileType(FileType.AUDIO);
+        MediaInfo trimmedMediaInfo = inspectMediaFile(trimmedPath.toString());
+        trimmedAudioFile.setMediaInfo(trimmedMediaInfo);
+        trimmedAudioFile.setDuration(trimmedMediaInfo.durationInSeconds());
+        trimmedAudioFile.setFileSize(trimmedMediaInfo.sizeInBytes());
+
+        return new SilenceTrimResult(trimmedAudioFile, SilenceMap.fromSilenceDetectLog(logLines));
+    }
+
+    /**
+     * Get the codec and bitrate of the audio stream of a file, from {@link #inspectMediaFile(String)}.
+     *
+     * @param audioFilePath The path to the audio file.
+     * @return The codec and bitrate of the first audio stream.
+     * @throws IOException If an error occurs while probing the file or if it has no audio stream.
+     */
+    public static AudioCodecInfo getAudioCodecInfo(String audioFilePath) throws IOException {
+        MediaInfo mediaInfo = inspectMediaFile(audioFilePath);
+        if (!mediaInfo.hasAudio()) {
+            throw new IOException("Error getting audio codec: No audio stream found in " + audioFilePath);
+        }
+        return mediaInfo.getAudioCodecInfo();
     }
 
     /**
@@ -149,70 +354,647 @@ public class AudioFileHelper {
     }
 
     /**
-     * Split an audio file into multiple parts, each one with a maximum size of maxSizeInBytes. This method uses the
-     * ffmpeg command.
+     * Split an audio file into multiple parts, each one with a maximum size of maxSizeInBytes. The number of parts and
+     * how they are made are decided by {@link SplitPlanner}. This method uses the ffmpeg segment muxer, so the input is
+     * decoded only once whatever the number of parts (ffmpeg builds without it cut the parts one by one, in parallel).
+     * The duration and start time of each part are the ones reported by ffmpeg, not the planned ones, since parts can
+     * only end on a frame boundary.
+     * <p>
+     * When the source is already in a codec the API accepts, at a bitrate that is not too high, the parts are cut with
+     * stream copy: nothing is decoded or encoded, and the parts keep the quality of the source. Otherwise the parts are
+     * encoded with the upload profile, in a single file when it then fits the limit. Every part that turns out to be
+     * over the limit is split again on its own.
+     * <p>
+     * Two sources are split without ffmpeg: MP3 files that can be stream copied become ranges of their own frames (see
+     * {@link AudioFileStorage#BYTE_RANGE}), and WAV files encoded with {@link EncodingProfile#WAV_MONO} are cut and
+     * converted by {@link WavFileReader}, one part per core at a time.
+     * <p>
+     * The parts keep the original speed of the audio, and no split point is moved into a pause.
      *
      * @param audioFile      The audio file to split.
      * @param maxSizeInBytes The maximum size of each part in bytes.
      * @param temporaryWorkspace Temporary directory for generated files.
+     * @param encodingProfile How the parts are encoded when they are not copied.
      * @return A list of audio files, each one with a maximum size of maxSizeInBytes.
      * @throws IOException If an error occurs while splitting the audio file.
      */
-    public static List<AudioFile> splitAudioFileBySize(AudioFile audioFile, long maxSizeInBytes, Path temporaryWorkspace) throws IOException {
-        List<AudioFile> splitFiles = new ArrayList<>();
-        List<Path> generatedPaths = new ArrayList<>();
+    public static List<AudioFile> splitAudioFileBySize(AudioFile audioFile, long maxSizeInBytes, Path temporaryWorkspace,
+                                                       EncodingProfile encodingProfile) throws IOException {
+        return splitAudioFileBySize(audioFile, maxSizeInBytes, temporaryWorkspace, encodingProfile, 1, SilenceMap.EMPTY);
+    }
 
-        if (audioFile.getFileSize() <= maxSizeInBytes) {
+    /**
+     * Same as {@link #splitAudioFileBySize(AudioFile, long, Path, EncodingProfile)}, with the audio sped up by the
+     * tempo factor and the split points moved into the nearest pause of the silence map, when there is one close
+     * enough. When the tempo is changed, the audio is always encoded, even if it fits the limit.
+     *
+     * @param audioFile      The audio file to split.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param temporaryWorkspace Temporary directory for generated files.
+     * @param encodingProfile How the parts are encoded when they are not copied.
+     * @param tempoFactor    Speed-up applied to the parts (1 to keep the original speed).
+     * @param silenceMap     Pauses of the audio file.
+     * @return A list of audio files, each one with a maximum size of maxSizeInBytes.
+     * @throws IOException If an error occurs while splitting the audio file.
+     */
+    public static List<AudioFile> splitAudioFileBySize(AudioFile audioFile, long maxSizeInBytes, Path temporaryWorkspace,
+                                                       EncodingProfile encodingProfile, double tempoFactor,
+                                                       SilenceMap silenceMap) throws IOException {
+        SplitPlanner.SplitPlan splitPlan = SplitPlanner.plan(audioFile, maxSizeInBytes, probeAudioCodecInfo(audioFile),
+                encodingProfile, tempoFactor, silenceMap);
+
+        if (splitPlan.strategy() == SplitPlanner.Strategy.UPLOAD_AS_IS) {
+            List<AudioFile> splitFiles = new ArrayList<>();
             splitFiles.add(audioFile);
             return splitFiles;
         }
 
-        // Calculate the number of parts needed
-        int numberOfParts = (int) Math.ceil((double) audioFile.getFileSize() / maxSizeInBytes);
+        if (splitPlan.strategy() == SplitPlanner.Strategy.STREAM_COPY && "mp3".equals(splitPlan.partExtension())
+                && isMp3FilePath(audioFile.getFilePath())) {
+            try {
+                return splitMp3FileIntoByteRanges(audioFile, splitPlan.numberOfParts(), maxSizeInBytes, silenceMap);
+            } catch (IOException e) {
+                // Frames the indexer cannot follow: let ffmpeg copy them instead.
+            }
+        }
+
+        // Without the segment muxer, the parts are cut one by one, several at a time
+        boolean segmentMuxerAvailable = FfmpegToolchain.get().hasMuxer("segment");
+
+        if (splitPlan.strategy() == SplitPlanner.Strategy.STREAM_COPY) {
+            try {
+                List<AudioFile> copiedParts = segmentMuxerAvailable
+                        ? segmentAudioFile(audioFile, splitPlan.numberOfParts(), temporaryWorkspace,
+                                splitPlan.partExtension(), null, 1, silenceMap)
+                        : cutAudioFileParts(planAudioFileParts(audioFile, splitPlan.numberOfParts(), temporaryWorkspace,
+                                splitPlan.partExtension(), null, 1, silenceMap));
+                return splitOversizedParts(copiedParts, maxSizeInBytes, silenceMap, 0);
+            } catch (IOException e) {
+                // The source cannot be copied as it is (a broken stream, for instance): encode it instead.
+            }
+        }
+
+        int numberOfParts = SplitPlanner.countTranscodedParts(audioFile.getDuration() / tempoFactor, maxSizeInBytes,
+                encodingProfile, silenceMap);
+        boolean nativeWavSplit = encodingProfile == EncodingProfile.WAV_MONO && tempoFactor == 1
+                && readWavFile(audioFile.getFilePath()) != null;
+        List<AudioFile> transcodedParts = segmentMuxerAvailable && !nativeWavSplit
+                ? segmentAudioFile(audioFile, numberOfParts, temporaryWorkspace, encodingProfile.getExtension(),
+                        encodingProfile, tempoFactor, silenceMap)
+                : cutAudioFileParts(planAudioFileParts(audioFile, numberOfParts, temporaryWorkspace,
+                        encodingProfile.getExtension(), encodingProfile, tempoFactor, silenceMap));
+        return splitOversizedParts(transcodedParts, maxSizeInBytes, silenceMap, 0);
+    }
+
+    /**
+     * Split an MP3 file into ranges of its own frames (see {@link AudioFileStorage#BYTE_RANGE}). Nothing is run or
+     * written: each part is read from the source file while it is uploaded. The split points are moved to the nearest
+     * frame boundary, and a range that is still over the limit (the bitrate of a VBR file varies) is cut in two.
+     */
+    private static List<AudioFile> splitMp3FileIntoByteRanges(AudioFile audioFile, int numberOfParts, long maxSizeInBytes,
+                                                              SilenceMap silenceMap) throws IOException {
+        Mp3FrameIndex frameIndex = Mp3FrameIndexer.index(Paths.get(audioFile.getFilePath()));
+        int frameCount = frameIndex.frameOffsets().length;
+        if (frameCount == 0) {
+            throw new IOException("Error splitting audio file: no MP3 frame found in " + audioFile.getFilePath());
+        }
 
-        // Calculate the duration for each part
-        double partDuration = audioFile.getDuration() / numberOfParts;
+        double frameDuration = frameIndex.getFrameDurationInSeconds();
+        List<Double> splitTimes = SplitPlanner.computeSplitTimes(0, frameCount * frameDuration, numberOfParts, silenceMap);
+
+        List<AudioFile> splitFiles = new ArrayList<>();
+        int firstFrame = 0;
+        for (double splitTime : splitTimes) {
+            int splitFrame = (int) Math.min(frameCount - 1, Math.round(splitTime / frameDuration));
+            if (splitFrame > firstFrame) {
+                addByteRangeParts(splitFiles, audioFile, frameIndex, firstFrame, splitFrame, maxSizeInBytes, silenceMap);
+                firstFrame = splitFrame;
+            }
+        }
+        addByteRangeParts(splitFiles, audioFile, frameIndex, firstFrame, frameCount, maxSizeInBytes, silenceMap);
+
+        String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
+        for (int i = 0; i < splitFiles.size(); i++) {
+            splitFiles.get(i).setFilePath(baseName + "-part" + (i + 1) + ".mp3");
+        }
+        return splitFiles;
+    }
+
+    /**
+     * Add the part made of the frames from firstFrame (included) to endFrame (excluded), or, if it is over the limit,
+     * the parts of both of its halves.
+     */
+    private static void addByteRangeParts(List<AudioFile> splitFiles, AudioFile audioFile, Mp3FrameIndex frameIndex,
+                                          int firstFrame, int endFrame, long maxSizeInBytes,
+                                          SilenceMap silenceMap) throws IOException {
+        long[] frameOffsets = frameIndex.frameOffsets();
+        long startOffset = frameOffsets[firstFrame];
+        long endOffset = endFrame < frameOffsets.length ? frameOffsets[endFrame] : frameIndex.audioDataEnd();
+        double frameDuration = frameIndex.getFrameDurationInSeconds();
+
+        if (endOffset - startOffset > maxSizeInBytes) {
+            if (endFrame - firstFrame < 2) {
+                throw new IOException("Error splitting audio file: the frame at byte " + startOffset
+                        + " is bigger than the size limit");
+            }
+
+            double middleTime = SplitPlanner.computeSplitTimes(firstFrame * frameDuration,
+                    (endFrame - firstFrame) * frameDuration, 2, silenceMap).getFirst();
+            int middleFrame = (int) Math.max(firstFrame + 1, Math.min(endFrame - 1, Math.round(middleTime / frameDuration)));
+            addByteRangeParts(splitFiles, audioFile, frameIndex, firstFrame, middleFrame, maxSizeInBytes, silenceMap);
+            addByteRangeParts(splitFiles, audioFile, frameIndex, middleFrame, endFrame, maxSizeInBytes, silenceMap);
+            return;
+        }
 
-        // Split the audio file into parts
+        AudioFile byteRangePart = new AudioFile();
+        byteRangePart.setFileType(FileType.AUDIO);
+        byteRangePart.setStorage(AudioFileStorage.BYTE_RANGE);
+        byteRangePart.setSourceFilePath(audioFile.getFilePath());
+        byteRangePart.setByteOffset(startOffset);
+        byteRangePart.setFileSize(endOffset - startOffset);
+        byteRangePart.setStartTime(firstFrame * frameDuration);
+        byteRangePart.setDuration((endFrame - firstFrame) * frameDuration);
+
+        splitFiles.add(byteRangePart);
+    }
+
+    /**
+     * Cut an audio file into parts with the segment muxer. The parts are encoded with the given profile, or copied
+     * from the source when it is null. Start times and durations of the parts are on the timeline of the source, even
+     * when the tempo is changed.
+     */
+    private static List<AudioFile> segmentAudioFile(AudioFile audioFile, int numberOfParts, Path temporaryWorkspace,
+                                                    String extension, EncodingProfile encodingProfile, double tempoFactor,
+                                                    SilenceMap silenceMap) throws IOException {
+        String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
+
+        if (numberOfParts == 1) {
+            // Encoded to fit: a single part, there is nothing to segment
+            AudioFile singlePart = new AudioFile();
+            singlePart.setFilePath(temporaryWorkspace.resolve(baseName + "-part1." + extension).toString());
+            singlePart.setFileType(FileType.AUDIO);
+            singlePart.setSourceFilePath(audioFile.getFilePath());
+            singlePart.setDuration(audioFile.getDuration());
+            singlePart.setEncodingProfile(encodingProfile);
+            singlePart.setTempoFactor(tempoFactor);
+            cutAudioFilePart(singlePart);
+
+            List<AudioFile> splitFiles = new ArrayList<>();
+            splitFiles.add(singlePart);
+            return splitFiles;
+        }
+
+        Path segmentListPath = temporaryWorkspace.resolve(baseName + "-parts.csv");
+        List<Double> splitTimes = SplitPlanner.computeSplitTimes(0, audioFile.getDuration(), numberOfParts, silenceMap);
+        // The segment muxer works on the output, which is shorter than the source when the tempo is changed
+        List<Double> segmentTimes = splitTimes.stream().map(splitTime -> splitTime / tempoFactor).toList();
+
+        ProcessBuilder processBuilder = FfmpegProcessHelper.createSegmentAudioProcessBuilder(
+                audioFile.getFilePath(),
+                temporaryWorkspace.resolve(baseName.replace("%", "%%") + "-part%d." + extension).toString(),
+                segmentTimes,
+                segmentListPath.toString(),
+                encodingProfile,
+                tempoFactor
+        );
+
+        List<AudioFile> splitFiles = new ArrayList<>();
         try {
-            String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
-            for (int i = 0; i < numberOfParts; i++) {
-                double startTime = i * partDuration;
-                String outputFilePath = temporaryWorkspace.resolve(baseName + "-part" + (i + 1) + ".mp3").toString();
-                Path outputPath = Paths.get(outputFilePath);
-                generatedPaths.add(outputPath);
-
-                ProcessBuilder processBuilder = FfmpegProcessHelper.createCutAudioProcessBuilder(
-                        audioFile.getFilePath(), outputFilePath, startTime, partDuration);
-                Process process = processBuilder.start();
-
-                try {
-                    int exitCode = process.waitFor();
-                    if (exitCode != 0) {
-                        throw new IOException("Error splitting audio file: ffmpeg exit code " + exitCode);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Error splitting audio file: ffmpeg process was interrupted", e);
+            Process process = processBuilder.start();
+            try {
+                int exitCode = process.waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Error splitting audio file: ffmpeg exit code " + exitCode);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+                throw new IOException("Error splitting audio file: ffmpeg process was interrupted", e);
+            }
+
+            List<String> segmentList = Files.readAllLines(segmentListPath);
+            for (int i = 0; i < segmentList.size(); i++) {
+                // Each line is "file name,start time,end time". The name may be quoted, so it is taken from the pattern.
+                String segment = segmentList.get(i);
+                int endTimeSeparatorIndex = segment.lastIndexOf(',');
+                int startTimeSeparatorIndex = segment.lastIndexOf(',', endTimeSeparatorIndex - 1);
+                if (startTimeSeparatorIndex < 0) {
+                    throw new IOException("Error splitting audio file: unexpected segment list entry: " + segment);
+                }
+                double startTime = tempoFactor * Double.parseDouble(segment.substring(startTimeSeparatorIndex + 1, endTimeSeparatorIndex));
+                double endTime = tempoFactor * Double.parseDouble(segment.substring(endTimeSeparatorIndex + 1));
+                Path outputPath = temporaryWorkspace.resolve(baseName + "-part" + (i + 1) + "." + extension);
 
                 // Create a new AudioFile object for the part
                 AudioFile splitAudioFile = new AudioFile();
-                splitAudioFile.setFilePath(outputFilePath);
+                splitAudioFile.setFilePath(outputPath.toString());
                 splitAudioFile.setFileType(FileType.AUDIO);
-                splitAudioFile.setDuration(partDuration);
+                splitAudioFile.setSourceFilePath(audioFile.getFilePath());
+                splitAudioFile.setStartTime(startTime);
+                splitAudioFile.setDuration(endTime - startTime);
                 splitAudioFile.setFileSize(Files.size(outputPath));
+                splitAudioFile.setEncodingProfile(encodingProfile);
+                splitAudioFile.setTempoFactor(tempoFactor);
 
                 splitFiles.add(splitAudioFile);
             }
-        } catch (IOException e) {
-            deleteGeneratedFiles(generatedPaths);
-            throw e;
+
+            if (splitFiles.isEmpty()) {
+                throw new IOException("Error splitting audio file: ffmpeg did not produce any part");
+            }
+        } catch (IOException | NumberFormatException e) {
+            deleteSegmentFiles(temporaryWorkspace, baseName, extension);
+            throw e instanceof IOException ioException
+                    ? ioException
+                    : new IOException("Error splitting audio file: unexpected segment list", e);
+        } finally {
+            Files.deleteIfExists(segmentListPath);
         }
 
         return splitFiles;
     }
 
+    /**
+     * Split again, on their own, the parts that are over the size limit. The other parts are kept as they are, so an
+     * estimate that was slightly off only costs the encoding of the parts concerned. Sub-parts are made the same way
+     * as the part they replace.
+     */
+    private static List<AudioFile> splitOversizedParts(List<AudioFile> parts, long maxSizeInBytes, SilenceMap silenceMap,
+                                                       int depth) throws IOException {
+        List<AudioFile> fittingParts = new ArrayList<>();
+
+        for (AudioFile part : parts) {
+            if (part.getFileSize() <= maxSizeInBytes) {
+                fittingParts.add(part);
+                continue;
+            }
+
+            if (depth >= MAX_RESPLIT_DEPTH) {
+                throw new IOException("Error splitting audio file: part " + part.getFilePath() + " is still "
+                        + part.getFileSize() + " bytes after " + depth + " attempts");
+            }
+
+            double sizeMargin = part.getEncodingProfile() == null
+                    ? SplitPlanner.COPIED_PART_SIZE_MARGIN
+                    : SplitPlanner.TRANSCODED_PART_SIZE_MARGIN;
+            int numberOfSubParts = Math.max(2, SplitPlanner.countParts(part.getFileSize(), maxSizeInBytes * sizeMargin, SilenceMap.EMPTY));
+            List<Double> splitTimes = SplitPlanner.computeSplitTimes(part.getStartTime(), part.getDuration(), numberOfSubParts, silenceMap);
+
+            String partPathWithoutExtension = part.getFilePath().replaceFirst("[.][^.]+$", "");
+            String extension = part.getFilePath().substring(partPathWithoutExtension.length());
+            List<AudioFile> subParts = new ArrayList<>();
+            for (int i = 0; i < numberOfSubParts; i++) {
+                double startTime = i == 0 ? part.getStartTime() : splitTimes.get(i - 1);
+                double endTime = i == numberOfSubParts - 1 ? part.getStartTime() + part.getDuration() : splitTimes.get(i);
+
+                AudioFile subPart = new AudioFile();
+                subPart.setFilePath(partPathWithoutExtension + "-" + (i + 1) + extension);
+                subPart.setFileType(FileType.AUDIO);
+                subPart.setSourceFilePath(part.getSourceFilePath());
+                subPart.setStartTime(startTime);
+                subPart.setDuration(endTime - startTime);
+                subPart.setEncodingProfile(part.getEncodingProfile());
+                subPart.setTempoFactor(part.getTempoFactor());
+                subParts.add(subPart);
+            }
+
+            deleteEncodedAudioFilePart(part);
+            for (AudioFile subPart : subParts) {
+                cutAudioFilePart(subPart);
+            }
+            fittingParts.addAll(splitOversizedParts(subParts, maxSizeInBytes, silenceMap, depth + 1));
+        }
+
+        return fittingParts;
+    }
+
+    /**
+     * Plan the parts an audio file has to be split into to respect maxSizeInBytes, without running ffmpeg. Each planned
+     * part knows where it is cut from and where it will be written, and is created on disk later by
+     * {@link #encodeAudioFilePart(AudioFile, long)}. Its size is unknown until then. The parts are always encoded with
+     * the upload profile, and their number is estimated from its bitrate (see {@link SplitPlanner}).
+     *
+     * @param audioFile      The audio file to split.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param temporaryWorkspace Temporary directory for generated files.
+     * @param encodingProfile How the parts are encoded.
+     * @return The planned parts, or the audio file itself if it does not need to be split.
+     */
+    public static List<AudioFile> planAudioFileSplit(AudioFile audioFile, long maxSizeInBytes, Path temporaryWorkspace,
+                                                     EncodingProfile encodingProfile) {
+        return planAudioFileSplit(audioFile, maxSizeInBytes, temporaryWorkspace, encodingProfile, 1, SilenceMap.EMPTY);
+    }
+
+    /**
+     * Same as {@link #planAudioFileSplit(AudioFile, long, Path, EncodingProfile)}, with the audio sped up by the tempo
+     * factor and the split points moved into the nearest pause of the silence map, when there is one close enough.
+     * When the tempo is changed, a part is planned even if the audio file fits the limit.
+     *
+     * @param audioFile      The audio file to split.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param temporaryWorkspace Temporary directory for generated files.
+     * @param encodingProfile How the parts are encoded.
+     * @param tempoFactor    Speed-up applied to the parts (1 to keep the original speed).
+     * @param silenceMap     Pauses of the audio file.
+     * @return The planned parts, or the audio file itself if it does not need to be split.
+     */
+    public static List<AudioFile> planAudioFileSplit(AudioFile audioFile, long maxSizeInBytes, Path temporaryWorkspace,
+                                                     EncodingProfile encodingProfile, double tempoFactor,
+                                                     SilenceMap silenceMap) {
+        List<AudioFile> plannedParts = new ArrayList<>();
+
+        if (audioFile.getFileSize() <= maxSizeInBytes && tempoFactor == 1) {
+            plannedParts.add(audioFile);
+            return plannedParts;
+        }
+
+        // Calculate the number of parts needed
+        int numberOfParts = SplitPlanner.countTranscodedParts(audioFile.getDuration() / tempoFactor, maxSizeInBytes,
+                encodingProfile, silenceMap);
+        return planAudioFileParts(audioFile, numberOfParts, temporaryWorkspace, encodingProfile.getExtension(),
+                encodingProfile, tempoFactor, silenceMap);
+    }
+
+    /**
+     * Plan the given number of parts of an audio file, with the split points moved into pauses when possible. The
+     * parts are encoded with the given profile, or copied from the source when it is null.
+     */
+    private static List<AudioFile> planAudioFileParts(AudioFile audioFile, int numberOfParts, Path temporaryWorkspace,
+                                                      String extension, EncodingProfile encodingProfile,
+                                                      double tempoFactor, SilenceMap silenceMap) {
+        List<AudioFile> plannedParts = new ArrayList<>();
+        List<Double> splitTimes = SplitPlanner.computeSplitTimes(0, audioFile.getDuration(), numberOfParts, silenceMap);
+
+        String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
+        for (int i = 0; i < numberOfParts; i++) {
+            double startTime = i == 0 ? 0 : splitTimes.get(i - 1);
+            double endTime = i == numberOfParts - 1 ? audioFile.getDuration() : splitTimes.get(i);
+
+            AudioFile plannedPart = new AudioFile();
+            plannedPart.setFilePath(temporaryWorkspace.resolve(baseName + "-part" + (i + 1) + "." + extension).toString());
+            plannedPart.setFileType(FileType.AUDIO);
+            plannedPart.setSourceFilePath(audioFile.getFilePath());
+            plannedPart.setStartTime(startTime);
+            plannedPart.setDuration(endTime - startTime);
+            plannedPart.setEncodingProfile(encodingProfile);
+            plannedPart.setTempoFactor(tempoFactor);
+
+            plannedParts.add(plannedPart);
+        }
+
+        return plannedParts;
+    }
+
+    /**
+     * Write a part planned by {@link #planAudioFileSplit(AudioFile, long, Path, EncodingProfile)} to disk and set its
+     * size, encoded with the profile of the part or copied when it has none. ffmpeg writes
+     * to a hidden file that is renamed once it is complete, so a part file that exists is never truncated, even after a
+     * crash. Parts that are not cut from another file are left untouched.
+     * <p>
+     * The size of a planned part is only estimated, so a part that turns out to be over the limit is split again on
+     * its own, like the parts of {@link #splitAudioFileBySize(AudioFile, long, Path, EncodingProfile)}, and replaced
+     * by its sub-parts.
+     *
+     * @param plannedPart    The part to encode.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @return The part, or the sub-parts that replace it if it was over the limit, in playback order.
+     * @throws IOException If an error occurs while encoding the part.
+     */
+    public static List<AudioFile> encodeAudioFilePart(AudioFile plannedPart, long maxSizeInBytes) throws IOException {
+        List<AudioFile> encodedParts = new ArrayList<>();
+        encodedParts.add(plannedPart);
+        if (!isGeneratedPart(plannedPart)) {
+            return encodedParts;
+        }
+
+        cutAudioFilePart(plannedPart);
+        return splitOversizedParts(encodedParts, maxSizeInBytes, SilenceMap.EMPTY, 0);
+    }
+
+    /**
+     * Cut planned parts, as many at a time as there are cores. The parts already written are deleted if one of them
+     * cannot be.
+     *
+     * @return The parts, now written.
+     */
+    private static List<AudioFile> cutAudioFileParts(List<AudioFile> parts) throws IOException {
+        int threadCount = Math.min(parts.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> cuts = new ArrayList<>();
+            for (AudioFile part : parts) {
+                cuts.add(executor.submit(() -> {
+                    cutAudioFilePart(part);
+                    return null;
+                }));
+            }
+            for (Future<?> cut : cuts) {
+                cut.get();
+            }
+            return parts;
+        } catch (InterruptedException | ExecutionException e) {
+            // Stop the other cuts before their files are deleted
+            executor.shutdownNow();
+            executor.close();
+            deleteGeneratedFiles(parts.stream().map(part -> Paths.get(part.getFilePath())).toList());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Error splitting audio file: interrupted", e);
+            }
+            throw e.getCause() instanceof IOException ioException
+                    ? ioException
+                    : new IOException("Error splitting audio file", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void cutAudioFilePart(AudioFile part) throws IOException {
+        Path outputPath = Paths.get(part.getFilePath());
+        Path partialOutputPath = outputPath.resolveSibling("." + outputPath.getFileName());
+
+        WavFormat wavFormat = part.getEncodingProfile() == EncodingProfile.WAV_MONO && part.getTempoFactor() == 1
+                ? readWavFile(part.getSourceFilePath())
+                : null;
+        if (wavFormat != null) {
+            try {
+                WavFileReader.writeMonoPart(Paths.get(part.getSourceFilePath()), wavFormat, part.getStartTime(),
+                        part.getDuration(), part.getEncodingProfile().getSampleRate(), partialOutputPath);
+                Files.move(partialOutputPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partialOutputPath);
+            }
+            part.setFileSize(Files.size(outputPath));
+            return;
+        }
+
+        ProcessBuilder processBuilder = part.getEncodingProfile() == null
+                ? FfmpegProcessHelper.createCopyAudioPartProcessBuilder(
+                        part.getSourceFilePath(), partialOutputPath.toString(), part.getStartTime(), part.getDuration())
+                : FfmpegProcessHelper.createCutAudioProcessBuilder(
+                        part.getSourceFilePath(), partialOutputPath.toString(), part.getStartTime(), part.getDuration(),
+                        part.getEncodingProfile(), part.getTempoFactor());
+        Process process = processBuilder.start();
+
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Error splitting audio file: ffmpeg exit code " + exitCode);
+            }
+            Files.move(partialOutputPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Error splitting audio file: ffmpeg process was interrupted", e);
+        } finally {
+            Files.deleteIfExists(partialOutputPath);
+        }
+
+        part.setFileSize(Files.size(outputPath));
+    }
+
+    /**
+     * Delete the file of a part written by {@link #encodeAudioFilePart(AudioFile, long)}. Parts that are not cut from
+     * another file are never deleted.
+     *
+     * @param plannedPart The part whose file is no longer needed.
+     */
+    public static void deleteEncodedAudioFilePart(AudioFile plannedPart) {
+        if (isGeneratedPart(plannedPart)) {
+            deleteGeneratedFiles(List.of(Paths.get(plannedPart.getFilePath())));
+        }
+    }
+
+    private static void deleteSegmentFiles(Path temporaryWorkspace, String baseName, String extension) {
+        List<Path> generatedPaths = new ArrayList<>();
+        for (int i = 1; Files.exists(temporaryWorkspace.resolve(baseName + "-part" + i + "." + extension)); i++) {
+            generatedPaths.add(temporaryWorkspace.resolve(baseName + "-part" + i + "." + extension));
+        }
+        deleteGeneratedFiles(generatedPaths);
+    }
+
+    private static boolean isGeneratedPart(AudioFile audioFile) {
+        return audioFile.getStorage() == AudioFileStorage.FILE && audioFile.getSourceFilePath() != null;
+    }
+
+    /**
+     * Plan the parts of an audio (or video) file for streaming upload. No ffmpeg process is run here and nothing is
+     * written to disk: each part is encoded by ffmpeg while it is being uploaded (see
+     * {@link AudioFileStorage#FFMPEG_STREAM}). Since the encoded size is only known once the part has been uploaded,
+     * the number of parts is estimated from the output bitrate, and the size limit is enforced during the upload.
+     *
+     * @param audioFile      The audio file to split. It may also be a video file.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param encodingProfile How the parts are encoded.
+     * @return The planned parts, or the audio file itself if it can be uploaded as it is.
+     */
+    public static List<AudioFile> splitAudioFileForStreaming(AudioFile audioFile, long maxSizeInBytes,
+                                                             EncodingProfile encodingProfile) {
+        return splitAudioFileForStreaming(audioFile, maxSizeInBytes, encodingProfile, 1, SilenceMap.EMPTY);
+    }
+
+    /**
+     * Same as {@link #splitAudioFileForStreaming(AudioFile, long, EncodingProfile)}, with the audio sped up by the
+     * tempo factor and the split points moved into the nearest pause of the silence map, when there is one close
+     * enough. When the tempo is changed, the audio is streamed through ffmpeg even if it fits the limit.
+     *
+     * @param audioFile      The audio file to split. It may also be a video file.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param encodingProfile How the parts are encoded.
+     * @param tempoFactor    Speed-up applied to the parts (1 to keep the original speed).
+     * @param silenceMap     Pauses of the audio file.
+     * @return The planned parts, or the audio file itself if it can be uploaded as it is.
+     */
+    public static List<AudioFile> splitAudioFileForStreaming(AudioFile audioFile, long maxSizeInBytes,
+                                                             EncodingProfile encodingProfile, double tempoFactor,
+                                                             SilenceMap silenceMap) {
+        List<AudioFile> streamedParts = new ArrayList<>();
+
+        if (audioFile.getFileType() == FileType.AUDIO && audioFile.getFileSize() <= maxSizeInBytes && tempoFactor == 1) {
+            streamedParts.add(audioFile);
+            return streamedParts;
+        }
+
+        int numberOfParts = SplitPlanner.countTranscodedParts(audioFile.getDuration() / tempoFactor, maxSizeInBytes,
+                encodingProfile, silenceMap);
+        List<Double> splitTimes = SplitPlanner.computeSplitTimes(0, audioFile.getDuration(), numberOfParts, silenceMap);
+
+        String baseName = getFileNameWithoutExtension(audioFile.getFilePath());
+        for (int i = 0; i < numberOfParts; i++) {
+            double startTime = i == 0 ? 0 : splitTimes.get(i - 1);
+            double endTime = i == numberOfParts - 1 ? audioFile.getDuration() : splitTimes.get(i);
+
+            AudioFile streamedPart = new AudioFile();
+            streamedPart.setFilePath(baseName + "-part" + (i + 1) + "." + encodingProfile.getExtension());
+            streamedPart.setFileType(FileType.AUDIO);
+            streamedPart.setStorage(AudioFileStorage.FFMPEG_STREAM);
+            streamedPart.setSourceFilePath(audioFile.getFilePath());
+            streamedPart.setStartTime(startTime);
+            streamedPart.setDuration(endTime - startTime);
+            streamedPart.setFileSize(maxSizeInBytes);
+            streamedPart.setEncodingProfile(encodingProfile);
+            streamedPart.setTempoFactor(tempoFactor);
+
+            streamedParts.add(streamedPart);
+        }
+
+        return streamedParts;
+    }
+
+    private static AudioCodecInfo probeAudioCodecInfo(AudioFile audioFile) {
+        MediaInfo mediaInfo = audioFile.getMediaInfo();
+        if (mediaInfo != null && mediaInfo.hasAudio()) {
+            return mediaInfo.getAudioCodecInfo();
+        }
+
+        try {
+            return getAudioCodecInfo(audioFile.getFilePath());
+        } catch (IOException e) {
+            // Without a probe, encoding the parts is always possible.
+            return null;
+        }
+    }
+
+    /**
+     * Read an MP3 file with {@link Mp3FrameIndexer}, without indexing its frames.
+     *
+     * @return What was read, or null if the file does not have the MP3 extension or could not be read as MP3 frames.
+     */
+    private static Mp3FrameIndex probeMp3File(String audioFilePath) {
+        if (!isMp3FilePath(audioFilePath)) {
+            return null;
+        }
+
+        try {
+            return Mp3FrameIndexer.probe(Paths.get(audioFilePath));
+        } catch (IOException e) {
+            // Not a plain stream of MPEG audio frames after all: ffprobe knows more containers.
+            return null;
+        }
+    }
+
+    /**
+     * Read the header of a WAV file with {@link WavFileReader}.
+     *
+     * @return The format of the file, or null if it does not have the WAV extension or holds samples it cannot read.
+     */
+    private static WavFormat readWavFile(String audioFilePath) {
+        if (!audioFilePath.toLowerCase(Locale.ROOT).endsWith(".wav")) {
+            return null;
+        }
+
+        try {
+            return WavFileReader.read(Paths.get(audioFilePath));
+        } catch (IOException e) {
+            // Compressed or unusual samples: ffmpeg reads them.
+            return null;
+        }
+    }
+
+    private static boolean isMp3FilePath(String filePath) {
+        return filePath.toLowerCase(Locale.ROOT).endsWith(".mp3");
+    }
+
     private static void deleteGeneratedFiles(List<Path> generatedPaths) {
         for (Path generatedPath : generatedPaths) {
             try {
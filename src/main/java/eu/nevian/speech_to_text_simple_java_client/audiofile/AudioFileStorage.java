@@ -0,0 +1,23 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * Where the audio content of an {@link AudioFile} comes from when it is uploaded.
+ */
+public enum AudioFileStorage {
+    /** The audio is a regular file at {@link AudioFile#getFilePath()}. */
+    FILE,
+
+    /**
+     * The audio is not stored anywhere: ffmpeg encodes it from {@link AudioFile#getSourceFilePath()} while it is being
+     * uploaded. {@link AudioFile#getFilePath()} only provides the file name sent to the API.
+     */
+    FFMPEG_STREAM,
+
+    /**
+     * The audio is a range of bytes of {@link AudioFile#getSourceFilePath()}, starting at
+     * {@link AudioFile#getByteOffset()} and {@link AudioFile#getFileSize()} bytes long, uploaded as it is. The range
+     * holds whole frames, so it is a valid file of the same format. {@link AudioFile#getFilePath()} only provides the
+     * file name sent to the API.
+     */
+    BYTE_RANGE
+}
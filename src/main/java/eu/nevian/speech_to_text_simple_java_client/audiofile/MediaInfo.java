@@ -0,0 +1,42 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * What a single inspection of a media file found: its container, and its first audio stream. Built by
+ * {@link AudioFileHelper#inspectMediaFile(String)}.
+ *
+ * @param formatName                  ffprobe name of the container (for example {@code mp3} or
+ *                                    {@code mov,mp4,m4a,3gp,3g2,mj2}).
+ * @param durationInSeconds           Duration of the file.
+ * @param sizeInBytes                 Size of the file.
+ * @param bitRateInBitsPerSecond      Bitrate of the whole file, or 0 if unknown.
+ * @param audioStreamCount            Number of audio streams.
+ * @param videoStreamCount            Number of video streams, not counting cover art.
+ * @param audioCodecName              ffprobe name of the codec of the first audio stream, or an empty string if there
+ *                                    is none.
+ * @param audioBitRateInBitsPerSecond Bitrate of the first audio stream, or 0 if the container does not store it.
+ * @param sampleRate                  Sample rate of the first audio stream, in Hz, or 0 if unknown.
+ * @param channels                    Number of channels of the first audio stream, or 0 if unknown.
+ */
+public record MediaInfo(String formatName, double durationInSeconds, long sizeInBytes, long bitRateInBitsPerSecond,
+                        int audioStreamCount, int videoStreamCount, String audioCodecName,
+                        long audioBitRateInBitsPerSecond, int sampleRate, int channels) {
+
+    public boolean hasAudio() {
+        return audioStreamCount > 0;
+    }
+
+    public boolean hasVideo() {
+        return videoStreamCount > 0;
+    }
+
+    /**
+     * Returns the codec and bitrate of the first audio stream. The bitrate of the whole file is used for containers
+     * that do not store a per-stream bitrate (Ogg, for instance).
+     *
+     * @return The codec and bitrate.
+     */
+    public AudioCodecInfo getAudioCodecInfo() {
+        return new AudioCodecInfo(audioCodecName,
+                audioBitRateInBitsPerSecond > 0 ? audioBitRateInBitsPerSecond : bitRateInBitsPerSecond);
+    }
+}
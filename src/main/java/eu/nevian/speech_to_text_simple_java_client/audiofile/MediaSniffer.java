@@ -0,0 +1,210 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tells audio from video by the signature of the container, read from the first bytes of the file. Only a few KB are
+ * read, and nothing is loaded besides this class, so it is much cheaper than a Tika detector for the formats it knows.
+ * <p>
+ * Containers that may hold either (MP4, Matroska, ASF) are taken for video unless their brand or extension says they
+ * are audio only: extracting the audio of an audio file works, it only costs an extra ffmpeg run.
+ */
+public final class MediaSniffer {
+    private static final int SNIFFED_LENGTH = 4 * 1024;
+
+    private static final int MPEG_TS_PACKET_SIZE = 188;
+
+    private static final int ADTS_HEADER_SIZE = 7;
+
+    /** Sample rate indexes 13 to 15 of ADTS headers are reserved. */
+    private static final int ADTS_MAX_SAMPLE_RATE_INDEX = 12;
+
+    /** Major brands of MP4 files that only hold audio. */
+    private static final Set<String> MP4_AUDIO_BRANDS = Set.of("M4A ", "M4B ", "M4P ", "F4A ", "F4B ");
+
+    /** Top-level atoms a QuickTime file without an ftyp atom may start with. */
+    private static final Set<String> QUICKTIME_ATOMS = Set.of("moov", "mdat", "wide", "free", "skip", "pnot");
+
+    /** Extensions of audio-only Matroska and ASF files. */
+    private static final Set<String> AUDIO_ONLY_EXTENSIONS = Set.of("mka", "weba", "wma");
+
+    private static final byte[] MATROSKA_SIGNATURE = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+    private static final byte[] ASF_SIGNATURE = {0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11};
+    private static final byte[] MPEG_PS_SIGNATURE = {0x00, 0x00, 0x01, (byte) 0xBA};
+
+    /**
+     * Private constructor to prevent instantiation. All methods are static.
+     */
+    private MediaSniffer() {
+    }
+
+    /**
+     * Reads the first bytes of a file and tells if it is an audio or a video file. Recognized containers: MP3 (with or
+     * without an ID3v2 tag), ADTS AAC, WAV (RIFF, RF64, BW64), AIFF, FLAC, Ogg, CAF, AMR, Sun AU, MP4, M4A, 3GP,
+     * QuickTime, Matroska, WebM, ASF (WMA, WMV), AVI, FLV and MPEG program and transport streams.
+     *
+     * @param filePath Path to the file.
+     * @return The type of the file, or null if its signature is not one of the known containers.
+     * @throws IOException If the file cannot be read.
+     */
+    public static FileType sniff(Path filePath) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SNIFFED_LENGTH);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            // Read until the buffer is full or the file ends, reads may be short
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+        }
+        header.flip();
+
+        return sniff(header, getExtension(filePath));
+    }
+
+    private static FileType sniff(ByteBuffer header, String extension) {
+        if (header.remaining() < 4) {
+            return null;
+        }
+
+        String firstId = readId(header, 0);
+        String secondId = header.remaining() >= 12 ? readId(header, 8) : "";
+
+        if (firstId.startsWith("ID3") || isMpegAudioStream(header) || isAdtsStream(header)) {
+            // ID3v2 tags are written before MP3 and ADTS AAC streams
+            return FileType.AUDIO;
+        }
+        if (firstId.equals("RIFF") || firstId.equals("RF64") || firstId.equals("BW64")) {
+            if (secondId.equals("WAVE")) {
+                return FileType.AUDIO;
+            }
+            return secondId.equals("AVI ") ? FileType.VIDEO : null;
+        }
+        if (firstId.equals("FORM")) {
+            return secondId.equals("AIFF") || secondId.equals("AIFC") ? FileType.AUDIO : null;
+        }
+        if (firstId.equals("fLaC") || firstId.equals("caff") || firstId.equals(".snd") || firstId.equals("#!AM")) {
+            return FileType.AUDIO;
+        }
+        if (firstId.equals("OggS")) {
+            // The first pages hold the identification headers of the streams
+            return containsAscii(header, "theora") ? FileType.VIDEO : FileType.AUDIO;
+        }
+        if (header.remaining() >= 8) {
+            String atomType = readId(header, 4);
+            if (atomType.equals("ftyp")) {
+                return MP4_AUDIO_BRANDS.contains(secondId) ? FileType.AUDIO : FileType.VIDEO;
+            }
+            if (QUICKTIME_ATOMS.contains(atomType)) {
+                return FileType.VIDEO;
+            }
+        }
+        if (startsWith(header, MATROSKA_SIGNATURE) || startsWith(header, ASF_SIGNATURE)) {
+            return AUDIO_ONLY_EXTENSIONS.contains(extension) ? FileType.AUDIO : FileType.VIDEO;
+        }
+        if (firstId.startsWith("FLV") || startsWith(header, MPEG_PS_SIGNATURE) || isMpegTransportStream(header)) {
+            return FileType.VIDEO;
+        }
+
+        return null;
+    }
+
+    /**
+     * MP3 (and MP2) streams start with a frame header: 11 set bits, then valid version, layer, bitrate and sample rate
+     * fields. The sync bits alone are found in much else, a UTF-16 byte order mark for one, so the header is only
+     * trusted if another one follows it where the frame ends.
+     */
+    private static boolean isMpegAudioStream(ByteBuffer header) {
+        return Mp3FrameIndexer.isConfirmedFrameAt(header, 0);
+    }
+
+    /**
+     * ADTS AAC streams start with a header of 12 set bits and layer bits at 0, which holds the length of the frame. It
+     * is only trusted if its sample rate index is valid and another header follows at the end of the frame.
+     */
+    private static boolean isAdtsStream(ByteBuffer header) {
+        int frameLength = readAdtsFrameLength(header, 0);
+        if (frameLength < ADTS_HEADER_SIZE) {
+            return false;
+        }
+        // A file of a single frame has nothing after it
+        return frameLength == header.remaining() || readAdtsFrameLength(header, frameLength) >= ADTS_HEADER_SIZE;
+    }
+
+    /**
+     * Returns the length of the ADTS frame whose header starts at an offset, or -1 if there is no valid header there.
+     */
+    private static int readAdtsFrameLength(ByteBuffer header, int offset) {
+        if (offset + ADTS_HEADER_SIZE > header.remaining()) {
+            return -1;
+        }
+
+        int secondByte = header.get(offset + 1) & 0xFF;
+        int sampleRateIndex = (header.get(offset + 2) >> 2) & 0x0F;
+        if ((header.get(offset) & 0xFF) != 0xFF || (secondByte & 0xF6) != 0xF0
+                || sampleRateIndex > ADTS_MAX_SAMPLE_RATE_INDEX) {
+            return -1;
+        }
+
+        // 13 bits, header included
+        return (header.get(offset + 3) & 0x03) << 11 | (header.get(offset + 4) & 0xFF) << 3
+                | (header.get(offset + 5) & 0xFF) >> 5;
+    }
+
+    /** Transport streams are 188-byte packets that all start with the 0x47 sync byte. */
+    private static boolean isMpegTransportStream(ByteBuffer header) {
+        if (header.remaining() < 2 * MPEG_TS_PACKET_SIZE + 1) {
+            return false;
+        }
+        for (int offset = 0; offset <= 2 * MPEG_TS_PACKET_SIZE; offset += MPEG_TS_PACKET_SIZE) {
+            if (header.get(offset) != 0x47) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(ByteBuffer header, byte[] signature) {
+        if (header.remaining() < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header.get(i) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAscii(ByteBuffer header, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        for (int offset = 0; offset + bytes.length <= header.remaining(); offset++) {
+            if (Arrays.equals(header.array(), offset, offset + bytes.length, bytes, 0, bytes.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readId(ByteBuffer header, int offset) {
+        byte[] id = new byte[4];
+        header.get(offset, id);
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String getExtension(Path filePath) {
+        String fileName = filePath.getFileName() != null ? filePath.getFileName().toString() : "";
+        int extensionSeparatorIndex = fileName.lastIndexOf('.');
+        return extensionSeparatorIndex >= 0 ? fileName.substring(extensionSeparatorIndex + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
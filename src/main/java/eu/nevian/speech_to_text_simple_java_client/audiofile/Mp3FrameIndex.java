@@ -0,0 +1,28 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * What {@link Mp3FrameIndexer} found in an MP3 file.
+ *
+ * @param durationInSeconds      Duration of the audio.
+ * @param bitRateInBitsPerSecond Average bitrate of the audio frames.
+ * @param sampleRate             Sample rate, in Hz.
+ * @param samplesPerFrame        Number of samples decoded from each frame.
+ * @param channels               Number of channels (1 or 2).
+ * @param firstFrameOffset       Offset, in bytes, of the first audio frame (after the ID3v2 tag and the Xing or VBRI
+ *                               frame, if any).
+ * @param audioDataEnd           Offset, in bytes, of the end of the last audio frame (before the ID3v1 tag, if any).
+ * @param frameOffsets           Offset of every audio frame, in playback order, or an empty array if the frames were
+ *                               not indexed. The array is not copied: it must not be modified.
+ */
+public record Mp3FrameIndex(double durationInSeconds, long bitRateInBitsPerSecond, int sampleRate, int samplesPerFrame,
+                            int channels, long firstFrameOffset, long audioDataEnd, long[] frameOffsets) {
+
+    /**
+     * Returns the duration of a single frame.
+     *
+     * @return Duration in seconds.
+     */
+    public double getFrameDurationInSeconds() {
+        return (double) samplesPerFrame / sampleRate;
+    }
+}
@@ -0,0 +1,395 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the duration and bitrate of an MP3 file from its frame headers, without starting ffprobe. The file is memory
+ * mapped and only a few bytes of each frame are read.
+ * <p>
+ * The duration comes from the cheapest source available:
+ * <ol>
+ *     <li>the Xing (or LAME Info) or VBRI header that encoders write in the first frame, which holds the number of
+ *     frames;</li>
+ *     <li>for a file without such a header whose first frames all have the same bitrate, the size of the audio data
+ *     divided by that bitrate (constant bitrate);</li>
+ *     <li>otherwise, a walk over every frame header.</li>
+ * </ol>
+ * {@link #index(Path)} always walks the frames, and also returns the offset of each one.
+ */
+public final class Mp3FrameIndexer {
+    private static final int FRAME_HEADER_SIZE = 4;
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int ID3V1_TAG_SIZE = 128;
+    private static final int APE_TAG_FOOTER_SIZE = 32;
+
+    /** Bytes searched for the first frame after the ID3v2 tag before the file is taken for something else than MP3. */
+    private static final int MAX_SYNC_SEARCH_LENGTH = 64 * 1024;
+
+    /**
+     * Frames that must have the same bitrate for a file without a Xing or VBRI header to be taken for a constant
+     * bitrate file. VBR encoders change the bitrate within the first few frames.
+     */
+    private static final int CONSTANT_BIT_RATE_CHECKED_FRAMES = 64;
+
+    /** Bitrates in kbit/s, by table (see {@link #bitRateTable}) and bitrate index. Index 0 is the free format. */
+    private static final int[][] BIT_RATES_IN_KBPS = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // MPEG 1 Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // MPEG 1 Layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // MPEG 1 Layer III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // MPEG 2 and 2.5 Layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}          // MPEG 2 and 2.5 Layers II and III
+    };
+
+    /** Sample rates in Hz, by version bits (MPEG 2.5, reserved, MPEG 2, MPEG 1) and sample rate index. */
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},
+            {},
+            {22050, 24000, 16000},
+            {44100, 48000, 32000}
+    };
+
+    /**
+     * Private constructor to prevent instantiation. All methods are static.
+     */
+    private Mp3FrameIndexer() {
+    }
+
+    /**
+     * Reads the duration and bitrate of an MP3 file, from its Xing or VBRI header when it has one. The frames are not
+     * indexed.
+     *
+     * @param filePath Path to the MP3 file.
+     * @return Duration and bitrate of the file, with an empty frame offset array.
+     * @throws IOException If the file cannot be read or is not an MPEG audio file.
+     */
+    public static Mp3FrameIndex probe(Path filePath) throws IOException {
+        return read(filePath, false);
+    }
+
+    /**
+     * Walks every frame of an MP3 file and records where each one starts. The Xing or VBRI frame, which holds no
+     * audio, is not part of the index.
+     *
+     * @param filePath Path to the MP3 file.
+     * @return Duration, bitrate and frame offsets of the file.
+     * @throws IOException If the file cannot be read or is not an MPEG audio file.
+     */
+    public static Mp3FrameIndex index(Path filePath) throws IOException {
+        return read(filePath, true);
+    }
+
+    private static Mp3FrameIndex read(Path filePath, boolean indexFrames) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Error reading MP3 frames: " + filePath + " is too large to be mapped");
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+            return read(buffer, indexFrames, filePath);
+        }
+    }
+
+    private static Mp3FrameIndex read(ByteBuffer buffer, boolean indexFrames, Path filePath) throws IOException {
+        int audioDataStart = skipId3v2Tags(buffer);
+        int audioDataEnd = findAudioDataEnd(buffer, audioDataStart);
+
+        int firstFrameOffset = findFirstFrame(buffer, audioDataStart, audioDataEnd);
+        if (firstFrameOffset < 0) {
+            throw new IOException("Error reading MP3 frames: no MPEG audio frame found in " + filePath);
+        }
+
+        FrameHeader firstFrame = parseFrameHeader(buffer, firstFrameOffset);
+        long headerFrameCount = readVbrHeaderFrameCount(buffer, firstFrameOffset, firstFrame);
+        // The Xing or VBRI frame is silent: the audio starts with the next one
+        int firstAudioFrameOffset = headerFrameCount >= 0 ? firstFrameOffset + firstFrame.frameLength() : firstFrameOffset;
+
+        if (indexFrames) {
+            return scanFrames(buffer, firstAudioFrameOffset, audioDataEnd, firstFrame, true);
+        }
+
+        long audioDataLength = audioDataEnd - firstAudioFrameOffset;
+        if (headerFrameCount > 0) {
+            double duration = (double) headerFrameCount * firstFrame.samplesPerFrame() / firstFrame.sampleRate();
+            return new Mp3FrameIndex(duration, Math.round(audioDataLength * 8 / duration), firstFrame.sampleRate(),
+                    firstFrame.samplesPerFrame(), firstFrame.channels(), firstAudioFrameOffset, audioDataEnd, new long[0]);
+        }
+
+        int constantBitRate = findConstantBitRate(buffer, firstAudioFrameOffset, audioDataEnd, firstFrame);
+        if (constantBitRate > 0) {
+            double duration = audioDataLength * 8.0 / constantBitRate;
+            return new Mp3FrameIndex(duration, constantBitRate, firstFrame.sampleRate(), firstFrame.samplesPerFrame(),
+                    firstFrame.channels(), firstAudioFrameOffset, audioDataEnd, new long[0]);
+        }
+
+        return scanFrames(buffer, firstAudioFrameOffset, audioDataEnd, firstFrame, false);
+    }
+
+    /**
+     * Walks the frames from one to the next, skipping any garbage between them.
+     */
+    private static Mp3FrameIndex scanFrames(ByteBuffer buffer, int startOffset, int endOffset, FrameHeader firstFrame,
+                                            boolean recordOffsets) throws IOException {
+        long[] frameOffsets = new long[recordOffsets ? (endOffset - startOffset) / firstFrame.frameLength() + 16 : 0];
+        int frameCount = 0;
+        long audioBytes = 0;
+        int lastFrameEnd = startOffset;
+
+        int offset = startOffset;
+        while (offset + FRAME_HEADER_SIZE <= endOffset) {
+            FrameHeader frame = parseFrameHeader(buffer, offset);
+            if (frame == null || !frame.isSameStreamAs(firstFrame)) {
+                offset = findNextFrame(buffer, offset + 1, endOffset, firstFrame);
+                if (offset < 0) {
+                    break;
+                }
+                continue;
+            }
+
+            if (offset + frame.frameLength() > endOffset) {
+                // Truncated last frame: decoders drop it
+                break;
+            }
+
+            if (recordOffsets) {
+                if (frameCount == frameOffsets.length) {
+                    frameOffsets = Arrays.copyOf(frameOffsets, frameOffsets.length * 2);
+                }
+                frameOffsets[frameCount] = offset;
+            }
+            frameCount++;
+            audioBytes += frame.frameLength();
+            offset += frame.frameLength();
+            lastFrameEnd = offset;
+        }
+
+        if (frameCount == 0) {
+            throw new IOException("Error reading MP3 frames: the file holds no complete audio frame");
+        }
+
+        double duration = (double) frameCount * firstFrame.samplesPerFrame() / firstFrame.sampleRate();
+        return new Mp3FrameIndex(duration, Math.round(audioBytes * 8 / duration), firstFrame.sampleRate(),
+                firstFrame.samplesPerFrame(), firstFrame.channels(), startOffset, lastFrameEnd,
+                recordOffsets ? Arrays.copyOf(frameOffsets, frameCount) : new long[0]);
+    }
+
+    /**
+     * Returns the bitrate shared by the first frames, or 0 if they do not all have the same one.
+     */
+    private static int findConstantBitRate(ByteBuffer buffer, int startOffset, int endOffset, FrameHeader firstFrame) {
+        int bitRate = 0;
+        int offset = startOffset;
+        for (int i = 0; i < CONSTANT_BIT_RATE_CHECKED_FRAMES && offset + FRAME_HEADER_SIZE <= endOffset; i++) {
+            FrameHeader frame = parseFrameHeader(buffer, offset);
+            if (frame == null || !frame.isSameStreamAs(firstFrame)) {
+                return 0;
+            }
+            if (bitRate != 0 && frame.bitRate() != bitRate) {
+                return 0;
+            }
+            bitRate = frame.bitRate();
+            offset += frame.frameLength();
+        }
+        return bitRate;
+    }
+
+    /**
+     * Reads the number of audio frames from the Xing, Info or VBRI header of the first frame.
+     *
+     * @return The number of frames, 0 if the header does not hold it, or -1 if the first frame is an audio frame.
+     */
+    private static long readVbrHeaderFrameCount(ByteBuffer buffer, int frameOffset, FrameHeader frame) {
+        if (frame.layer() != 3) {
+            return -1;
+        }
+
+        // The Xing header follows the side information, whose size depends on the version and channel mode
+        int sideInformationSize = frame.isMpeg1() ? (frame.isMono() ? 17 : 32) : (frame.isMono() ? 9 : 17);
+        int xingOffset = frameOffset + FRAME_HEADER_SIZE + sideInformationSize;
+        if (hasTag(buffer, xingOffset, "Xing") || hasTag(buffer, xingOffset, "Info")) {
+            if (xingOffset + 12 > buffer.limit()) {
+                return 0;
+            }
+            int flags = buffer.getInt(xingOffset + 4);
+            return (flags & 0x1) != 0 ? Integer.toUnsignedLong(buffer.getInt(xingOffset + 8)) : 0;
+        }
+
+        // The VBRI header always sits 32 bytes after the frame header
+        int vbriOffset = frameOffset + FRAME_HEADER_SIZE + 32;
+        if (hasTag(buffer, vbriOffset, "VBRI")) {
+            if (vbriOffset + 18 > buffer.limit()) {
+                return 0;
+            }
+            return Integer.toUnsignedLong(buffer.getInt(vbriOffset + 14));
+        }
+
+        return -1;
+    }
+
+    private static int skipId3v2Tags(ByteBuffer buffer) {
+        int offset = 0;
+        while (hasTag(buffer, offset, "ID3") && offset + ID3V2_HEADER_SIZE <= buffer.limit()) {
+            // The tag size is a 28-bit "synchsafe" integer: 7 bits per byte
+            int tagSize = (buffer.get(offset + 6) & 0x7F) << 21
+                    | (buffer.get(offset + 7) & 0x7F) << 14
+                    | (buffer.get(offset + 8) & 0x7F) << 7
+                    | (buffer.get(offset + 9) & 0x7F);
+            boolean hasFooter = (buffer.get(offset + 5) & 0x10) != 0;
+            offset += ID3V2_HEADER_SIZE + tagSize + (hasFooter ? ID3V2_HEADER_SIZE : 0);
+        }
+        return Math.min(offset, buffer.limit());
+    }
+
+    private static int findAudioDataEnd(ByteBuffer buffer, int audioDataStart) {
+        int end = buffer.limit();
+
+        if (end - ID3V1_TAG_SIZE >= audioDataStart && hasTag(buffer, end - ID3V1_TAG_SIZE, "TAG")) {
+            end -= ID3V1_TAG_SIZE;
+        }
+
+        int apeFooterOffset = end - APE_TAG_FOOTER_SIZE;
+        if (apeFooterOffset >= audioDataStart && hasTag(buffer, apeFooterOffset, "APETAGEX")) {
+            // The size covers the items and the footer; the header, when there is one, comes on top of it. APE tags are
+            // little-endian.
+            int tagSize = Integer.reverseBytes(buffer.getInt(apeFooterOffset + 12));
+            int flags = Integer.reverseBytes(buffer.getInt(apeFooterOffset + 20));
+            int fullTagSize = tagSize + ((flags & 0x80000000) != 0 ? APE_TAG_FOOTER_SIZE : 0);
+            if (fullTagSize > 0 && end - fullTagSize >= audioDataStart) {
+                end -= fullTagSize;
+            }
+        }
+
+        return end;
+    }
+
+    private static int findFirstFrame(ByteBuffer buffer, int startOffset, int endOffset) {
+        int searchEnd = (int) Math.min(endOffset, (long) startOffset + MAX_SYNC_SEARCH_LENGTH);
+        for (int offset = startOffset; offset + FRAME_HEADER_SIZE <= searchEnd; offset++) {
+            FrameHeader frame = parseFrameHeader(buffer, offset);
+            if (frame != null && isConfirmedFrame(buffer, offset, endOffset, frame)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static int findNextFrame(ByteBuffer buffer, int startOffset, int endOffset, FrameHeader firstFrame) {
+        for (int offset = startOffset; offset + FRAME_HEADER_SIZE <= endOffset; offset++) {
+            FrameHeader frame = parseFrameHeader(buffer, offset);
+            if (frame != null && frame.isSameStreamAs(firstFrame) && isConfirmedFrame(buffer, offset, endOffset, frame)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tells if an MPEG audio frame starts at an offset of a buffer, and is confirmed like the frames of a file (see
+     * {@link #isConfirmedFrame}), the end of the buffer standing for the end of the audio data.
+     *
+     * @param buffer Bytes to look at, from position 0 to the limit.
+     * @param offset Offset of the frame header.
+     * @return True if a valid frame header is found there and confirmed.
+     */
+    static boolean isConfirmedFrameAt(ByteBuffer buffer, int offset) {
+        FrameHeader frame = parseFrameHeader(buffer, offset);
+        return frame != null && isConfirmedFrame(buffer, offset, buffer.limit(), frame);
+    }
+
+    /**
+     * A sync word can appear by chance in any data: a header is only trusted if another one of the same stream follows
+     * it, or if its frame ends the audio data.
+     */
+    private static boolean isConfirmedFrame(ByteBuffer buffer, int offset, int endOffset, FrameHeader frame) {
+        int nextOffset = offset + frame.frameLength();
+        if (nextOffset == endOffset) {
+            return true;
+        }
+        if (nextOffset + FRAME_HEADER_SIZE > endOffset) {
+            return false;
+        }
+        FrameHeader nextFrame = parseFrameHeader(buffer, nextOffset);
+        return nextFrame != null && nextFrame.isSameStreamAs(frame);
+    }
+
+    private static FrameHeader parseFrameHeader(ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset + FRAME_HEADER_SIZE > buffer.limit()) {
+            return null;
+        }
+
+        int byte1 = buffer.get(offset + 1) & 0xFF;
+        int byte2 = buffer.get(offset + 2) & 0xFF;
+        int byte3 = buffer.get(offset + 3) & 0xFF;
+        // 11 bits of sync word
+        if ((buffer.get(offset) & 0xFF) != 0xFF || (byte1 & 0xE0) != 0xE0) {
+            return null;
+        }
+
+        int versionBits = (byte1 >> 3) & 0x03;
+        int layerBits = (byte1 >> 1) & 0x03;
+        int bitRateIndex = (byte2 >> 4) & 0x0F;
+        int sampleRateIndex = (byte2 >> 2) & 0x03;
+        // Reserved values, and the free format, whose frame length cannot be read from the header
+        if (versionBits == 1 || layerBits == 0 || bitRateIndex == 0 || bitRateIndex == 15 || sampleRateIndex == 3) {
+            return null;
+        }
+
+        boolean mpeg1 = versionBits == 3;
+        int layer = 4 - layerBits;
+        int bitRate = BIT_RATES_IN_KBPS[bitRateTable(mpeg1, layer)][bitRateIndex] * 1000;
+        int sampleRate = SAMPLE_RATES[versionBits][sampleRateIndex];
+        int padding = (byte2 >> 1) & 0x01;
+        int samplesPerFrame = layer == 1 ? 384 : (layer == 2 || mpeg1) ? 1152 : 576;
+        int frameLength = layer == 1
+                ? (12 * bitRate / sampleRate + padding) * 4
+                : samplesPerFrame / 8 * bitRate / sampleRate + padding;
+        boolean mono = (byte3 >> 6) == 3;
+
+        return new FrameHeader(versionBits, layer, bitRate, sampleRate, samplesPerFrame, frameLength, mono);
+    }
+
+    private static int bitRateTable(boolean mpeg1, int layer) {
+        if (mpeg1) {
+            return layer - 1;
+        }
+        return layer == 1 ? 3 : 4;
+    }
+
+    private static boolean hasTag(ByteBuffer buffer, int offset, String tag) {
+        byte[] tagBytes = tag.getBytes(StandardCharsets.US_ASCII);
+        if (offset < 0 || offset + tagBytes.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < tagBytes.length; i++) {
+            if (buffer.get(offset + i) != tagBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The fields of a frame header needed to find the next frame and compute durations.
+     */
+    private record FrameHeader(int versionBits, int layer, int bitRate, int sampleRate, int samplesPerFrame,
+                               int frameLength, boolean isMono) {
+        boolean isMpeg1() {
+            return versionBits == 3;
+        }
+
+        int channels() {
+            return isMono ? 1 : 2;
+        }
+
+        /** Frames of a same stream share their version, layer and sample rate; only the bitrate and padding vary. */
+        boolean isSameStreamAs(FrameHeader other) {
+            return versionBits == other.versionBits && layer == other.layer && sampleRate == other.sampleRate;
+        }
+    }
+}
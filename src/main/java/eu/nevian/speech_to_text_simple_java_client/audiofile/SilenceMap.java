@@ -0,0 +1,101 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Silent spans of an audio file, as reported by the ffmpeg {@code silencedetect} filter. Used to move split points
+ * into pauses, so that no word is cut in half at the edge of a part.
+ */
+public final class SilenceMap {
+    /** Map without any silence: split points stay where they were planned. */
+    public static final SilenceMap EMPTY = new SilenceMap(List.of());
+
+    private static final Pattern SILENCE_START_PATTERN = Pattern.compile("silence_start: (-?[0-9.]+)");
+    private static final Pattern SILENCE_END_PATTERN = Pattern.compile("silence_end: (-?[0-9.]+)");
+
+    private final List<Silence> silences;
+
+    private SilenceMap(List<Silence> silences) {
+        this.silences = Collections.unmodifiableList(silences);
+    }
+
+    /**
+     * Builds the map from the log lines written by the {@code silencedetect} filter. Other lines are ignored, as is a
+     * silence that is still open at the end of the audio.
+     *
+     * @param logLines Lines of the ffmpeg log.
+     * @return The silence map.
+     */
+    public static SilenceMap fromSilenceDetectLog(List<String> logLines) {
+        List<Silence> silences = new ArrayList<>();
+        Double silenceStart = null;
+
+        for (String logLine : logLines) {
+            Matcher startMatcher = SILENCE_START_PATTERN.matcher(logLine);
+            if (startMatcher.find()) {
+                silenceStart = Math.max(0, Double.parseDouble(startMatcher.group(1)));
+                continue;
+            }
+
+            Matcher endMatcher = SILENCE_END_PATTERN.matcher(logLine);
+            if (endMatcher.find() && silenceStart != null) {
+                double silenceEnd = Double.parseDouble(endMatcher.group(1));
+                if (silenceEnd > silenceStart) {
+                    silences.add(new Silence(silenceStart, silenceEnd));
+                }
+                silenceStart = null;
+            }
+        }
+
+        return new SilenceMap(silences);
+    }
+
+    public List<Silence> getSilences() {
+        return silences;
+    }
+
+    /**
+     * Returns the total duration of the silent spans.
+     *
+     * @return Duration in seconds.
+     */
+    public double getTotalSilenceDuration() {
+        return silences.stream().mapToDouble(silence -> silence.end() - silence.start()).sum();
+    }
+
+    /**
+     * Returns the split point closest to the planned one that falls in the middle of a silence.
+     *
+     * @param plannedTime Planned split point, in seconds.
+     * @param maxShift    Maximum distance, in seconds, the split point may be moved.
+     * @return The middle of the nearest silence within maxShift, or the planned time if there is none.
+     */
+    public double findSplitTime(double plannedTime, double maxShift) {
+        double splitTime = plannedTime;
+        double bestShift = Double.MAX_VALUE;
+
+        for (Silence silence : silences) {
+            double middle = (silence.start() + silence.end()) / 2;
+            double shift = Math.abs(middle - plannedTime);
+            if (shift <= maxShift && shift < bestShift) {
+                splitTime = middle;
+                bestShift = shift;
+            }
+        }
+
+        return splitTime;
+    }
+
+    /**
+     * A silent span.
+     *
+     * @param start Start time, in seconds.
+     * @param end   End time, in seconds.
+     */
+    public record Silence(double start, double end) {
+    }
+}
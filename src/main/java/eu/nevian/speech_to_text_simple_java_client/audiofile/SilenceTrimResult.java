@@ -0,0 +1,10 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * Result of {@link AudioFileHelper#trimSilence}.
+ *
+ * @param audioFile  The trimmed audio file.
+ * @param silenceMap The pauses left in the trimmed audio, on its own timeline.
+ */
+public record SilenceTrimResult(AudioFile audioFile, SilenceMap silenceMap) {
+}
@@ -0,0 +1,209 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides how an audio file is prepared for upload: as it is, cut with stream copy, or encoded with the upload
+ * {@link EncodingProfile}, in as few parts as the size limit allows. Part sizes are estimated from the bitrate the parts
+ * will actually have, not from the size of the source: a 300 MB WAV file is only 30 minutes of audio, which fits in a
+ * single 32 kbit/s MP3 part.
+ * <p>
+ * When the tempo is changed, the audio has to be encoded whatever its size, and the parts are estimated from the
+ * shorter duration of the accelerated audio.
+ * <p>
+ * The estimates leave a margin under the limit. A part that still overshoots is split again once it exists (see
+ * {@link AudioFileHelper#splitAudioFileBySize}).
+ */
+public final class SplitPlanner {
+    /**
+     * Fraction of the size limit that an encoded part is planned to use. The margin absorbs container overhead and
+     * the bitrate variations of the encoder.
+     */
+    static final double TRANSCODED_PART_SIZE_MARGIN = 0.9;
+
+    /**
+     * Fraction of the size limit that a part cut with stream copy is planned to use. Copied parts keep the bitrate of
+     * the source, so only its variations (VBR) have to be absorbed.
+     */
+    static final double COPIED_PART_SIZE_MARGIN = 0.95;
+
+    /**
+     * Seconds of audio ffmpeg encodes per second with the upload profiles, roughly and on a modest machine. Stream copy
+     * costs next to nothing in comparison (MP3 parts are not even copied).
+     */
+    static final double ENCODING_SPEED = 40;
+
+    /**
+     * What one more upload request costs, in seconds of encoding it is worth: its own latency, and a token of the API
+     * key's request budget that other files cannot use.
+     */
+    static final double EXTRA_REQUEST_COST_SECONDS = 10;
+
+    /**
+     * Fraction of the planned part duration a split point may be moved to fall in a pause. Both ends of a part can
+     * move, so a part can grow by twice this fraction, which is taken into account when counting the parts.
+     */
+    private static final double SPLIT_POINT_MAX_SHIFT_FRACTION = 0.05;
+
+    /** Codecs accepted by the API as they are, with the extension of a container the parts can be copied to. */
+    private static final Map<String, String> STREAM_COPY_EXTENSIONS = Map.of(
+            "mp3", "mp3",
+            "aac", "m4a",
+            "opus", "ogg"
+    );
+
+    /**
+     * Private constructor to prevent instantiation. All methods are static.
+     */
+    private SplitPlanner() {
+    }
+
+    /**
+     * Returns the extension of a container the audio packets of a codec can be copied to, for upload as they are.
+     *
+     * @param codecName ffprobe name of the codec.
+     * @return The extension, or null if the codec must be encoded again.
+     */
+    static String getStreamCopyExtension(String codecName) {
+        return codecName != null ? STREAM_COPY_EXTENSIONS.get(codecName) : null;
+    }
+
+    /**
+     * How the audio file is prepared for upload.
+     */
+    public enum Strategy {
+        /** The file fits the limit and is uploaded as it is. */
+        UPLOAD_AS_IS,
+        /** The file is cut without decoding it; the parts keep the codec and bitrate of the source. */
+        STREAM_COPY,
+        /** The file is encoded with the upload profile, in a single part when it then fits the limit. */
+        TRANSCODE
+    }
+
+    /**
+     * Result of the planning.
+     *
+     * @param strategy      How the file is prepared.
+     * @param numberOfParts Number of parts to create (1 for a file uploaded as it is or encoded to fit).
+     * @param partExtension Extension of the parts, which decides their container.
+     */
+    public record SplitPlan(Strategy strategy, int numberOfParts, String partExtension) {
+    }
+
+    /**
+     * Plans the preparation of an audio file.
+     *
+     * @param audioFile      The audio file, with its duration and size.
+     * @param maxSizeInBytes The maximum size of each part in bytes.
+     * @param codecInfo      Codec of the audio file, or null if it is unknown (stream copy is then not considered).
+     * @param encodingProfile How the parts are encoded when they are not copied.
+     * @param tempoFactor    Speed-up applied to the parts (1 to keep the original speed).
+     * @param silenceMap     Pauses the split points may be moved into.
+     * @return The plan.
+     */
+    public static SplitPlan plan(AudioFile audioFile, long maxSizeInBytes, AudioCodecInfo codecInfo,
+                                 EncodingProfile encodingProfile, double tempoFactor, SilenceMap silenceMap) {
+        boolean tempoChanged = tempoFactor != 1;
+        if (audioFile.getFileSize() <= maxSizeInBytes && !tempoChanged) {
+            return new SplitPlan(Strategy.UPLOAD_AS_IS, 1, null);
+        }
+
+        int transcodedParts = countTranscodedParts(audioFile.getDuration() / tempoFactor, maxSizeInBytes, encodingProfile,
+                silenceMap);
+
+        // The tempo can only be changed by decoding the audio
+        String streamCopyExtension = codecInfo != null && !tempoChanged
+                ? getStreamCopyExtension(codecInfo.codecName())
+                : null;
+        if (streamCopyExtension != null) {
+            int copiedParts = countParts(audioFile.getFileSize(), maxSizeInBytes * COPIED_PART_SIZE_MARGIN, silenceMap);
+            if (isStreamCopyWorthIt(audioFile.getDuration(), copiedParts, transcodedParts)) {
+                return new SplitPlan(Strategy.STREAM_COPY, copiedParts, streamCopyExtension);
+            }
+        }
+
+        return new SplitPlan(Strategy.TRANSCODE, transcodedParts, encodingProfile.getExtension());
+    }
+
+    /**
+     * Tells if cutting the source with stream copy is cheaper than encoding it, weighing the extra requests of the
+     * bigger copied parts against the time encoding would take. The parts being several times bigger than the encoded
+     * ones is not enough to encode: with a 20 MB limit, an hour of 128 kbit/s podcast takes 3 copied parts instead of 1
+     * encoded part, which is 20 seconds of extra requests against 90 seconds of encoding. Only sources of very high
+     * bitrate, whose copied parts multiply, are encoded.
+     *
+     * @param durationInSeconds Duration of the source.
+     * @param copiedParts       Number of parts with stream copy.
+     * @param transcodedParts   Number of parts when encoding.
+     * @return True if stream copy should be used.
+     */
+    static boolean isStreamCopyWorthIt(double durationInSeconds, int copiedParts, int transcodedParts) {
+        double extraRequestsCostSeconds = Math.max(0, copiedParts - transcodedParts) * EXTRA_REQUEST_COST_SECONDS;
+        return extraRequestsCostSeconds <= durationInSeconds / ENCODING_SPEED;
+    }
+
+    /**
+     * Estimates the size of audio encoded with a profile.
+     *
+     * @param durationInSeconds Duration of the audio.
+     * @param encodingProfile   How the audio is encoded.
+     * @return Estimated size in bytes, without any margin.
+     */
+    public static double estimateTranscodedSizeInBytes(double durationInSeconds, EncodingProfile encodingProfile) {
+        return durationInSeconds * encodingProfile.getBitRateInBitsPerSecond() / 8;
+    }
+
+    /**
+     * Counts the parts needed to encode audio with a profile.
+     *
+     * @param durationInSeconds Duration of the encoded audio (the duration of the source divided by the tempo factor).
+     * @param maxSizeInBytes    The maximum size of each part in bytes.
+     * @param encodingProfile   How the audio is encoded.
+     * @param silenceMap        Pauses the split points may be moved into.
+     * @return Number of parts, at least 1.
+     */
+    public static int countTranscodedParts(double durationInSeconds, long maxSizeInBytes, EncodingProfile encodingProfile,
+                                           SilenceMap silenceMap) {
+        return countParts(estimateTranscodedSizeInBytes(durationInSeconds, encodingProfile),
+                maxSizeInBytes * TRANSCODED_PART_SIZE_MARGIN, silenceMap);
+    }
+
+    /**
+     * Counts the parts needed for a given total size.
+     *
+     * @param sizeInBytes        Total size of the parts.
+     * @param maxPartSizeInBytes Size each part is planned to use at most.
+     * @param silenceMap         Pauses the split points may be moved into.
+     * @return Number of parts, at least 1.
+     */
+    static int countParts(double sizeInBytes, double maxPartSizeInBytes, SilenceMap silenceMap) {
+        // Parts whose ends may move into a pause can be longer than planned
+        double growthFactor = silenceMap.getSilences().isEmpty() ? 1 : 1 + 2 * SPLIT_POINT_MAX_SHIFT_FRACTION;
+        return Math.max(1, (int) Math.ceil(sizeInBytes * growthFactor / maxPartSizeInBytes));
+    }
+
+    /**
+     * Computes where the parts start, splitting the audio in parts of equal duration and moving each split point
+     * into the nearest pause, if one is close enough.
+     *
+     * @param startTime     Start of the audio to split, in seconds.
+     * @param duration      Duration of the audio to split, in seconds.
+     * @param numberOfParts Number of parts.
+     * @param silenceMap    Pauses the split points may be moved into.
+     * @return The start time of every part but the first, in increasing order.
+     */
+    static List<Double> computeSplitTimes(double startTime, double duration, int numberOfParts, SilenceMap silenceMap) {
+        double partDuration = duration / numberOfParts;
+        double maxShift = partDuration * SPLIT_POINT_MAX_SHIFT_FRACTION;
+
+        List<Double> splitTimes = new ArrayList<>();
+        for (int i = 1; i < numberOfParts; i++) {
+            splitTimes.add(silenceMap.findSplitTime(startTime + i * partDuration, maxShift));
+        }
+        return splitTimes;
+    }
+}
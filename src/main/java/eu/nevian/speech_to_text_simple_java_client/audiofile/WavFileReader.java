@@ -0,0 +1,299 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads WAV (RIFF and RF64) files without starting ffmpeg: the header gives the duration and the sample format, and
+ * parts of the samples are written as 16-bit mono WAV files of their own.
+ * <p>
+ * When the source already is 16-bit mono at a low enough sample rate, a part is its header followed by the samples,
+ * moved from file to file with {@link FileChannel#transferTo}. Otherwise the samples are downmixed and resampled in a
+ * single pass, through two buffers allocated once per part.
+ */
+public final class WavFileReader {
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int OUTPUT_HEADER_SIZE = 44;
+    private static final int OUTPUT_BITS_PER_SAMPLE = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Chunk sizes left at this value are given by the ds64 chunk (RF64), or unknown (recording not finalized). */
+    private static final long UNKNOWN_CHUNK_SIZE = 0xFFFFFFFFL;
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * Private constructor to prevent instantiation. All methods are static.
+     */
+    private WavFileReader() {
+    }
+
+    /**
+     * Reads the sample format of a WAV file and where its samples are.
+     *
+     * @param filePath Path to the WAV file.
+     * @return The format of the file.
+     * @throws IOException If the file cannot be read, is not a WAV file, or holds samples other than integer or float
+     *                     PCM.
+     */
+    public static WavFormat read(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+            readFully(channel, header.limit(12), 0, filePath);
+            String riffId = readId(header, 0);
+            if ((!riffId.equals("RIFF") && !riffId.equals("RF64")) || !readId(header, 8).equals("WAVE")) {
+                throw new IOException("Not a WAV file: " + filePath);
+            }
+
+            long ds64DataSize = -1;
+            WavFormat format = null;
+            long position = 12;
+            while (position + CHUNK_HEADER_SIZE <= fileSize) {
+                readFully(channel, header.clear().limit(CHUNK_HEADER_SIZE), position, filePath);
+                String chunkId = readId(header, 0);
+                long chunkSize = Integer.toUnsignedLong(header.getInt(4));
+                long chunkDataOffset = position + CHUNK_HEADER_SIZE;
+
+                if (chunkId.equals("ds64")) {
+                    readFully(channel, header.clear().limit(24), chunkDataOffset, filePath);
+                    ds64DataSize = header.getLong(8);
+                } else if (chunkId.equals("fmt ")) {
+                    readFully(channel, header.clear().limit((int) Math.min(chunkSize, 40)), chunkDataOffset, filePath);
+                    format = readFormatChunk(header, filePath);
+                } else if (chunkId.equals("data")) {
+                    if (format == null) {
+                        throw new IOException("Unsupported WAV file: no format before the samples in " + filePath);
+                    }
+                    long dataLength = chunkSize;
+                    if (chunkSize == UNKNOWN_CHUNK_SIZE) {
+                        dataLength = ds64DataSize >= 0 ? ds64DataSize : fileSize - chunkDataOffset;
+                    }
+                    if (chunkSize == 0) {
+                        // Written by a recorder that stopped before updating the header
+                        dataLength = fileSize - chunkDataOffset;
+                    }
+                    // A truncated file keeps the whole frames it has
+                    dataLength = Math.min(dataLength, fileSize - chunkDataOffset);
+                    dataLength -= dataLength % format.blockAlign();
+
+                    return new WavFormat(format.floatingPoint(), format.channels(), format.sampleRate(),
+                            format.bitsPerSample(), format.blockAlign(), chunkDataOffset, dataLength);
+                }
+
+                // Chunks are padded to an even size
+                position = chunkDataOffset + chunkSize + (chunkSize & 1);
+            }
+
+            throw new IOException("Unsupported WAV file: no samples found in " + filePath);
+        }
+    }
+
+    /**
+     * Writes a part of a WAV file as a 16-bit mono WAV file. The part is cut at the frames nearest to its start and
+     * end times, so consecutive parts share no sample and miss none.
+     *
+     * @param sourceFilePath Path to the WAV file.
+     * @param format         Format of the WAV file, as returned by {@link #read(Path)}.
+     * @param startTime      Start of the part, in seconds.
+     * @param duration       Duration of the part, in seconds.
+     * @param maxSampleRate  Sample rate of the part. Sources with a lower sample rate keep theirs.
+     * @param outputPath     Path of the part file, replaced if it exists.
+     * @throws IOException If the source cannot be read or the part cannot be written.
+     */
+    public static void writeMonoPart(Path sourceFilePath, WavFormat format, double startTime, double duration,
+                                     int maxSampleRate, Path outputPath) throws IOException {
+        long firstFrame = Math.clamp(Math.round(startTime * format.sampleRate()), 0, format.getFrameCount());
+        long endFrame = Math.clamp(Math.round((startTime + duration) * format.sampleRate()), firstFrame, format.getFrameCount());
+        int outputSampleRate = Math.min(format.sampleRate(), maxSampleRate);
+
+        try (FileChannel input = FileChannel.open(sourceFilePath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long inputOffset = format.dataOffset() + firstFrame * format.blockAlign();
+            long inputLength = (endFrame - firstFrame) * format.blockAlign();
+
+            output.position(OUTPUT_HEADER_SIZE);
+            long outputDataLength;
+            if (format.channels() == 1 && format.bitsPerSample() == OUTPUT_BITS_PER_SAMPLE && !format.floatingPoint()
+                    && outputSampleRate == format.sampleRate()) {
+                long transferredBytes = 0;
+                while (transferredBytes < inputLength) {
+                    long count = input.transferTo(inputOffset + transferredBytes, inputLength - transferredBytes, output);
+                    if (count <= 0) {
+                        throw new IOException("Error splitting audio file: " + sourceFilePath + " ends before byte "
+                                + (inputOffset + inputLength));
+                    }
+                    transferredBytes += count;
+                }
+                outputDataLength = inputLength;
+            } else {
+                outputDataLength = downmixAndResample(input, inputOffset, inputLength, format, outputSampleRate, output);
+            }
+
+            output.write(createMonoHeader(outputSampleRate, outputDataLength), 0);
+        }
+    }
+
+    /**
+     * Averages the channels of each frame, then each run of frames that makes an output sample, weighted by how much
+     * of the output sample period they cover. This box filter keeps most of what is above the output Nyquist frequency
+     * out of the result, which is enough for speech.
+     *
+     * @return The number of bytes written.
+     */
+    private static long downmixAndResample(FileChannel input, long inputOffset, long inputLength, WavFormat format,
+                                           int outputSampleRate, FileChannel output) throws IOException {
+        int blockAlign = format.blockAlign();
+        int bytesPerSample = format.bitsPerSample() / 8;
+        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(Math.max(1, BUFFER_SIZE / blockAlign) * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer outputBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Input frames per output sample, at least 1 since the output rate is never above the input rate
+        double step = (double) format.sampleRate() / outputSampleRate;
+        double boundary = step;
+        double position = 0;
+        double accumulator = 0;
+        long outputDataLength = 0;
+
+        long readBytes = 0;
+        while (readBytes < inputLength) {
+            inputBuffer.clear().limit((int) Math.min(inputBuffer.capacity(), inputLength - readBytes));
+            while (inputBuffer.hasRemaining()) {
+                if (input.read(inputBuffer, inputOffset + readBytes + inputBuffer.position()) < 0) {
+                    throw new IOException("Error splitting audio file: unexpected end of the samples at byte "
+                            + (inputOffset + readBytes + inputBuffer.position()));
+                }
+            }
+            readBytes += inputBuffer.limit();
+
+            for (int frameOffset = 0; frameOffset < inputBuffer.limit(); frameOffset += blockAlign) {
+                double sum = 0;
+                for (int channel = 0; channel < format.channels(); channel++) {
+                    sum += readSample(inputBuffer, frameOffset + channel * bytesPerSample, format);
+                }
+                double sample = sum / format.channels();
+
+                double end = position + 1;
+                while (end >= boundary) {
+                    accumulator += sample * (boundary - position);
+                    if (outputBuffer.remaining() < Short.BYTES) {
+                        outputDataLength += writeFully(output, outputBuffer);
+                    }
+                    outputBuffer.putShort(toShort(accumulator / step));
+                    accumulator = 0;
+                    position = boundary;
+                    boundary += step;
+                }
+                accumulator += sample * (end - position);
+                position = end;
+            }
+        }
+
+        return outputDataLength + writeFully(output, outputBuffer);
+    }
+
+    /**
+     * Reads a sample of one channel, scaled to [-1, 1].
+     */
+    private static double readSample(ByteBuffer buffer, int offset, WavFormat format) {
+        if (format.floatingPoint()) {
+            return format.bitsPerSample() == 64 ? buffer.getDouble(offset) : buffer.getFloat(offset);
+        }
+
+        return switch (format.bitsPerSample()) {
+            case 8 -> ((buffer.get(offset) & 0xFF) - 128) / 128.0;
+            case 16 -> buffer.getShort(offset) / 32768.0;
+            case 24 -> ((buffer.get(offset) & 0xFF) | (buffer.get(offset + 1) & 0xFF) << 8 | buffer.get(offset + 2) << 16)
+                    / 8388608.0;
+            default -> buffer.getInt(offset) / 2147483648.0;
+        };
+    }
+
+    private static short toShort(double sample) {
+        return (short) Math.round(Math.clamp(sample, -1, 1) * Short.MAX_VALUE);
+    }
+
+    private static long writeFully(FileChannel output, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long writtenBytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+        return writtenBytes;
+    }
+
+    private static WavFormat readFormatChunk(ByteBuffer chunk, Path filePath) throws IOException {
+        if (chunk.limit() < 16) {
+            throw new IOException("Unsupported WAV file: format chunk too short in " + filePath);
+        }
+
+        int formatTag = Short.toUnsignedInt(chunk.getShort(0));
+        int channels = Short.toUnsignedInt(chunk.getShort(2));
+        int sampleRate = chunk.getInt(4);
+        int blockAlign = Short.toUnsignedInt(chunk.getShort(12));
+        int bitsPerSample = Short.toUnsignedInt(chunk.getShort(14));
+
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && chunk.limit() >= 26) {
+            // The format is the first two bytes of the sub-format GUID
+            formatTag = Short.toUnsignedInt(chunk.getShort(24));
+        }
+
+        boolean floatingPoint = formatTag == WAVE_FORMAT_IEEE_FLOAT;
+        boolean supportedSamples = floatingPoint
+                ? bitsPerSample == 32 || bitsPerSample == 64
+                : formatTag == WAVE_FORMAT_PCM && (bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32);
+        if (!supportedSamples || channels == 0 || sampleRate <= 0 || blockAlign != channels * bitsPerSample / 8) {
+            throw new IOException("Unsupported WAV file: format " + formatTag + ", " + bitsPerSample + " bits, "
+                    + channels + " channel(s) in " + filePath);
+        }
+
+        return new WavFormat(floatingPoint, channels, sampleRate, bitsPerSample, blockAlign, 0, 0);
+    }
+
+    private static ByteBuffer createMonoHeader(int sampleRate, long dataLength) throws IOException {
+        if (dataLength > UNKNOWN_CHUNK_SIZE - OUTPUT_HEADER_SIZE) {
+            throw new IOException("Error splitting audio file: part too big for a WAV file");
+        }
+
+        int blockAlign = OUTPUT_BITS_PER_SAMPLE / 8;
+        ByteBuffer header = ByteBuffer.allocate(OUTPUT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII))
+                .putInt((int) (OUTPUT_HEADER_SIZE - 8 + dataLength))
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII))
+                .putInt(16)
+                .putShort((short) WAVE_FORMAT_PCM)
+                .putShort((short) 1)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) OUTPUT_BITS_PER_SAMPLE)
+                .put("data".getBytes(StandardCharsets.US_ASCII))
+                .putInt((int) dataLength);
+        return header.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path filePath) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Not a WAV file: unexpected end of " + filePath);
+            }
+        }
+    }
+
+    private static String readId(ByteBuffer buffer, int offset) {
+        byte[] id = new byte[4];
+        buffer.get(offset, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,55 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+/**
+ * What {@link WavFileReader} found in the header of a WAV file.
+ *
+ * @param floatingPoint Whether the samples are IEEE floats rather than integers.
+ * @param channels      Number of channels.
+ * @param sampleRate    Sample rate, in Hz.
+ * @param bitsPerSample Size of a sample of one channel, in bits (8-bit samples are unsigned, the others signed).
+ * @param blockAlign    Size of a frame (a sample of every channel), in bytes.
+ * @param dataOffset    Offset, in bytes, of the first sample.
+ * @param dataLength    Number of bytes of samples, a multiple of blockAlign.
+ */
+public record WavFormat(boolean floatingPoint, int channels, int sampleRate, int bitsPerSample, int blockAlign,
+                        long dataOffset, long dataLength) {
+
+    /**
+     * Returns the number of frames of the file.
+     *
+     * @return Number of frames.
+     */
+    public long getFrameCount() {
+        return dataLength / blockAlign;
+    }
+
+    /**
+     * Returns the duration of the audio.
+     *
+     * @return Duration in seconds.
+     */
+    public double getDurationInSeconds() {
+        return (double) getFrameCount() / sampleRate;
+    }
+
+    /**
+     * Returns the bitrate of the samples.
+     *
+     * @return Bitrate in bits per second.
+     */
+    public long getBitRateInBitsPerSecond() {
+        return (long) blockAlign * sampleRate * 8;
+    }
+
+    /**
+     * Returns the ffmpeg name of the sample format, as ffprobe reports it (for example {@code pcm_s16le}).
+     *
+     * @return The codec name.
+     */
+    public String getCodecName() {
+        if (floatingPoint) {
+            return "pcm_f" + bitsPerSample + "le";
+        }
+        return bitsPerSample == 8 ? "pcm_u8" : "pcm_s" + bitsPerSample + "le";
+    }
+}
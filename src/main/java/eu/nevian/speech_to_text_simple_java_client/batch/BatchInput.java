@@ -0,0 +1,12 @@
+package eu.nevian.speech_to_text_simple_java_client.batch;
+
+import java.nio.file.Path;
+
+/**
+ * One file of a batch.
+ *
+ * @param path     Absolute path to the audio or video file.
+ * @param language Language of the audio, in ISO-639-1 format.
+ */
+public record BatchInput(Path path, String language) {
+}
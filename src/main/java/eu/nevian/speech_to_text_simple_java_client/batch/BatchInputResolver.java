@@ -0,0 +1,209 @@
+package eu.nevian.speech_to_text_simple_java_client.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.FileValidationException;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.InvalidOptionValueException;
+import eu.nevian.speech_to_text_simple_java_client.utils.LanguageSupport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Turns the command line arguments of a batch into the list of files to transcribe. An argument can be:
+ * <ul>
+ *     <li>a file, transcribed whatever its type (an invalid file fails on its own);</li>
+ *     <li>a directory, searched recursively for audio and video files;</li>
+ *     <li>a glob such as {@code recordings/*.mp3} or {@code 'talks/**.m4a'}, expanded by the application so it also
+ *     works when the shell does not do it (quoted, or on Windows).</li>
+ * </ul>
+ * A JSONL manifest can be given as well, one {@code {"path": "...", "language": "fr"}} object per line. Relative paths
+ * are resolved against the directory of the manifest, and the language is optional.
+ * <p>
+ * Hidden files and directories (including the journals of interrupted jobs) are skipped when searching, and a file
+ * given twice is only transcribed once, with the language of its first occurrence.
+ */
+public final class BatchInputResolver {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Private constructor to prevent instantiation. All methods are static.
+     */
+    private BatchInputResolver() {
+    }
+
+    /**
+     * Tells if a command line argument stands for several files: a directory, or a glob that is not the name of an
+     * existing file.
+     *
+     * @param argument The argument.
+     * @return True if the argument has to be expanded by {@link #resolve}.
+     */
+    public static boolean isMultipleFileArgument(String argument) {
+        if (isGlob(argument) && !isExistingPath(argument)) {
+            return true;
+        }
+        return Files.isDirectory(Path.of(argument));
+    }
+
+    /**
+     * Lists the files of a batch, manifest entries first, in the order they are given. Files found in a directory or
+     * by a glob are sorted by path.
+     *
+     * @param arguments       Files, directories and globs.
+     * @param manifestPath    JSONL manifest, or null if there is none.
+     * @param defaultLanguage Language of the files that do not set one.
+     * @return The files to transcribe.
+     * @throws IOException                 If a directory or the manifest cannot be read.
+     * @throws InvalidOptionValueException If a manifest line is not valid.
+     */
+    public static List<BatchInput> resolve(List<String> arguments, Path manifestPath, String defaultLanguage)
+            throws IOException, InvalidOptionValueException {
+        Map<Path, BatchInput> inputsByPath = new LinkedHashMap<>();
+
+        if (manifestPath != null) {
+            for (BatchInput input : readManifest(manifestPath, defaultLanguage)) {
+                inputsByPath.putIfAbsent(input.path(), input);
+            }
+        }
+
+        for (String argument : arguments) {
+            List<Path> paths;
+            if (isGlob(argument) && !isExistingPath(argument)) {
+                paths = expandGlob(argument);
+            } else if (Files.isDirectory(Path.of(argument))) {
+                paths = findMediaFiles(Path.of(argument), Integer.MAX_VALUE, path -> true);
+            } else {
+                paths = List.of(Path.of(argument));
+            }
+
+            for (Path path : paths) {
+                Path absolutePath = path.toAbsolutePath().normalize();
+                inputsByPath.putIfAbsent(absolutePath, new BatchInput(absolutePath, defaultLanguage));
+            }
+        }
+
+        return new ArrayList<>(inputsByPath.values());
+    }
+
+    private static List<BatchInput> readManifest(Path manifestPath, String defaultLanguage)
+            throws IOException, InvalidOptionValueException {
+        Path manifestDirectoryPath = manifestPath.toAbsolutePath().normalize().getParent();
+        List<BatchInput> inputs = new ArrayList<>();
+
+        List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String lineLabel = "Error: Invalid manifest line " + (i + 1) + " in " + manifestPath + ": ";
+            JsonNode entryNode;
+            try {
+                entryNode = OBJECT_MAPPER.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new InvalidOptionValueException(lineLabel + "not a JSON object.");
+            }
+
+            String path = entryNode.path("path").asText("");
+            if (path.isEmpty()) {
+                throw new InvalidOptionValueException(lineLabel + "missing \"path\".");
+            }
+
+            String language = defaultLanguage;
+            if (entryNode.hasNonNull("language")) {
+                language = entryNode.path("language").asText().trim().toLowerCase(Locale.ROOT);
+                if (!LanguageSupport.isValidLanguageCode(language)) {
+                    throw new InvalidOptionValueException(lineLabel + "invalid language code \"" + language + "\".");
+                }
+            }
+
+            inputs.add(new BatchInput(manifestDirectoryPath.resolve(path).normalize(), language));
+        }
+
+        return inputs;
+    }
+
+    private static List<Path> expandGlob(String glob) throws IOException {
+        // Search from the deepest directory that has no glob character, matching the rest of the pattern
+        String normalizedGlob = glob.replace('\\', '/');
+        int firstGlobCharacterIndex = 0;
+        while (GLOB_CHARACTERS.indexOf(normalizedGlob.charAt(firstGlobCharacterIndex)) < 0) {
+            firstGlobCharacterIndex++;
+        }
+        int baseDirectoryEndIndex = normalizedGlob.lastIndexOf('/', firstGlobCharacterIndex);
+
+        Path baseDirectoryPath = baseDirectoryEndIndex >= 0
+                ? Path.of(normalizedGlob.substring(0, baseDirectoryEndIndex + 1))
+                : Path.of(".");
+        String pattern = normalizedGlob.substring(baseDirectoryEndIndex + 1);
+        if (!Files.isDirectory(baseDirectoryPath)) {
+            return List.of();
+        }
+
+        // Without "**", a pattern only matches at the depth of its number of segments
+        int maxDepth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("/").length;
+        PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return findMediaFiles(baseDirectoryPath, maxDepth, path -> pathMatcher.matches(baseDirectoryPath.relativize(path)));
+    }
+
+    private static List<Path> findMediaFiles(Path directoryPath, int maxDepth, Predicate<Path> pathFilter) throws IOException {
+        try (Stream<Path> paths = Files.walk(directoryPath, maxDepth)) {
+            return paths
+                    .filter(path -> !isHidden(directoryPath.relativize(path)))
+                    .filter(Files::isRegularFile)
+                    .filter(pathFilter)
+                    .filter(BatchInputResolver::isMediaFile)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isGlob(String argument) {
+        return argument.chars().anyMatch(character -> GLOB_CHARACTERS.indexOf(character) >= 0);
+    }
+
+    private static boolean isExistingPath(String argument) {
+        try {
+            return Files.exists(Path.of(argument));
+        } catch (InvalidPathException e) {
+            // Glob characters such as '*' are not allowed in Windows paths
+            return false;
+        }
+    }
+
+    private static boolean isHidden(Path relativePath) {
+        for (Path segment : relativePath) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMediaFile(Path path) {
+        try {
+            AudioFileHelper.getFileType(path.toString());
+            return true;
+        } catch (FileValidationException e) {
+            return false;
+        }
+    }
+}
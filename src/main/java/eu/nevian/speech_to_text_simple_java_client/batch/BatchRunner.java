@@ -0,0 +1,146 @@
+package eu.nevian.speech_to_text_simple_java_client.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.TranscriptionJobException;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJob;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobContext;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobResult;
+import eu.nevian.speech_to_text_simple_java_client.utils.TextFileHelper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transcribes the files of a batch, several at a time, in a single JVM. All the jobs share the same
+ * {@link TranscriptionJobContext}: the ffmpeg probes, the HTTP connection pool and the limit on the uploads in flight
+ * are set up once, whatever the number of files.
+ * <p>
+ * The transcription of each file is saved next to it, as {@code <FILE_NAME>_TRANSCRIPTION.txt}: the extension is kept
+ * so that files differing only by it, such as {@code talk.mp3} and {@code talk.mp4}, do not overwrite each other's.
+ * Files that already have one are skipped, so a batch that was stopped can be run again as it is. One JSON line per
+ * file is appended to the summary as soon as the file is done, with its status, timings and error.
+ */
+public class BatchRunner {
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_SKIPPED = "skipped";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final TranscriptionJobContext context;
+    private final int maxConcurrentJobs;
+
+    /**
+     * Constructor.
+     *
+     * @param context           Settings and services shared by all the jobs.
+     * @param maxConcurrentJobs Maximum number of files transcribed at the same time.
+     */
+    public BatchRunner(TranscriptionJobContext context, int maxConcurrentJobs) {
+        if (maxConcurrentJobs <= 0) {
+            throw new IllegalArgumentException("maxConcurrentJobs must be positive");
+        }
+
+        this.context = context;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    /**
+     * Transcribes all the files, in the given order, and writes the summary.
+     *
+     * @param inputs      Files to transcribe.
+     * @param summaryPath JSONL file the summary is written to. It is overwritten if it exists.
+     * @return The number of files that failed.
+     * @throws IOException If the summary cannot be written.
+     */
+    public int run(List<BatchInput> inputs, Path summaryPath) throws IOException {
+        int failedCount = 0;
+        int doneCount = 0;
+        int skippedCount = 0;
+
+        int poolSize = Math.min(maxConcurrentJobs, Math.max(1, inputs.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, Thread.ofVirtual().name("batch-job-", 0).factory());
+        try (BufferedWriter summaryWriter = Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8)) {
+            ExecutorCompletionService<ObjectNode> completionService = new ExecutorCompletionService<>(executor);
+            for (BatchInput input : inputs) {
+                completionService.submit(() -> transcribe(input));
+            }
+
+            for (int completed = 1; completed <= inputs.size(); completed++) {
+                ObjectNode summaryLine;
+                try {
+                    summaryLine = completionService.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the batch", e);
+                } catch (ExecutionException e) {
+                    // transcribe() reports its failures in the summary line, this is a bug
+                    throw new IllegalStateException(e.getCause());
+                }
+
+                String status = summaryLine.path("status").asText();
+                switch (status) {
+                    case STATUS_DONE -> doneCount++;
+                    case STATUS_SKIPPED -> skippedCount++;
+                    default -> failedCount++;
+                }
+
+                System.out.printf("[%d/%d] %-7s %s (%.1f s)%n", completed, inputs.size(), status,
+                        summaryLine.path("input").asText(), summaryLine.path("elapsed_ms").asLong() / 1000.0);
+                if (STATUS_FAILED.equals(status)) {
+                    System.err.println("        " + summaryLine.path("error").asText().replace("\n", "\n        "));
+                }
+
+                // Written line by line, so the summary of a batch that was stopped lists the files already done
+                summaryWriter.write(OBJECT_MAPPER.writeValueAsString(summaryLine));
+                summaryWriter.newLine();
+                summaryWriter.flush();
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.close();
+        }
+
+        System.out.println("\nBatch finished: " + doneCount + " done, " + skippedCount + " skipped, " + failedCount
+                + " failed. Summary written to " + summaryPath.toAbsolutePath().normalize());
+        return failedCount;
+    }
+
+    private ObjectNode transcribe(BatchInput input) {
+        Path outputPath = TextFileHelper.getTranscriptionFilePath(input.path(), true);
+        ObjectNode summaryLine = OBJECT_MAPPER.createObjectNode()
+                .put("input", input.path().toString())
+                .put("output", outputPath.toString())
+                .put("language", input.language());
+
+        long startNanos = System.nanoTime();
+        if (Files.exists(outputPath)) {
+            return summaryLine.put("status", STATUS_SKIPPED).put("elapsed_ms", 0L);
+        }
+
+        try {
+            TranscriptionJobResult result = new TranscriptionJob(context, input.path(), input.language(), false)
+                    .run(outputPath);
+            summaryLine.put("status", STATUS_DONE)
+                    .put("audio_seconds", result.audioDurationInSeconds())
+                    .put("parts", result.partCount())
+                    .put("characters", result.transcriptionText().length())
+                    .put("words", TextFileHelper.countWords(result.transcriptionText()));
+        } catch (TranscriptionJobException | RuntimeException e) {
+            summaryLine.putNull("output")
+                    .put("status", STATUS_FAILED)
+                    .put("error", String.valueOf(e.getMessage()));
+        }
+
+        return summaryLine.put("elapsed_ms", (System.nanoTime() - startNanos) / 1_000_000);
+    }
+}
@@ -22,6 +22,50 @@ public class CommandLineManagement {
         Option languageOption = new Option("l", "language", true, "Language of the audio file in ISO-639-1 format");
         languageOption.setArgName("language");
         options.addOption(languageOption);
+
+        Option concurrencyOption = new Option("c", "concurrency", true, "Maximum number of audio parts transcribed at the same time");
+        concurrencyOption.setArgName("concurrency");
+        options.addOption(concurrencyOption);
+
+        Option streamOption = new Option("s", "stream", false, "Encode audio parts while uploading them, without temporary files");
+        streamOption.setArgName(" ");
+        options.addOption(streamOption);
+
+        Option pipelineOption = new Option("p", "pipeline", false, "Encode the next audio part while the previous ones are uploading, deleting each part once transcribed");
+        pipelineOption.setArgName(" ");
+        options.addOption(pipelineOption);
+
+        Option trimSilenceOption = new Option("t", "trim-silence", false, "Shorten long silences before uploading and split the audio in pauses");
+        trimSilenceOption.setArgName(" ");
+        options.addOption(trimSilenceOption);
+
+        Option encodingOption = new Option("e", "encoding", true, "Encoding of the uploaded audio: mp3-mono, opus-mono, mp3-64k or wav-mono");
+        encodingOption.setArgName("profile");
+        options.addOption(encodingOption);
+
+        Option tempoOption = new Option("x", "tempo", true, "Speed up the uploaded audio by this factor (1 to 2, e.g. 1.25) for fewer bytes and parts");
+        tempoOption.setArgName("factor");
+        options.addOption(tempoOption);
+
+        Option jobsOption = new Option("j", "jobs", true, "Maximum number of files transcribed at the same time in batch mode");
+        jobsOption.setArgName("jobs");
+        options.addOption(jobsOption);
+
+        Option manifestOption = new Option("m", "manifest", true, "JSONL file listing the files to transcribe, one {\"path\": ..., \"language\": ...} per line");
+        manifestOption.setArgName("file");
+        options.addOption(manifestOption);
+
+        Option summaryOption = new Option("o", "summary", true, "JSONL file the batch summary is written to (default: batch-summary.jsonl)");
+        summaryOption.setArgName("file");
+        options.addOption(summaryOption);
+
+        Option daemonOption = new Option("d", "daemon", true, "Run as a local server on this port, taking transcription jobs over HTTP");
+        daemonOption.setArgName("port");
+        options.addOption(daemonOption);
+
+        Option watchOption = new Option("w", "watch", true, "Watch this directory and transcribe the audio and video files dropped into it");
+        watchOption.setArgName("dir");
+        options.addOption(watchOption);
     }
 
     public CommandLineOptions parseCommandLineArguments(String[] args) throws ParseException {
@@ -36,6 +36,74 @@ public class CommandLineOptions {
         return null;
     }
 
+    public String getConcurrencyOption() {
+        if (cmd.hasOption("concurrency")) {
+            return cmd.getOptionValue("concurrency");
+        }
+        return null;
+    }
+
+    public boolean hasStreamOption() {
+        return cmd.hasOption("stream");
+    }
+
+    public boolean hasPipelineOption() {
+        return cmd.hasOption("pipeline");
+    }
+
+    public boolean hasTrimSilenceOption() {
+        return cmd.hasOption("trim-silence");
+    }
+
+    public String getEncodingOption() {
+        if (cmd.hasOption("encoding")) {
+            return cmd.getOptionValue("encoding");
+        }
+        return null;
+    }
+
+    public String getTempoOption() {
+        if (cmd.hasOption("tempo")) {
+            return cmd.getOptionValue("tempo");
+        }
+        return null;
+    }
+
+    public String getJobsOption() {
+        if (cmd.hasOption("jobs")) {
+            return cmd.getOptionValue("jobs");
+        }
+        return null;
+    }
+
+    public String getManifestOption() {
+        if (cmd.hasOption("manifest")) {
+            return cmd.getOptionValue("manifest");
+        }
+        return null;
+    }
+
+    public String getSummaryOption() {
+        if (cmd.hasOption("summary")) {
+            return cmd.getOptionValue("summary");
+        }
+        return null;
+    }
+
+    public String getDaemonOption() {
+        if (cmd.hasOption("daemon")) {
+            return cmd.getOptionValue("daemon");
+        }
+        return null;
+    }
+
+    public String getWatchOption() {
+        if (cmd.hasOption("watch")) {
+            return cmd.getOptionValue("watch");
+        }
+        return null;
+    }
+
     public List<String> getRemainingArgs() {
         return cmd.getArgList();
     }
@@ -43,6 +111,8 @@ public class CommandLineOptions {
     public void printCustomHelp() {
         System.out.println("Usage:");
         System.out.println("  java -jar speech_to_text_simple_java_client.jar [options] <FILE>");
+        System.out.println("  java -jar speech_to_text_simple_java_client.jar [options] <FILE|DIRECTORY|GLOB>... | -m <manifest>");
+        System.out.println("  java -jar speech_to_text_simple_java_client.jar [options] -w <DIRECTORY>");
         System.out.println("\nOptions:");
         System.out.printf("  %-2s %-8s  %s%n", "<FILE>", "", "Path to audio file or video file to transcribe");
         for (Option option : options.getOptions()) {
@@ -2,17 +2,32 @@ package eu.nevian.speech_to_text_simple_java_client.config;
 
 import eu.nevian.speech_to_text_simple_java_client.commandlinemanagement.CommandLineOptions;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.InvalidLanguageOptionException;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.InvalidOptionValueException;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.LoadingConfigurationException;
 import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.TranscriptionServiceDefinition;
 import eu.nevian.speech_to_text_simple_java_client.utils.ConfigLoader;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
 import eu.nevian.speech_to_text_simple_java_client.utils.LanguageSupport;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.Locale;
 
 public final class ApplicationConfigResolver {
     private static final String INVALID_LANGUAGE_CODE_MESSAGE = "Error: Invalid language code";
+    private static final String INVALID_CONCURRENCY_MESSAGE = "Error: Invalid concurrency value. Expected a positive integer.";
+    private static final String INVALID_JOBS_MESSAGE = "Error: Invalid jobs value. Expected a positive integer.";
+    private static final String INVALID_DAEMON_PORT_MESSAGE = "Error: Invalid daemon port. Expected a number between 0 and 65535.";
+    private static final String INVALID_WATCH_DIRECTORY_MESSAGE = "Error: Invalid watch directory. Expected an existing directory.";
+    private static final String INVALID_ENCODING_MESSAGE = "Error: Invalid encoding profile. Expected one of: mp3-mono, opus-mono, mp3-64k, wav-mono.";
+    private static final String INVALID_TEMPO_MESSAGE = "Error: Invalid tempo value. Expected a number between 1 and 2.";
+    private static final String STREAM_AND_PIPELINE_MESSAGE = "Error: --stream and --pipeline cannot be used together.";
+    private static final String DAEMON_AND_WATCH_MESSAGE = "Error: --daemon and --watch cannot be used together.";
+
+    /** Speed-ups beyond this make fast speech hard to transcribe. */
+    private static final double MAX_TEMPO_FACTOR = 2;
 
     private ApplicationConfigResolver() {
     }
@@ -22,14 +37,37 @@ public final class ApplicationConfigResolver {
             Path configFilePath,
             UserConfig userConfig,
             ApplicationDefaults applicationDefaults
-    ) throws InvalidLanguageOptionException {
+    ) throws InvalidLanguageOptionException, InvalidOptionValueException {
         LanguageResolution languageResolution = resolveLanguage(cmdOptions, configFilePath, userConfig, applicationDefaults);
 
+        if (cmdOptions.hasStreamOption() && cmdOptions.hasPipelineOption()) {
+            throw new InvalidOptionValueException(STREAM_AND_PIPELINE_MESSAGE);
+        }
+        if (cmdOptions.getDaemonOption() != null && cmdOptions.getWatchOption() != null) {
+            throw new InvalidOptionValueException(DAEMON_AND_WATCH_MESSAGE);
+        }
+
         return new ResolvedApplicationConfig(
                 userConfig.apiKey(),
                 languageResolution.effectiveLanguage(),
                 applicationDefaults.audioFileLimitSizeInBytes(),
+                resolveMaxConcurrentTranscriptions(cmdOptions, applicationDefaults),
+                resolveMaxConcurrentJobs(cmdOptions, applicationDefaults),
+                resolveDaemonPort(cmdOptions),
+                applicationDefaults.daemonQueueCapacity(),
+                resolveWatchDirectoryPath(cmdOptions),
+                applicationDefaults.watchSettleTime(),
+                cmdOptions.hasStreamOption(),
+                cmdOptions.hasPipelineOption(),
+                cmdOptions.hasTrimSilenceOption(),
+                resolveEncodingProfile(cmdOptions, applicationDefaults),
+                resolveTempoFactor(cmdOptions),
                 TranscriptionServiceDefinition.OPENAI_WHISPER,
+                applicationDefaults.httpTransportSettings(),
+                applicationDefaults.rateLimitSettings(),
+                ConfigLoader.resolveStateDirectoryPath(configFilePath),
+                applicationDefaults.transcriptCacheMaxSizeInBytes(),
+                applicationDefaults.modelCheckCacheTtl(),
                 languageResolution.warningMessage()
         );
     }
@@ -74,6 +112,130 @@ public final class ApplicationConfigResolver {
         return new LanguageResolution(applicationDefaults.defaultLanguage(), null);
     }
 
+    private static int resolveMaxConcurrentTranscriptions(
+            CommandLineOptions cmdOptions,
+            ApplicationDefaults applicationDefaults
+    ) throws InvalidOptionValueException {
+        String concurrencyOption = cmdOptions.getConcurrencyOption();
+        if (concurrencyOption == null) {
+            return applicationDefaults.maxConcurrentTranscriptions();
+        }
+
+        int concurrency;
+        try {
+            concurrency = Integer.parseInt(concurrencyOption.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidOptionValueException(INVALID_CONCURRENCY_MESSAGE);
+        }
+
+        if (concurrency <= 0) {
+            throw new InvalidOptionValueException(INVALID_CONCURRENCY_MESSAGE);
+        }
+
+        return concurrency;
+    }
+
+    private static int resolveMaxConcurrentJobs(
+            CommandLineOptions cmdOptions,
+            ApplicationDefaults applicationDefaults
+    ) throws InvalidOptionValueException {
+        String jobsOption = cmdOptions.getJobsOption();
+        if (jobsOption == null) {
+            return applicationDefaults.maxConcurrentJobs();
+        }
+
+        int jobs;
+        try {
+            jobs = Integer.parseInt(jobsOption.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidOptionValueException(INVALID_JOBS_MESSAGE);
+        }
+
+        if (jobs <= 0) {
+            throw new InvalidOptionValueException(INVALID_JOBS_MESSAGE);
+        }
+
+        return jobs;
+    }
+
+    private static Integer resolveDaemonPort(CommandLineOptions cmdOptions) throws InvalidOptionValueException {
+        String daemonOption = cmdOptions.getDaemonOption();
+        if (daemonOption == null) {
+            return null;
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt(daemonOption.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidOptionValueException(INVALID_DAEMON_PORT_MESSAGE);
+        }
+
+        // 0 lets the system pick a free port
+        if (port < 0 || port > 65535) {
+            throw new InvalidOptionValueException(INVALID_DAEMON_PORT_MESSAGE);
+        }
+
+        return port;
+    }
+
+    private static Path resolveWatchDirectoryPath(CommandLineOptions cmdOptions) throws InvalidOptionValueException {
+        String watchOption = cmdOptions.getWatchOption();
+        if (watchOption == null) {
+            return null;
+        }
+
+        Path watchDirectoryPath;
+        try {
+            watchDirectoryPath = Path.of(watchOption.trim()).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            throw new InvalidOptionValueException(INVALID_WATCH_DIRECTORY_MESSAGE);
+        }
+
+        if (!Files.isDirectory(watchDirectoryPath)) {
+            throw new InvalidOptionValueException(INVALID_WATCH_DIRECTORY_MESSAGE);
+        }
+
+        return watchDirectoryPath;
+    }
+
+    private static EncodingProfile resolveEncodingProfile(
+            CommandLineOptions cmdOptions,
+            ApplicationDefaults applicationDefaults
+    ) throws InvalidOptionValueException {
+        String encodingOption = cmdOptions.getEncodingOption();
+        if (encodingOption == null) {
+            return applicationDefaults.encodingProfile();
+        }
+
+        EncodingProfile encodingProfile = EncodingProfile.fromName(encodingOption);
+        if (encodingProfile == null) {
+            throw new InvalidOptionValueException(INVALID_ENCODING_MESSAGE);
+        }
+
+        return encodingProfile;
+    }
+
+    private static double resolveTempoFactor(CommandLineOptions cmdOptions) throws InvalidOptionValueException {
+        String tempoOption = cmdOptions.getTempoOption();
+        if (tempoOption == null) {
+            return 1;
+        }
+
+        double tempoFactor;
+        try {
+            tempoFactor = Double.parseDouble(tempoOption.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidOptionValueException(INVALID_TEMPO_MESSAGE);
+        }
+
+        if (!(tempoFactor >= 1 && tempoFactor <= MAX_TEMPO_FACTOR)) {
+            throw new InvalidOptionValueException(INVALID_TEMPO_MESSAGE);
+        }
+
+        return tempoFactor;
+    }
+
     private record LanguageResolution(String effectiveLanguage, String warningMessage) {
     }
 }
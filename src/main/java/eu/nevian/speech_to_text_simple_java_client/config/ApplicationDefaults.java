@@ -1,4 +1,22 @@
 package eu.nevian.speech_to_text_simple_java_client.config;
 
-public record ApplicationDefaults(String defaultLanguage, long audioFileLimitSizeInBytes) {
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransportSettings;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.RateLimitSettings;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+
+import java.time.Duration;
+
+public record ApplicationDefaults(
+        String defaultLanguage,
+        long audioFileLimitSizeInBytes,
+        int maxConcurrentTranscriptions,
+        int maxConcurrentJobs,
+        int daemonQueueCapacity,
+        Duration watchSettleTime,
+        HttpTransportSettings httpTransportSettings,
+        RateLimitSettings rateLimitSettings,
+        long transcriptCacheMaxSizeInBytes,
+        Duration modelCheckCacheTtl,
+        EncodingProfile encodingProfile
+) {
 }
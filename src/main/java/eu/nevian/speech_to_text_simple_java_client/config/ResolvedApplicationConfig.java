@@ -1,12 +1,34 @@
 package eu.nevian.speech_to_text_simple_java_client.config;
 
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransportSettings;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.RateLimitSettings;
 import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.TranscriptionServiceDefinition;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 public record ResolvedApplicationConfig(
         String apiKey,
         String effectiveLanguage,
         long audioFileLimitSizeInBytes,
+        int maxConcurrentTranscriptions,
+        int maxConcurrentJobs,
+        Integer daemonPort,
+        int daemonQueueCapacity,
+        Path watchDirectoryPath,
+        Duration watchSettleTime,
+        boolean streamingUpload,
+        boolean pipelinedUpload,
+        boolean trimSilence,
+        EncodingProfile encodingProfile,
+        double tempoFactor,
         TranscriptionServiceDefinition serviceDefinition,
+        HttpTransportSettings httpTransportSettings,
+        RateLimitSettings rateLimitSettings,
+        Path stateDirectoryPath,
+        long transcriptCacheMaxSizeInBytes,
+        Duration modelCheckCacheTtl,
         String warningMessage
 ) {
 }
@@ -0,0 +1,131 @@
+package eu.nevian.speech_to_text_simple_java_client.daemon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobResult;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * A transcription job submitted to the {@link TranscriptionDaemon}, and what is known about it so far. Updated by the
+ * worker running it and read by the HTTP threads, so every access is synchronized.
+ */
+public class DaemonJob {
+    /** Where a job is in its life. */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED;
+
+        /** Name used in the JSON responses. */
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final String id;
+    private final Path inputPath;
+    private final String language;
+    private final Path outputPath;
+    private final Instant submittedAt = Instant.now();
+
+    private Status status = Status.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private double audioDurationInSeconds;
+    private int partCount;
+    private int characterCount;
+    private String error;
+
+    /**
+     * Constructor.
+     *
+     * @param id         Identifier of the job, used in the URLs.
+     * @param inputPath  Audio or video file to transcribe.
+     * @param language   Language of the audio.
+     * @param outputPath File the transcription is saved to.
+     */
+    public DaemonJob(String id, Path inputPath, String language, Path outputPath) {
+        this.id = id;
+        this.inputPath = inputPath;
+        this.language = language;
+        this.outputPath = outputPath;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Path getInputPath() {
+        return inputPath;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public Path getOutputPath() {
+        return outputPath;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized void markRunning() {
+        status = Status.RUNNING;
+        startedAt = Instant.now();
+    }
+
+    public synchronized void markDone(TranscriptionJobResult result) {
+        status = Status.DONE;
+        finishedAt = Instant.now();
+        // Only the figures are kept: the transcription itself is read back from the output file when asked for
+        audioDurationInSeconds = result.audioDurationInSeconds();
+        partCount = result.partCount();
+        characterCount = result.transcriptionText().length();
+    }
+
+    public synchronized void markFailed(String error) {
+        status = Status.FAILED;
+        finishedAt = Instant.now();
+        this.error = error;
+    }
+
+    /**
+     * Describes the job for the HTTP API.
+     *
+     * @param objectMapper Mapper used to create the JSON object.
+     * @return The job, as a JSON object.
+     */
+    public synchronized ObjectNode toJson(ObjectMapper objectMapper) {
+        ObjectNode jobNode = objectMapper.createObjectNode()
+                .put("id", id)
+                .put("status", status.getName())
+                .put("input", inputPath.toString())
+                .put("language", language)
+                .put("submitted_at", submittedAt.toString());
+
+        if (startedAt != null) {
+            jobNode.put("started_at", startedAt.toString())
+                    .put("queue_ms", startedAt.toEpochMilli() - submittedAt.toEpochMilli());
+        }
+        if (finishedAt != null) {
+            jobNode.put("finished_at", finishedAt.toString())
+                    .put("elapsed_ms", finishedAt.toEpochMilli() - startedAt.toEpochMilli());
+        }
+        if (status == Status.DONE) {
+            jobNode.put("audio_seconds", audioDurationInSeconds)
+                    .put("parts", partCount)
+                    .put("characters", characterCount);
+        }
+        if (error != null) {
+            jobNode.put("error", error);
+        }
+
+        return jobNode;
+    }
+}
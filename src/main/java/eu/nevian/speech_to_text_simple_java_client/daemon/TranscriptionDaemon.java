@@ -0,0 +1,327 @@
+package eu.nevian.speech_to_text_simple_java_client.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.TranscriptionJobException;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJob;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobContext;
+import eu.nevian.speech_to_text_simple_java_client.utils.LanguageSupport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Long-running transcription server. The JVM, the ffmpeg capability cache, the HTTP connection pool to the API and the
+ * worker pool are set up once, so each job only pays for its own audio and uploads.
+ * <p>
+ * The server only listens on the loopback interface, and only answers requests addressed to it by a loopback name
+ * ({@code localhost}, {@code 127.0.0.1} or {@code [::1]} with its port, {@code 403} otherwise): a web page cannot reach
+ * it through a DNS name rebound to the loopback address. Its API:
+ * <ul>
+ *     <li>{@code POST /jobs} with {@code {"path": "/abs/file.mp3", "language": "fr"}} (language optional) and a
+ *     {@code Content-Type: application/json} header ({@code 415} otherwise, so a page cannot send it as a simple
+ *     cross-origin form post): queues a job
+ *     and answers {@code 202} with the job. When the queue is full, the job is rejected with {@code 503} and a
+ *     {@code Retry-After} header, so callers slow down instead of piling up work. A file that is already queued or
+ *     running is not queued again: the answer is {@code 200} with the job already taking care of it;</li>
+ *     <li>{@code GET /jobs/{id}}: status and timings of a job;</li>
+ *     <li>{@code GET /jobs/{id}/transcript}: the transcription, once the job is done ({@code 409} before);</li>
+ *     <li>{@code GET /health}: number of queued and running jobs.</li>
+ * </ul>
+ * Jobs are only kept in memory: the transcripts are written to a directory of the state directory, which is emptied
+ * when the server starts, and only the most recent finished jobs are kept.
+ */
+public class TranscriptionDaemon {
+    private static final String TRANSCRIPT_DIRECTORY_NAME = "daemon-transcripts";
+
+    /** Finished jobs kept for polling. Older ones are forgotten and their transcript deleted. */
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    /** Largest request body accepted, a job submission is a few hundred bytes. */
+    private static final int MAX_REQUEST_BODY_SIZE = 64 * 1024;
+
+    /** Seconds a client is asked to wait before submitting again when the queue is full. */
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    /** Host names the server answers to, with its port appended. */
+    private static final List<String> LOOPBACK_HOST_NAMES = List.of("localhost", "127.0.0.1", "[::1]");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final TranscriptionJobContext context;
+    private final Path transcriptDirectoryPath;
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Map<String, DaemonJob> jobsById = new ConcurrentHashMap<>();
+    // Two jobs on the same file would share, and break, its journal
+    private final Map<Path, DaemonJob> activeJobsByInputPath = new ConcurrentHashMap<>();
+    private final Queue<String> finishedJobIds = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private TranscriptionDaemon(TranscriptionJobContext context, Path transcriptDirectoryPath, HttpServer httpServer,
+                                int maxConcurrentJobs, int queueCapacity) {
+        this.context = context;
+        this.transcriptDirectoryPath = transcriptDirectoryPath;
+        this.httpServer = httpServer;
+        this.httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // A bounded queue with the default abort policy: a full queue rejects the job instead of growing
+        this.jobExecutor = new ThreadPoolExecutor(
+                maxConcurrentJobs,
+                maxConcurrentJobs,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("daemon-job-", 0).factory()
+        );
+    }
+
+    /**
+     * Starts the server on the loopback interface.
+     *
+     * @param context           Settings and services shared by all the jobs.
+     * @param port              Port to listen on, or 0 to let the system pick a free one.
+     * @param maxConcurrentJobs Maximum number of jobs running at the same time.
+     * @param queueCapacity     Maximum number of jobs waiting for a worker.
+     * @return The running server.
+     * @throws IOException If the port cannot be bound or the transcript directory cannot be created.
+     */
+    public static TranscriptionDaemon start(TranscriptionJobContext context, int port, int maxConcurrentJobs,
+                                            int queueCapacity) throws IOException {
+        Path transcriptDirectoryPath = context.getConfig().stateDirectoryPath().resolve(TRANSCRIPT_DIRECTORY_NAME);
+        Files.createDirectories(transcriptDirectoryPath);
+        // Transcripts of a previous server cannot be asked for anymore, its jobs are gone
+        try (Stream<Path> oldTranscriptPaths = Files.list(transcriptDirectoryPath)) {
+            for (Path oldTranscriptPath : oldTranscriptPaths.toList()) {
+                Files.deleteIfExists(oldTranscriptPath);
+            }
+        }
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        TranscriptionDaemon daemon = new TranscriptionDaemon(context, transcriptDirectoryPath, httpServer,
+                maxConcurrentJobs, queueCapacity);
+        httpServer.createContext("/", daemon::handle);
+        httpServer.setExecutor(daemon.httpExecutor);
+        httpServer.start();
+        return daemon;
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Blocks until {@link #stop()} is called.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops accepting requests and interrupts the running jobs. Their journals keep what was done, so submitting the
+     * same files to the next server resumes them.
+     */
+    public void stop() {
+        httpServer.stop(0);
+        jobExecutor.shutdownNow();
+        httpExecutor.shutdownNow();
+        stopped.countDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isLoopbackHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                sendError(exchange, 403, "Requests must be addressed to localhost");
+                return;
+            }
+
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            String[] segments = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+
+            if (segments.length == 1 && segments[0].equals("jobs") && method.equals("POST")) {
+                submitJob(exchange);
+            } else if (segments.length == 2 && segments[0].equals("jobs") && method.equals("GET")) {
+                DaemonJob job = jobsById.get(segments[1]);
+                if (job == null) {
+                    sendError(exchange, 404, "Unknown job: " + segments[1]);
+                } else {
+                    sendJson(exchange, 200, job.toJson(OBJECT_MAPPER));
+                }
+            } else if (segments.length == 3 && segments[0].equals("jobs") && segments[2].equals("transcript")
+                    && method.equals("GET")) {
+                sendTranscript(exchange, jobsById.get(segments[1]), segments[1]);
+            } else if (segments.length == 1 && segments[0].equals("health") && method.equals("GET")) {
+                sendJson(exchange, 200, OBJECT_MAPPER.createObjectNode()
+                        .put("status", "ok")
+                        .put("queued", jobExecutor.getQueue().size())
+                        .put("running", jobExecutor.getActiveCount()));
+            } else {
+                sendError(exchange, 404, "Not found: " + method + " " + exchange.getRequestURI().getPath());
+            }
+        } catch (RuntimeException e) {
+            // The exchange is closed by now, only the server log can tell
+            System.err.println("Error handling daemon request: " + e);
+        }
+    }
+
+    private boolean isLoopbackHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        String normalizedHost = host.trim().toLowerCase(Locale.ROOT);
+        int port = getPort();
+        for (String hostName : LOOPBACK_HOST_NAMES) {
+            // Clients leave out the default port
+            if (normalizedHost.equals(hostName + ":" + port) || (port == 80 && normalizedHost.equals(hostName))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void submitJob(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String mediaType = contentType != null ? contentType.split(";", 2)[0].trim() : "";
+        if (!mediaType.equalsIgnoreCase("application/json")) {
+            sendError(exchange, 415, "Content-Type must be application/json");
+            return;
+        }
+
+        JsonNode requestNode;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            byte[] body = requestBody.readNBytes(MAX_REQUEST_BODY_SIZE + 1);
+            if (body.length > MAX_REQUEST_BODY_SIZE) {
+                sendError(exchange, 413, "Request body is too large");
+                return;
+            }
+            requestNode = OBJECT_MAPPER.readTree(body);
+        } catch (IOException e) {
+            sendError(exchange, 400, "Request body is not valid JSON");
+            return;
+        }
+
+        String path = requestNode != null ? requestNode.path("path").asText("") : "";
+        if (path.isEmpty()) {
+            sendError(exchange, 400, "Missing \"path\"");
+            return;
+        }
+        Path inputPath = Path.of(path).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(inputPath) || !Files.isReadable(inputPath)) {
+            sendError(exchange, 400, "Not a readable file: " + inputPath);
+            return;
+        }
+
+        String language = context.getConfig().effectiveLanguage();
+        if (requestNode.hasNonNull("language")) {
+            language = requestNode.path("language").asText().trim().toLowerCase(Locale.ROOT);
+            if (!LanguageSupport.isValidLanguageCode(language)) {
+                sendError(exchange, 400, "Invalid language code: " + language);
+                return;
+            }
+        }
+
+        String id = UUID.randomUUID().toString();
+        DaemonJob job = new DaemonJob(id, inputPath, language, transcriptDirectoryPath.resolve(id + ".txt"));
+        DaemonJob activeJob = activeJobsByInputPath.putIfAbsent(inputPath, job);
+        if (activeJob != null) {
+            exchange.getResponseHeaders().set("Location", "/jobs/" + activeJob.getId());
+            sendJson(exchange, 200, activeJob.toJson(OBJECT_MAPPER));
+            return;
+        }
+
+        jobsById.put(id, job);
+        try {
+            jobExecutor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException e) {
+            jobsById.remove(id);
+            activeJobsByInputPath.remove(inputPath, job);
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 503, "Job queue is full, try again later");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+        sendJson(exchange, 202, job.toJson(OBJECT_MAPPER));
+    }
+
+    private void runJob(DaemonJob job) {
+        job.markRunning();
+        try {
+            job.markDone(new TranscriptionJob(context, job.getInputPath(), job.getLanguage(), false)
+                    .run(job.getOutputPath()));
+        } catch (TranscriptionJobException | RuntimeException e) {
+            job.markFailed(String.valueOf(e.getMessage()));
+        } finally {
+            activeJobsByInputPath.remove(job.getInputPath(), job);
+        }
+
+        finishedJobIds.add(job.getId());
+        while (finishedJobIds.size() > MAX_FINISHED_JOBS) {
+            String forgottenJobId = finishedJobIds.poll();
+            DaemonJob forgottenJob = forgottenJobId != null ? jobsById.remove(forgottenJobId) : null;
+            if (forgottenJob != null) {
+                try {
+                    Files.deleteIfExists(forgottenJob.getOutputPath());
+                } catch (IOException e) {
+                    System.err.println("Warning: Failed to delete transcript of job " + forgottenJobId + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void sendTranscript(HttpExchange exchange, DaemonJob job, String id) throws IOException {
+        if (job == null) {
+            sendError(exchange, 404, "Unknown job: " + id);
+            return;
+        }
+        if (job.getStatus() != DaemonJob.Status.DONE) {
+            sendError(exchange, 409, "Job is " + job.getStatus().getName());
+            return;
+        }
+
+        byte[] transcript = Files.readAllBytes(job.getOutputPath());
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendBytes(exchange, 200, transcript);
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        sendJson(exchange, statusCode, OBJECT_MAPPER.createObjectNode().put("error", message));
+    }
+
+    private static void sendJson(HttpExchange exchange, int statusCode, ObjectNode body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        sendBytes(exchange, statusCode, OBJECT_MAPPER.writeValueAsBytes(body));
+    }
+
+    private static void sendBytes(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
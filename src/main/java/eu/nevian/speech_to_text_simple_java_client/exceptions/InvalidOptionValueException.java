@@ -0,0 +1,7 @@
+package eu.nevian.speech_to_text_simple_java_client.exceptions;
+
+public class InvalidOptionValueException extends Exception {
+    public InvalidOptionValueException(String message) {
+        super(message);
+    }
+}
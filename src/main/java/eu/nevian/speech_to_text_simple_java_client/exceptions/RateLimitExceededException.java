@@ -0,0 +1,16 @@
+package eu.nevian.speech_to_text_simple_java_client.exceptions;
+
+import java.io.IOException;
+
+public class RateLimitExceededException extends IOException {
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
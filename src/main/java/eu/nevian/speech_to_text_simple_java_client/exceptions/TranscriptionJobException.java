@@ -0,0 +1,30 @@
+package eu.nevian.speech_to_text_simple_java_client.exceptions;
+
+public class TranscriptionJobException extends Exception {
+    private final boolean retryable;
+
+    public TranscriptionJobException(String message) {
+        this(message, null, false);
+    }
+
+    public TranscriptionJobException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param message   Message shown to the user.
+     * @param cause     Cause of the failure.
+     * @param retryable True if the failure does not come from the input file (the API, the network, the local disk),
+     *                  so running the same job again later may succeed.
+     */
+    public TranscriptionJobException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
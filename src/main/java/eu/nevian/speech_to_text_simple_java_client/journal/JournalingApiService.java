@@ -0,0 +1,44 @@
+package eu.nevian.speech_to_text_simple_java_client.journal;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiService;
+
+import java.io.IOException;
+
+/**
+ * {@link ApiService} decorator that records every part transcript in a {@link TranscriptionJournal} and answers from
+ * the journal for the parts that were already transcribed before a crash.
+ */
+public class JournalingApiService implements ApiService {
+    private final ApiService delegate;
+    private final TranscriptionJournal transcriptionJournal;
+
+    public JournalingApiService(ApiService delegate, TranscriptionJournal transcriptionJournal) {
+        this.delegate = delegate;
+        this.transcriptionJournal = transcriptionJournal;
+    }
+
+    @Override
+    public String checkAiModelIsAvailable(String apiKey) throws IOException {
+        return delegate.checkAiModelIsAvailable(apiKey);
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException {
+        AudioFile audioFile = new AudioFile();
+        audioFile.setFilePath(audioFilePath);
+        return transcribeAudioFile(apiKey, language, audioFile);
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, AudioFile audioFile) throws IOException {
+        String journaledTranscript = transcriptionJournal.getTranscript(audioFile);
+        if (journaledTranscript != null) {
+            return journaledTranscript;
+        }
+
+        String transcript = delegate.transcribeAudioFile(apiKey, language, audioFile);
+        transcriptionJournal.recordTranscript(audioFile, transcript);
+        return transcript;
+    }
+}
@@ -0,0 +1,346 @@
+package eu.nevian.speech_to_text_simple_java_client.journal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Crash-safe record of a transcription job, kept in a hidden directory next to the input file. The directory holds
+ * the generated audio (extracted audio and split parts) and an append-only journal with one JSON record per line:
+ * <ul>
+ *     <li>{@code input}: size and modification time of the input file, and the language and audio settings (encoding
+ *     profile, tempo factor, silence trimming) of the job;</li>
+ *     <li>{@code plan}: the parts the input was split into;</li>
+ *     <li>{@code transcript}: the transcript of one part, written as soon as it is received.</li>
+ * </ul>
+ * Every record is forced to disk before the call returns. When the same input is transcribed again after a crash, the
+ * plan and the finished transcripts are read back, so only the missing parts are uploaded and ffmpeg is only run again
+ * for parts whose file is gone.
+ */
+public class TranscriptionJournal {
+    private static final String JOURNAL_DIRECTORY_SUFFIX = ".sttsjc-journal";
+    private static final String JOURNAL_FILE_NAME = "journal.log";
+
+    private static final String TYPE_FIELD = "type";
+    private static final String INPUT_RECORD = "input";
+    private static final String PLAN_RECORD = "plan";
+    private static final String TRANSCRIPT_RECORD = "transcript";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path directoryPath;
+    private final FileChannel journalChannel;
+    private final List<AudioFile> plannedParts = new ArrayList<>();
+    private final Map<String, String> transcriptsByPart = new HashMap<>();
+
+    private TranscriptionJournal(Path directoryPath, FileChannel journalChannel) {
+        this.directoryPath = directoryPath;
+        this.journalChannel = journalChannel;
+    }
+
+    /**
+     * Opens the journal of an input file. An existing journal is resumed if it was written for the same version of
+     * the input, the same language and the same audio settings, and all its generated audio is still there. Otherwise
+     * it is discarded and a new one is started: parts encoded with another profile or tempo, or cut from audio trimmed
+     * differently, would not match what is asked now.
+     *
+     * @param inputFilePath   Path to the file being transcribed.
+     * @param language        Language of the transcription.
+     * @param encodingProfile Encoding of the uploaded audio.
+     * @param tempoFactor     Speed-up applied to the uploaded audio.
+     * @param trimSilence     Whether long silences are shortened.
+     * @return The opened journal.
+     * @throws IOException If the journal directory cannot be created or written.
+     */
+    public static TranscriptionJournal open(Path inputFilePath, String language, EncodingProfile encodingProfile,
+                                            double tempoFactor, boolean trimSilence) throws IOException {
+        Path absoluteInputPath = inputFilePath.toAbsolutePath().normalize();
+        Path directoryPath = absoluteInputPath.resolveSibling(
+                "." + absoluteInputPath.getFileName() + JOURNAL_DIRECTORY_SUFFIX);
+        Path journalFilePath = directoryPath.resolve(JOURNAL_FILE_NAME);
+
+        long inputSize = Files.size(absoluteInputPath);
+        long inputLastModified = Files.getLastModifiedTime(absoluteInputPath).toMillis();
+
+        List<JsonNode> existingRecords = readRecords(journalFilePath);
+        boolean resumable = !existingRecords.isEmpty()
+                && isInputRecordOf(existingRecords.getFirst(), inputSize, inputLastModified, language, encodingProfile,
+                tempoFactor, trimSilence);
+        if (!resumable) {
+            deleteDirectory(directoryPath);
+        }
+
+        Files.createDirectories(directoryPath);
+        FileChannel journalChannel = FileChannel.open(journalFilePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        TranscriptionJournal journal = new TranscriptionJournal(directoryPath, journalChannel);
+
+        if (resumable) {
+            journal.replay(existingRecords);
+            if (!journal.plannedPartsExist()) {
+                journal.close();
+                deleteDirectory(directoryPath);
+                return open(inputFilePath, language, encodingProfile, tempoFactor, trimSilence);
+            }
+        } else {
+            journal.append(OBJECT_MAPPER.createObjectNode()
+                    .put(TYPE_FIELD, INPUT_RECORD)
+                    .put("size", inputSize)
+                    .put("lastModified", inputLastModified)
+                    .put("language", language)
+                    .put("encodingProfile", encodingProfile.getName())
+                    .put("tempoFactor", tempoFactor)
+                    .put("trimSilence", trimSilence));
+        }
+
+        return journal;
+    }
+
+    /**
+     * Returns the directory where the audio generated for the job should be written so it survives a crash.
+     *
+     * @return Path to the journal directory.
+     */
+    public Path getDirectoryPath() {
+        return directoryPath;
+    }
+
+    public synchronized boolean hasPlan() {
+        return !plannedParts.isEmpty();
+    }
+
+    public synchronized List<AudioFile> getPlannedParts() {
+        return Collections.unmodifiableList(new ArrayList<>(plannedParts));
+    }
+
+    public synchronized int getTranscribedPartCount() {
+        return transcriptsByPart.size();
+    }
+
+    /**
+     * Records the parts the input was split into.
+     *
+     * @param parts Parts, in playback order.
+     * @throws IOException If the record cannot be written.
+     */
+    public synchronized void recordPlan(List<AudioFile> parts) throws IOException {
+        ObjectNode planRecord = OBJECT_MAPPER.createObjectNode().put(TYPE_FIELD, PLAN_RECORD);
+        ArrayNode partsNode = planRecord.putArray("parts");
+        for (AudioFile part : parts) {
+            String filePath = part.getStorage() == AudioFileStorage.FILE
+                    ? Path.of(part.getFilePath()).toAbsolutePath().normalize().toString()
+                    : part.getFilePath();
+            ObjectNode partNode = partsNode.addObject()
+                    .put("filePath", filePath)
+                    .put("storage", part.getStorage().name())
+                    .put("duration", part.getDuration())
+                    .put("fileSize", part.getFileSize())
+                    .put("startTime", part.getStartTime());
+            if (part.getSourceFilePath() != null) {
+                partNode.put("sourceFilePath", Path.of(part.getSourceFilePath()).toAbsolutePath().normalize().toString());
+            }
+            if (part.getEncodingProfile() != null) {
+                partNode.put("encodingProfile", part.getEncodingProfile().getName());
+            }
+            if (part.getStorage() == AudioFileStorage.BYTE_RANGE) {
+                partNode.put("byteOffset", part.getByteOffset());
+            }
+            if (part.getTempoFactor() != 1) {
+                partNode.put("tempoFactor", part.getTempoFactor());
+            }
+        }
+
+        append(planRecord);
+        plannedParts.clear();
+        plannedParts.addAll(parts);
+    }
+
+    /**
+     * Returns the transcript already received for a part.
+     *
+     * @param part Planned part.
+     * @return The transcript, or null if the part has not been transcribed yet.
+     */
+    public synchronized String getTranscript(AudioFile part) {
+        return transcriptsByPart.get(partKeyOf(part));
+    }
+
+    /**
+     * Records the transcript of a part.
+     *
+     * @param part       Planned part.
+     * @param transcript Transcript received for it.
+     * @throws IOException If the record cannot be written.
+     */
+    public synchronized void recordTranscript(AudioFile part, String transcript) throws IOException {
+        String partKey = partKeyOf(part);
+        append(OBJECT_MAPPER.createObjectNode()
+                .put(TYPE_FIELD, TRANSCRIPT_RECORD)
+                .put("part", partKey)
+                .put("text", transcript));
+        transcriptsByPart.put(partKey, transcript);
+    }
+
+    /**
+     * Deletes the journal and all the audio generated for the job. To be called once the job has finished.
+     */
+    public synchronized void delete() {
+        close();
+        deleteDirectory(directoryPath);
+    }
+
+    /**
+     * Closes the journal, keeping it on disk so the job can be resumed.
+     */
+    public synchronized void close() {
+        try {
+            journalChannel.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to close transcription journal: " + e.getMessage());
+        }
+    }
+
+    private void replay(List<JsonNode> records) {
+        for (JsonNode journalRecord : records) {
+            switch (journalRecord.path(TYPE_FIELD).asText()) {
+                case PLAN_RECORD -> {
+                    plannedParts.clear();
+                    transcriptsByPart.clear();
+                    for (JsonNode partNode : journalRecord.path("parts")) {
+                        plannedParts.add(toAudioFile(partNode));
+                    }
+                }
+                case TRANSCRIPT_RECORD ->
+                        transcriptsByPart.put(journalRecord.path("part").asText(), journalRecord.path("text").asText());
+                default -> {
+                }
+            }
+        }
+    }
+
+    private boolean plannedPartsExist() {
+        for (AudioFile part : plannedParts) {
+            if (transcriptsByPart.containsKey(partKeyOf(part))) {
+                // Finished parts may already have been deleted.
+                continue;
+            }
+
+            boolean partFileExists = part.getStorage() == AudioFileStorage.FILE
+                    && Files.isRegularFile(Path.of(part.getFilePath()));
+            boolean sourceFileExists = part.getSourceFilePath() != null
+                    && Files.isRegularFile(Path.of(part.getSourceFilePath()));
+            if (!partFileExists && !sourceFileExists) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(JsonNode journalRecord) throws IOException {
+        byte[] line = (OBJECT_MAPPER.writeValueAsString(journalRecord) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            journalChannel.write(buffer);
+        }
+        journalChannel.force(true);
+    }
+
+    private static List<JsonNode> readRecords(Path journalFilePath) throws IOException {
+        List<JsonNode> records = new ArrayList<>();
+        if (!Files.isRegularFile(journalFilePath)) {
+            return records;
+        }
+
+        for (String line : Files.readAllLines(journalFilePath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                records.add(OBJECT_MAPPER.readTree(line));
+            } catch (IOException e) {
+                // A record torn by a crash can only be the last one: everything before it is still valid.
+                break;
+            }
+        }
+
+        return records;
+    }
+
+    private static AudioFile toAudioFile(JsonNode partNode) {
+        AudioFile part = new AudioFile();
+        part.setFilePath(partNode.path("filePath").asText());
+        part.setFileType(FileType.AUDIO);
+        part.setStorage(AudioFileStorage.valueOf(partNode.path("storage").asText(AudioFileStorage.FILE.name())));
+        part.setDuration(partNode.path("duration").asDouble());
+        part.setFileSize(partNode.path("fileSize").asLong());
+        part.setStartTime(partNode.path("startTime").asDouble());
+        if (partNode.has("sourceFilePath")) {
+            part.setSourceFilePath(partNode.path("sourceFilePath").asText());
+        }
+        if (partNode.has("encodingProfile")) {
+            part.setEncodingProfile(EncodingProfile.fromName(partNode.path("encodingProfile").asText()));
+        }
+        part.setTempoFactor(partNode.path("tempoFactor").asDouble(1));
+        part.setByteOffset(partNode.path("byteOffset").asLong());
+        return part;
+    }
+
+    private static boolean isInputRecordOf(JsonNode journalRecord, long inputSize, long inputLastModified, String language,
+                                           EncodingProfile encodingProfile, double tempoFactor, boolean trimSilence) {
+        // Journals written before the audio settings were recorded lack them, and are not resumed
+        return INPUT_RECORD.equals(journalRecord.path(TYPE_FIELD).asText())
+                && journalRecord.path("size").asLong(-1) == inputSize
+                && journalRecord.path("lastModified").asLong(-1) == inputLastModified
+                && language.equals(journalRecord.path("language").asText())
+                && encodingProfile.getName().equals(journalRecord.path("encodingProfile").asText())
+                && journalRecord.path("tempoFactor").asDouble(-1) == tempoFactor
+                && journalRecord.path("trimSilence").isBoolean()
+                && journalRecord.path("trimSilence").asBoolean() == trimSilence;
+    }
+
+    private static String partKeyOf(AudioFile part) {
+        if (part.getStorage() == AudioFileStorage.FILE) {
+            return Path.of(part.getFilePath()).toAbsolutePath().normalize().toString();
+        }
+
+        // Parts without a file of their own are identified by their name and where they are cut from.
+        return part.getFilePath() + "@" + part.getStartTime();
+    }
+
+    private static void deleteDirectory(Path directoryPath) {
+        if (!Files.exists(directoryPath)) {
+            return;
+        }
+
+        try (var paths = Files.walk(directoryPath)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.err.println("Warning: Failed to delete journal file: " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to delete transcription journal: " + e.getMessage());
+        }
+    }
+}
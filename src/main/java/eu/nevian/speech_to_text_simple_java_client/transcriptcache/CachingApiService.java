@@ -0,0 +1,75 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptcache;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiService;
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+
+import java.io.IOException;
+
+/**
+ * {@link ApiService} decorator that looks transcripts up in a {@link TranscriptCache} before calling the wrapped
+ * service, and stores every new transcript in it.
+ */
+public class CachingApiService implements ApiService {
+    private final ApiService delegate;
+    private final TranscriptCache transcriptCache;
+    private final String modelName;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate        Service that performs the API calls on a cache miss.
+     * @param transcriptCache Cache of transcripts.
+     * @param modelName       Name of the transcription model (followed by the endpoint when it is not the OpenAI one),
+     *                        part of every cache key.
+     */
+    public CachingApiService(ApiService delegate, TranscriptCache transcriptCache, String modelName) {
+        this.delegate = delegate;
+        this.transcriptCache = transcriptCache;
+        this.modelName = modelName;
+    }
+
+    @Override
+    public String checkAiModelIsAvailable(String apiKey) throws IOException {
+        return delegate.checkAiModelIsAvailable(apiKey);
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException {
+        AudioFile audioFile = new AudioFile();
+        audioFile.setFilePath(audioFilePath);
+        audioFile.setFileType(FileType.AUDIO);
+
+        String cacheKey = TranscriptCacheKey.of(audioFile, modelName, language);
+        String cachedTranscript = transcriptCache.get(cacheKey);
+        if (cachedTranscript != null) {
+            return cachedTranscript;
+        }
+
+        String transcript = delegate.transcribeAudioFile(apiKey, language, audioFilePath);
+        storeTranscript(cacheKey, transcript);
+        return transcript;
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, AudioFile audioFile) throws IOException {
+        String cacheKey = TranscriptCacheKey.of(audioFile, modelName, language);
+        String cachedTranscript = transcriptCache.get(cacheKey);
+        if (cachedTranscript != null) {
+            return cachedTranscript;
+        }
+
+        String transcript = delegate.transcribeAudioFile(apiKey, language, audioFile);
+        storeTranscript(cacheKey, transcript);
+        return transcript;
+    }
+
+    private void storeTranscript(String cacheKey, String transcript) {
+        try {
+            transcriptCache.put(cacheKey, transcript);
+        } catch (IOException e) {
+            // The transcript is still valid: losing the cache entry only costs a future upload.
+            System.err.println("Warning: Failed to store transcript in cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptcache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent, content-addressed cache of transcripts. Every entry is a gzip-compressed file named after its key (see
+ * {@link TranscriptCacheKey}). The entries are indexed in memory when the cache is opened, so a miss does not touch
+ * the disk. When the total size exceeds the cap, the least recently used entries are evicted. Recency is stored in the
+ * file modification times, so it survives between runs.
+ */
+public class TranscriptCache {
+    private static final String ENTRY_EXTENSION = ".txt.gz";
+
+    private final Path cacheDirectoryPath;
+    private final long maxSizeInBytes;
+
+    /** Entry sizes by key, in least recently used first order. */
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSizeInBytes;
+    private long hits;
+    private long misses;
+
+    private TranscriptCache(Path cacheDirectoryPath, long maxSizeInBytes) {
+        this.cacheDirectoryPath = cacheDirectoryPath;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Opens the cache stored in a directory, creating the directory if needed.
+     *
+     * @param cacheDirectoryPath Directory where the entries are stored.
+     * @param maxSizeInBytes     Maximum total size of the entries on disk.
+     * @return The opened cache.
+     * @throws IOException If the directory cannot be created or read.
+     */
+    public static TranscriptCache open(Path cacheDirectoryPath, long maxSizeInBytes) throws IOException {
+        Files.createDirectories(cacheDirectoryPath);
+
+        TranscriptCache transcriptCache = new TranscriptCache(cacheDirectoryPath, maxSizeInBytes);
+        transcriptCache.loadIndex();
+        return transcriptCache;
+    }
+
+    /**
+     * Returns a cached transcript and marks it as recently used.
+     *
+     * @param key Cache key.
+     * @return The transcript, or null if it is not cached.
+     */
+    public synchronized String get(String key) {
+        // get(), unlike containsKey(), moves the entry to the most recently used end
+        if (entrySizes.get(key) == null) {
+            misses++;
+            return null;
+        }
+
+        Path entryPath = entryPath(key);
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(entryPath))) {
+            String transcript = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+            hits++;
+            return transcript;
+        } catch (IOException e) {
+            // A damaged or vanished entry is just a miss.
+            removeEntry(key);
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Stores a transcript and evicts the least recently used entries if the cache grows over its cap.
+     *
+     * @param key        Cache key.
+     * @param transcript Transcript to store.
+     * @throws IOException If the entry cannot be written.
+     */
+    public synchronized void put(String key, String transcript) throws IOException {
+        Path entryPath = entryPath(key);
+        Path temporaryEntryPath = Files.createTempFile(cacheDirectoryPath, key, ".tmp");
+
+        try {
+            try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(temporaryEntryPath))) {
+                outputStream.write(transcript.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(temporaryEntryPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryEntryPath);
+        }
+
+        long entrySize = Files.size(entryPath);
+        Long previousSize = entrySizes.put(key, entrySize);
+        totalSizeInBytes += entrySize - (previousSize != null ? previousSize : 0);
+        evictLeastRecentlyUsed();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void loadIndex() throws IOException {
+        List<Map.Entry<String, BasicFileAttributes>> entries = new ArrayList<>();
+
+        try (DirectoryStream<Path> entryPaths = Files.newDirectoryStream(cacheDirectoryPath, "*" + ENTRY_EXTENSION)) {
+            for (Path entryPath : entryPaths) {
+                String fileName = entryPath.getFileName().toString();
+                String key = fileName.substring(0, fileName.length() - ENTRY_EXTENSION.length());
+                entries.add(Map.entry(key, Files.readAttributes(entryPath, BasicFileAttributes.class)));
+            }
+        }
+
+        entries.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        for (Map.Entry<String, BasicFileAttributes> entry : entries) {
+            entrySizes.put(entry.getKey(), entry.getValue().size());
+            totalSizeInBytes += entry.getValue().size();
+        }
+
+        evictLeastRecentlyUsed();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        // Iterate over the entries: a get() on an access-ordered map would reorder it while iterating.
+        Iterator<Map.Entry<String, Long>> entries = entrySizes.entrySet().iterator();
+        while (totalSizeInBytes > maxSizeInBytes && entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            totalSizeInBytes -= entry.getValue();
+            entries.remove();
+            deleteEntryFile(entry.getKey());
+        }
+    }
+
+    private void removeEntry(String key) {
+        Long size = entrySizes.remove(key);
+        if (size != null) {
+            totalSizeInBytes -= size;
+        }
+        deleteEntryFile(key);
+    }
+
+    private void deleteEntryFile(String key) {
+        try {
+            Files.deleteIfExists(entryPath(key));
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to delete transcript cache entry: " + e.getMessage());
+        }
+    }
+
+    private Path entryPath(String key) {
+        return cacheDirectoryPath.resolve(key + ENTRY_EXTENSION);
+    }
+}
@@ -0,0 +1,102 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptcache;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds transcript cache keys. A key is a SHA-256 over the audio content and every request parameter that changes the
+ * transcript (model and language), so the same audio uploaded under a different name or location hits the cache.
+ */
+public final class TranscriptCacheKey {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Digests of whole source files, keyed by path, size and modification time, so each one is read only once. */
+    private static final Map<String, byte[]> SOURCE_FILE_DIGESTS = new ConcurrentHashMap<>();
+
+    private TranscriptCacheKey() {
+    }
+
+    /**
+     * Builds the cache key of an audio part.
+     *
+     * @param audioFile Audio part to transcribe.
+     * @param modelName Name of the transcription model.
+     * @param language  Language of the audio.
+     * @return Hexadecimal cache key.
+     * @throws IOException If the audio cannot be read.
+     */
+    public static String of(AudioFile audioFile, String modelName, String language) throws IOException {
+        MessageDigest keyDigest = newSha256();
+
+        if (audioFile.getStorage() == AudioFileStorage.FFMPEG_STREAM) {
+            // The part bytes only exist while they are uploaded: identify them by their source and how they are cut.
+            keyDigest.update(digestSourceFile(Path.of(audioFile.getSourceFilePath())));
+            update(keyDigest, "stream:" + audioFile.getStartTime() + ":" + audioFile.getDuration() + ":"
+                    + audioFile.getEncodingProfile().getName() + ":" + audioFile.getTempoFactor());
+        } else if (audioFile.getStorage() == AudioFileStorage.BYTE_RANGE) {
+            keyDigest.update(digestSourceFile(Path.of(audioFile.getSourceFilePath())));
+            update(keyDigest, "range:" + audioFile.getByteOffset() + ":" + audioFile.getFileSize());
+        } else {
+            keyDigest.update(digestFile(Path.of(audioFile.getFilePath())));
+        }
+
+        update(keyDigest, modelName);
+        update(keyDigest, language);
+
+        return HexFormat.of().formatHex(keyDigest.digest());
+    }
+
+    private static byte[] digestSourceFile(Path sourceFilePath) throws IOException {
+        String identity = sourceFilePath.toAbsolutePath().normalize() + ":" + Files.size(sourceFilePath) + ":"
+                + Files.getLastModifiedTime(sourceFilePath).toMillis();
+
+        byte[] digest = SOURCE_FILE_DIGESTS.get(identity);
+        if (digest == null) {
+            digest = digestFile(sourceFilePath);
+            SOURCE_FILE_DIGESTS.put(identity, digest);
+        }
+
+        return digest;
+    }
+
+    private static byte[] digestFile(Path filePath) throws IOException {
+        MessageDigest fileDigest = newSha256();
+
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(filePath), fileDigest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (inputStream.read(buffer) != -1) {
+                // The digest is updated while reading.
+            }
+        }
+
+        return fileDigest.digest();
+    }
+
+    private static void update(MessageDigest messageDigest, String value) {
+        // A separator keeps ("ab", "c") and ("a", "bc") from producing the same key.
+        messageDigest.update((byte) 0);
+        if (value != null) {
+            messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionjob;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.SilenceMap;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.SilenceTrimResult;
+import eu.nevian.speech_to_text_simple_java_client.config.ResolvedApplicationConfig;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.FileValidationException;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.TranscriptionJobException;
+import eu.nevian.speech_to_text_simple_java_client.journal.JournalingApiService;
+import eu.nevian.speech_to_text_simple_java_client.journal.TranscriptionJournal;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiService;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ConcurrentTranscriber;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.PipelinedTranscriber;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+import eu.nevian.speech_to_text_simple_java_client.utils.MessageManager;
+import eu.nevian.speech_to_text_simple_java_client.utils.TemporaryWorkspaceHelper;
+import eu.nevian.speech_to_text_simple_java_client.utils.TextFileHelper;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transcribes one input file: validates it, extracts and prepares its audio, uploads the parts and saves the joined
+ * transcription. Jobs of the same run share a {@link TranscriptionJobContext}, so several of them can run at the same
+ * time in one JVM.
+ * <p>
+ * Each job keeps its own {@link TranscriptionJournal} next to the input, so a failed job is resumed the next time the
+ * same input is transcribed.
+ */
+public class TranscriptionJob {
+    private final TranscriptionJobContext context;
+    private final Path inputPath;
+    private final String language;
+    private final boolean verbose;
+
+    /**
+     * Constructor.
+     *
+     * @param context   Shared settings and services.
+     * @param inputPath Audio or video file to transcribe.
+     * @param language  Language of the audio, in ISO-639-1 format.
+     * @param verbose   Whether the progress of each step is printed. Jobs running concurrently should only print
+     *                  their outcome.
+     */
+    public TranscriptionJob(TranscriptionJobContext context, Path inputPath, String language, boolean verbose) {
+        this.context = context;
+        this.inputPath = inputPath;
+        this.language = language;
+        this.verbose = verbose;
+    }
+
+    /**
+     * Runs the job and saves the transcription.
+     *
+     * @param outputPath File the transcription is written to. It is overwritten if it exists.
+     * @return The outcome of the job.
+     * @throws TranscriptionJobException If any step fails. The message tells which one.
+     */
+    public TranscriptionJobResult run(Path outputPath) throws TranscriptionJobException {
+        ResolvedApplicationConfig config = context.getConfig();
+        EncodingProfile encodingProfile = context.getEncodingProfile();
+        double tempoFactor = context.getTempoFactor();
+
+        AudioFile audioFile = new AudioFile();
+        List<AudioFile> audioFileList = new ArrayList<>();
+
+        // Step 2: Check if the file exists and type
+        try {
+            log("Validating file...\n");
+
+            if (AudioFileHelper.validateFile(inputPath.toString())) {
+                audioFile.setFilePath(inputPath.toString());
+                log(MessageManager.getFileFoundMessage(audioFile.getFilePath()));
+            }
+
+            FileType fileType = AudioFileHelper.getFileType(audioFile.getFilePath());
+            audioFile.setFileType(fileType);
+
+            log("");
+            log(MessageManager.getFileTypeValidatedMessage(audioFile.getFileType().getType()));
+        } catch (FileValidationException | FileNotFoundException e) {
+            throw new TranscriptionJobException(e.getMessage(), e);
+        }
+
+        // The journal keeps the generated audio and the finished parts next to the input, so a failed run can resume
+        TranscriptionJournal transcriptionJournal = null;
+        try {
+            transcriptionJournal = TranscriptionJournal.open(inputPath.toAbsolutePath().normalize(), language,
+                    context.getEncodingProfile(), context.getTempoFactor(), context.isTrimSilence());
+        } catch (IOException e) {
+            System.err.println("Warning: Transcription journal is not available, an interrupted run will not be resumable: "
+                    + e.getMessage());
+        }
+
+        try (TemporaryWorkspaceHelper temporaryWorkspace = TemporaryWorkspaceHelper.createTemporaryWorkspace()) {
+            Path workingDirectoryPath = transcriptionJournal != null
+                    ? transcriptionJournal.getDirectoryPath()
+                    : temporaryWorkspace.getWorkspacePath();
+
+            boolean streamingUpload = config.streamingUpload();
+            boolean pipelinedUpload = config.pipelinedUpload();
+
+            if (transcriptionJournal != null && transcriptionJournal.hasPlan()) {
+                // Steps 3 to 5 were already done by the interrupted run
+                audioFileList.addAll(transcriptionJournal.getPlannedParts());
+                log("\nResuming previous run: " + transcriptionJournal.getTranscribedPartCount() + " of "
+                        + audioFileList.size() + " part(s) already transcribed.");
+
+                if (!pipelinedUpload) {
+                    // Parts deleted by a pipelined run, or never encoded before it stopped, are needed up front
+                    try {
+                        List<AudioFile> encodedParts = new ArrayList<>();
+                        for (AudioFile plannedPart : audioFileList) {
+                            if (transcriptionJournal.getTranscript(plannedPart) == null
+                                    && !Files.isRegularFile(Path.of(plannedPart.getFilePath()))) {
+                                encodedParts.addAll(AudioFileHelper.encodeAudioFilePart(plannedPart,
+                                        config.audioFileLimitSizeInBytes()));
+                            } else {
+                                encodedParts.add(plannedPart);
+                            }
+                        }
+                        audioFileList.clear();
+                        audioFileList.addAll(encodedParts);
+                    } catch (IOException e) {
+                        throw new TranscriptionJobException(e.getMessage(), e);
+                    }
+                }
+            } else {
+                // Inspect the file once: its streams, duration and size are used by all the steps below
+                try {
+                    audioFile.setMediaInfo(AudioFileHelper.inspectMediaFile(audioFile.getFilePath()));
+                } catch (IOException e) {
+                    throw new TranscriptionJobException("Error inspecting file: " + e.getMessage(), e);
+                }
+                if (!audioFile.getMediaInfo().hasAudio()) {
+                    throw new TranscriptionJobException("Error: The file has no audio stream.");
+                }
+
+                // Step 3: If the file is a video, extract the audio from it (when streaming, ffmpeg reads the video directly)
+                if (audioFile.getFileType() == FileType.VIDEO && !streamingUpload) {
+                    try {
+                        log("\nVideo detected. Extracting audio...\n");
+                        String audioFilePath = AudioFileHelper.extractAudioFromVideo(audioFile.getFilePath(),
+                                audioFile.getMediaInfo(), workingDirectoryPath, encodingProfile, tempoFactor,
+                                config.audioFileLimitSizeInBytes());
+                        audioFile.setFilePath(audioFilePath);
+                        audioFile.setFileType(FileType.AUDIO);
+                        audioFile.setMediaInfo(AudioFileHelper.inspectMediaFile(audioFilePath));
+                        log("Audio extracted to: " + audioFile.getFilePath());
+                    } catch (IOException e) {
+                        throw new TranscriptionJobException("Error extracting audio from video: " + e.getMessage(), e);
+                    }
+                }
+
+                // Step 4: Get audio file duration and size
+                try {
+                    audioFile.setDuration(audioFile.getMediaInfo().durationInSeconds());
+                    audioFile.setFileSize(audioFile.getMediaInfo().sizeInBytes());
+                    log("");
+                    log(audioFile.toString());
+
+                    // Shorten long silences, and find the pauses where the audio can be split without cutting words
+                    SilenceMap silenceMap = SilenceMap.EMPTY;
+                    if (context.isTrimSilence()) {
+                        log("\nTrimming long silences...");
+                        SilenceTrimResult silenceTrimResult = AudioFileHelper.trimSilence(audioFile, workingDirectoryPath,
+                                encodingProfile);
+                        log(String.format("Removed %.1f seconds of silence.",
+                                Math.max(0, audioFile.getDuration() - silenceTrimResult.audioFile().getDuration())));
+                        audioFile = silenceTrimResult.audioFile();
+                        silenceMap = silenceTrimResult.silenceMap();
+                        log(audioFile.toString());
+                    }
+
+                    // Step 5: Split the audio file if it is too big
+                    long maxFileSizeInBytes = config.audioFileLimitSizeInBytes();
+                    if (tempoFactor != 1) {
+                        log("\nAudio will be uploaded at " + tempoFactor + "x speed.");
+                    }
+                    if (streamingUpload) {
+                        audioFileList.addAll(AudioFileHelper.splitAudioFileForStreaming(audioFile, maxFileSizeInBytes,
+                                encodingProfile, tempoFactor, silenceMap));
+
+                        if (audioFileList.getFirst().getStorage() == AudioFileStorage.FFMPEG_STREAM) {
+                            log("\nAudio will be encoded while uploading, in " + audioFileList.size() + " part(s):");
+                            for (AudioFile af : audioFileList) {
+                                log(af.toString());
+                            }
+                        }
+                    } else if (pipelinedUpload) {
+                        audioFileList.addAll(
+                                AudioFileHelper.planAudioFileSplit(audioFile, maxFileSizeInBytes, workingDirectoryPath,
+                                        encodingProfile, tempoFactor, silenceMap)
+                        );
+
+                        if (audioFileList.size() > 1) {
+                            log("\nFile is too big. It will be split into " + audioFileList.size()
+                                    + " parts, each one encoded while the previous ones are uploading.");
+                        }
+                    } else {
+                        if (audioFile.getFileSize() > maxFileSizeInBytes) {
+                            log("\nFile is too big. Splitting it into smaller files...\n");
+                        }
+
+                        audioFileList.addAll(
+                                AudioFileHelper.splitAudioFileBySize(audioFile, maxFileSizeInBytes, workingDirectoryPath,
+                                        encodingProfile, tempoFactor, silenceMap)
+                        );
+                    }
+
+                    if (audioFileList.size() > 1 && !streamingUpload && !pipelinedUpload) {
+                        log("Audio split into " + audioFileList.size() + " smaller files:");
+                        for (AudioFile af : audioFileList) {
+                            log(af.toString());
+                        }
+                    }
+
+                    if (transcriptionJournal != null) {
+                        transcriptionJournal.recordPlan(audioFileList);
+                    }
+                } catch (IOException e) {
+                    throw new TranscriptionJobException(e.getMessage(), e);
+                }
+            }
+
+            // Step 8: It's time to call the API
+            ApiService apiService = context.getApiService();
+            if (transcriptionJournal != null) {
+                apiService = new JournalingApiService(apiService, transcriptionJournal);
+            }
+
+            try {
+                String apiKey = config.apiKey();
+
+                log("\n###### Checking access to OpenAI API: Whisper model ######");
+                String responseText = context.awaitModelCheck();
+                log("\nAPI Response: " + (!responseText.isEmpty()));
+
+                log("\n###### Transcribe audio to text ######");
+
+                String transcriptionText;
+                if (pipelinedUpload) {
+                    TranscriptionJournal journal = transcriptionJournal;
+                    PipelinedTranscriber pipelinedTranscriber = new PipelinedTranscriber(
+                            apiService,
+                            config.maxConcurrentTranscriptions(),
+                            PipelinedTranscriber.DEFAULT_READY_PART_CAPACITY,
+                            config.audioFileLimitSizeInBytes(),
+                            part -> journal != null && journal.getTranscript(part) != null,
+                            verbose
+                    );
+                    transcriptionText = pipelinedTranscriber.transcribeAll(apiKey, language, audioFileList);
+                } else {
+                    ConcurrentTranscriber concurrentTranscriber = new ConcurrentTranscriber(
+                            apiService,
+                            config.maxConcurrentTranscriptions(),
+                            verbose
+                    );
+                    transcriptionText = concurrentTranscriber.transcribeAll(apiKey, language, audioFileList);
+                }
+
+                TextFileHelper.saveTranscriptionToFile(transcriptionText, outputPath.toString());
+                if (transcriptionJournal != null) {
+                    transcriptionJournal.delete();
+                }
+
+                double audioDurationInSeconds = audioFileList.stream().mapToDouble(AudioFile::getDuration).sum();
+                return new TranscriptionJobResult(inputPath, outputPath, language, audioDurationInSeconds,
+                        audioFileList.size(), transcriptionText);
+            } catch (IOException e) {
+                String message = "Error fetching data from API: " + e.getMessage();
+                if (transcriptionJournal != null) {
+                    message += "\nProgress has been saved. Run the same command again to resume.";
+                }
+                throw new TranscriptionJobException(message, e, true);
+            }
+        } catch (IOException e) {
+            throw new TranscriptionJobException("Error creating temporary workspace: " + e.getMessage(), e, true);
+        } finally {
+            // Keeps the journal on disk if the job failed, so it can be resumed (no-op once it has been deleted)
+            if (transcriptionJournal != null) {
+                transcriptionJournal.close();
+            }
+        }
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+}
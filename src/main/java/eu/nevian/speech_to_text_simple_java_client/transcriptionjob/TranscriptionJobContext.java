@@ -0,0 +1,183 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionjob;
+
+import eu.nevian.speech_to_text_simple_java_client.config.ResolvedApplicationConfig;
+import eu.nevian.speech_to_text_simple_java_client.transcriptcache.CachingApiService;
+import eu.nevian.speech_to_text_simple_java_client.transcriptcache.TranscriptCache;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.AdaptiveConcurrencyLimiter;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiService;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.ApiWarmUp;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.AsyncApiService;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransport;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.RateLimitedApiService;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.TranscriptionServiceDefinition;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.WhisperApiService;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+
+import java.io.IOException;
+
+/**
+ * What every {@link TranscriptionJob} of a run shares: the resolved configuration, the audio settings this ffmpeg
+ * build supports, and a single chain of API services. Sharing the chain means one HTTP connection pool, one adaptive
+ * limit on the uploads in flight (whatever the number of jobs), one rate limiter and one transcript cache.
+ */
+public class TranscriptionJobContext {
+    private static final String TRANSCRIPT_CACHE_DIRECTORY_NAME = "transcripts";
+
+    private final ResolvedApplicationConfig config;
+    private final EncodingProfile encodingProfile;
+    private final boolean trimSilence;
+    private final double tempoFactor;
+    private final ApiService apiService;
+    private final TranscriptCache transcriptCache;
+    private final RateLimitedApiService rateLimitedApiService;
+    private final String cacheNamespace;
+
+    private ApiWarmUp apiWarmUp;
+    private String modelCheckResponse;
+
+    private TranscriptionJobContext(ResolvedApplicationConfig config, EncodingProfile encodingProfile, boolean trimSilence,
+                                    double tempoFactor, ApiService apiService, TranscriptCache transcriptCache,
+                                    RateLimitedApiService rateLimitedApiService, String cacheNamespace, ApiWarmUp apiWarmUp) {
+        this.config = config;
+        this.encodingProfile = encodingProfile;
+        this.trimSilence = trimSilence;
+        this.tempoFactor = tempoFactor;
+        this.apiService = apiService;
+        this.transcriptCache = transcriptCache;
+        this.rateLimitedApiService = rateLimitedApiService;
+        this.cacheNamespace = cacheNamespace;
+        this.apiWarmUp = apiWarmUp;
+    }
+
+    /**
+     * Opens the connection pool, starts the model check in the background and builds the shared API services.
+     *
+     * @param config          Resolved configuration.
+     * @param encodingProfile Encoding of the uploaded audio, among the ones the installed ffmpeg supports.
+     * @param trimSilence     Whether long silences are shortened (only if ffmpeg has the silence filters).
+     * @param tempoFactor     Speed-up applied to the uploaded audio (1 if ffmpeg has no atempo filter).
+     * @return The context.
+     */
+    public static TranscriptionJobContext open(ResolvedApplicationConfig config, EncodingProfile encodingProfile,
+                                               boolean trimSilence, double tempoFactor) {
+        // Results of another endpoint (a proxy, a local stand-in) must never be served for the OpenAI one
+        TranscriptionServiceDefinition serviceDefinition = config.serviceDefinition();
+        String cacheNamespace = serviceDefinition.equals(TranscriptionServiceDefinition.OPENAI_WHISPER)
+                ? serviceDefinition.modelName()
+                : serviceDefinition.modelName() + "@" + serviceDefinition.transcriptionUrl();
+
+        // Check the model and open the connection to the API while ffmpeg prepares the audio
+        HttpTransport.configure(config.httpTransportSettings());
+        WhisperApiService whisperApiService = new WhisperApiService(
+                serviceDefinition,
+                new AdaptiveConcurrencyLimiter(config.maxConcurrentTranscriptions())
+        );
+        RateLimitedApiService rateLimitedApiService = new RateLimitedApiService(
+                whisperApiService,
+                config.stateDirectoryPath(),
+                config.rateLimitSettings()
+        );
+        // The model check is a request like any other, it takes its token from the key's budget
+        ApiWarmUp apiWarmUp = startModelCheck(rateLimitedApiService, config, cacheNamespace);
+
+        ApiService apiService = rateLimitedApiService;
+
+        TranscriptCache transcriptCache = null;
+        try {
+            transcriptCache = TranscriptCache.open(
+                    config.stateDirectoryPath().resolve(TRANSCRIPT_CACHE_DIRECTORY_NAME),
+                    config.transcriptCacheMaxSizeInBytes()
+            );
+            apiService = new CachingApiService(
+                    apiService,
+                    transcriptCache,
+                    cacheNamespace
+            );
+        } catch (IOException e) {
+            System.err.println("Warning: Transcript cache is not available: " + e.getMessage());
+        }
+
+        return new TranscriptionJobContext(config, encodingProfile, trimSilence, tempoFactor, apiService,
+                transcriptCache, rateLimitedApiService, cacheNamespace, apiWarmUp);
+    }
+
+    /**
+     * Returns the result of the model check started by {@link #open}. A successful check is kept for the other jobs. A
+     * failed one is not: the next job starts a new check, so a transient network or server error does not fail every
+     * job of a long-running process.
+     * <p>
+     * Jobs running at the same time wait for the same check. They wait outside the lock: a virtual thread blocked
+     * inside a synchronized block holds its carrier thread, which the check itself may need to complete.
+     *
+     * @return Response body of the model check.
+     * @throws IOException If the model check failed.
+     */
+    public String awaitModelCheck() throws IOException {
+        ApiWarmUp runningModelCheck;
+        synchronized (this) {
+            if (modelCheckResponse != null) {
+                return modelCheckResponse;
+            }
+            if (apiWarmUp == null) {
+                apiWarmUp = startModelCheck(rateLimitedApiService, config, cacheNamespace);
+            }
+            runningModelCheck = apiWarmUp;
+        }
+
+        try {
+            String response = runningModelCheck.awaitModelCheck();
+            synchronized (this) {
+                modelCheckResponse = response;
+            }
+            return response;
+        } catch (IOException e) {
+            synchronized (this) {
+                // Started again by the next job, unless another one already did
+                if (apiWarmUp == runningModelCheck) {
+                    apiWarmUp = null;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static ApiWarmUp startModelCheck(AsyncApiService asyncApiService, ResolvedApplicationConfig config,
+                                             String cacheNamespace) {
+        return ApiWarmUp.start(
+                asyncApiService,
+                config.apiKey(),
+                cacheNamespace,
+                config.stateDirectoryPath(),
+                config.modelCheckCacheTtl()
+        );
+    }
+
+    public ResolvedApplicationConfig getConfig() {
+        return config;
+    }
+
+    public EncodingProfile getEncodingProfile() {
+        return encodingProfile;
+    }
+
+    public boolean isTrimSilence() {
+        return trimSilence;
+    }
+
+    public double getTempoFactor() {
+        return tempoFactor;
+    }
+
+    public ApiService getApiService() {
+        return apiService;
+    }
+
+    /**
+     * Returns the transcript cache, or null if it could not be opened.
+     *
+     * @return The transcript cache.
+     */
+    public TranscriptCache getTranscriptCache() {
+        return transcriptCache;
+    }
+}
@@ -0,0 +1,17 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionjob;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of a successful {@link TranscriptionJob}.
+ *
+ * @param inputPath              Input file.
+ * @param outputPath             File the transcription was saved to.
+ * @param language               Language the audio was transcribed in.
+ * @param audioDurationInSeconds Duration of the input audio.
+ * @param partCount              Number of parts the audio was uploaded in.
+ * @param transcriptionText      The transcription.
+ */
+public record TranscriptionJobResult(Path inputPath, Path outputPath, String language, double audioDurationInSeconds,
+                                     int partCount, String transcriptionText) {
+}
@@ -0,0 +1,109 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) limit on the number of requests in flight. Each successful
+ * response grows the limit by roughly one request per full window of successes. A throttled response (HTTP 429)
+ * halves it and pauses new requests until the time the server asked us to wait has passed.
+ * <p>
+ * The limit also stops growing when the rate limit headers report that fewer requests are left in the current window
+ * than are already in flight, so the client stays just under the account limits.
+ */
+public class AdaptiveConcurrencyLimiter {
+    /** Maximum limit used when no explicit one is given. */
+    public static final int DEFAULT_MAX_LIMIT = 16;
+
+    /** Pause applied after a throttled response without any retry hint. */
+    private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long pausedUntilMillis;
+
+    /**
+     * Constructor. The limit starts at its maximum and only shrinks once the server starts throttling.
+     *
+     * @param maxLimit Maximum number of requests allowed in flight.
+     */
+    public AdaptiveConcurrencyLimiter(int maxLimit) {
+        if (maxLimit <= 0) {
+            throw new IllegalArgumentException("maxLimit must be positive");
+        }
+
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Waits until a new request is allowed and reserves a slot for it. Every successful call must be paired with a
+     * call to {@link #release()}.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long pauseMillis = pausedUntilMillis - System.currentTimeMillis();
+            if (pauseMillis > 0) {
+                wait(pauseMillis);
+            } else if (inFlight >= getLimit()) {
+                wait();
+            } else {
+                inFlight++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot reserved by {@link #acquire()}.
+     */
+    public synchronized void release() {
+        inFlight = Math.max(0, inFlight - 1);
+        notifyAll();
+    }
+
+    /**
+     * Records a successful response and grows the limit if the server still has room for more requests.
+     *
+     * @param rateLimitInfo Rate limit headers of the response.
+     */
+    public synchronized void onSuccess(RateLimitInfo rateLimitInfo) {
+        long remainingRequests = rateLimitInfo.remainingRequests();
+        if (remainingRequests != RateLimitInfo.UNKNOWN && remainingRequests <= inFlight) {
+            // The window is almost exhausted: hold the limit where it is.
+            return;
+        }
+
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+        notifyAll();
+    }
+
+    /**
+     * Records a throttled response: halves the limit and pauses new requests for the time the server asked for.
+     *
+     * @param rateLimitInfo Rate limit headers of the response.
+     * @return The pause applied, in milliseconds.
+     */
+    public synchronized long onThrottled(RateLimitInfo rateLimitInfo) {
+        limit = Math.max(1, limit * DECREASE_FACTOR);
+
+        long backoffMillis = rateLimitInfo.retryAfterMillis() != RateLimitInfo.UNKNOWN
+                ? rateLimitInfo.retryAfterMillis()
+                : DEFAULT_BACKOFF_MILLIS;
+        pausedUntilMillis = Math.max(pausedUntilMillis, System.currentTimeMillis() + backoffMillis);
+        notifyAll();
+
+        return backoffMillis;
+    }
+
+    /**
+     * Returns the current limit on requests in flight.
+     *
+     * @return Current limit, always between 1 and the maximum limit.
+     */
+    public synchronized int getLimit() {
+        return (int) Math.floor(limit);
+    }
+}
@@ -0,0 +1,145 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two token buckets (requests per minute and audio seconds per minute) shared by everything that uses the same API
+ * key. The bucket state lives in a small file locked with {@link FileLock}, so concurrent invocations on the same host
+ * share the budget too. Callers that find the buckets empty wait for them to refill instead of failing.
+ */
+public final class ApiKeyRateLimiter {
+    private static final String STATE_FILE_EXTENSION = ".ratelimit";
+
+    /** requestTokens, audioTokens and lastRefillMillis. */
+    private static final int STATE_SIZE_IN_BYTES = Double.BYTES * 2 + Long.BYTES;
+
+    private static final Map<Path, ApiKeyRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final Path stateFilePath;
+    private final RateLimitSettings rateLimitSettings;
+
+    private ApiKeyRateLimiter(Path stateFilePath, RateLimitSettings rateLimitSettings) {
+        this.stateFilePath = stateFilePath;
+        this.rateLimitSettings = rateLimitSettings;
+    }
+
+    /**
+     * Returns the limiter of an API key. The key itself is never written to disk, only a hash of it.
+     *
+     * @param stateDirectoryPath Directory where the bucket state files are kept.
+     * @param apiKey             API key the budget belongs to.
+     * @param rateLimitSettings  Limits applied to the key.
+     * @return The limiter shared by every caller of this process using the same key.
+     * @throws IllegalStateException If the limiter of the key has already been created with other limits: both would
+     *                               share the same buckets.
+     */
+    public static ApiKeyRateLimiter forApiKey(Path stateDirectoryPath, String apiKey, RateLimitSettings rateLimitSettings) {
+        Path stateFilePath = stateDirectoryPath.resolve(hashApiKey(apiKey) + STATE_FILE_EXTENSION)
+                .toAbsolutePath()
+                .normalize();
+        ApiKeyRateLimiter limiter = LIMITERS.computeIfAbsent(stateFilePath,
+                path -> new ApiKeyRateLimiter(path, rateLimitSettings));
+        if (!limiter.rateLimitSettings.equals(rateLimitSettings)) {
+            throw new IllegalStateException("The rate limiter of this API key has already been created with "
+                    + limiter.rateLimitSettings);
+        }
+
+        return limiter;
+    }
+
+    /**
+     * Waits until one request and the given amount of audio fit in the buckets and takes them.
+     *
+     * @param audioSeconds Seconds of audio that the request uploads (0 for requests without audio).
+     * @throws IOException If the state file cannot be used or the thread is interrupted while waiting.
+     */
+    public void acquire(double audioSeconds) throws IOException {
+        // A single request bigger than the whole bucket would never fit: let it through once the bucket is full.
+        double audioCost = Math.min(Math.max(0, audioSeconds), rateLimitSettings.audioSecondsPerMinute());
+
+        while (true) {
+            long waitMillis = tryAcquire(audioCost);
+            if (waitMillis <= 0) {
+                return;
+            }
+
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the API key rate limit", e);
+            }
+        }
+    }
+
+    /**
+     * Takes the tokens if they are available.
+     *
+     * @return 0 if the tokens were taken, or the time to wait before trying again.
+     */
+    private synchronized long tryAcquire(double audioCost) throws IOException {
+        Files.createDirectories(stateFilePath.getParent());
+
+        try (FileChannel channel = FileChannel.open(stateFilePath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            long now = System.currentTimeMillis();
+            double requestCapacity = rateLimitSettings.requestsPerMinute();
+            double audioCapacity = rateLimitSettings.audioSecondsPerMinute();
+            double requestTokens = requestCapacity;
+            double audioTokens = audioCapacity;
+
+            ByteBuffer state = ByteBuffer.allocate(STATE_SIZE_IN_BYTES);
+            if (channel.read(state, 0) == STATE_SIZE_IN_BYTES) {
+                state.flip();
+                double elapsedMinutes = Math.max(0, now - state.getLong(Double.BYTES * 2)) / 60_000.0;
+                requestTokens = Math.min(requestCapacity, state.getDouble(0) + elapsedMinutes * requestCapacity);
+                audioTokens = Math.min(audioCapacity, state.getDouble(Double.BYTES) + elapsedMinutes * audioCapacity);
+            }
+
+            long waitMillis = Math.max(
+                    millisUntilAvailable(requestTokens, 1, requestCapacity),
+                    millisUntilAvailable(audioTokens, audioCost, audioCapacity)
+            );
+            if (waitMillis == 0) {
+                requestTokens -= 1;
+                audioTokens -= audioCost;
+            }
+
+            state.clear();
+            state.putDouble(requestTokens).putDouble(audioTokens).putLong(now).flip();
+            channel.write(state, 0);
+
+            return waitMillis;
+        }
+    }
+
+    private static long millisUntilAvailable(double tokens, double cost, double tokensPerMinute) {
+        if (tokens >= cost) {
+            return 0;
+        }
+
+        return Math.max(1, (long) Math.ceil((cost - tokens) / tokensPerMinute * 60_000));
+    }
+
+    private static String hashApiKey(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
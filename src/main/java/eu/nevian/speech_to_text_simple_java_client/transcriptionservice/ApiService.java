@@ -1,5 +1,7 @@
 package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
 
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+
 import java.io.IOException;
 
 /**
@@ -8,4 +10,12 @@ import java.io.IOException;
 public interface ApiService {
     String checkAiModelIsAvailable(String apiKey) throws IOException;
     String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException;
+
+    /**
+     * Transcribes an audio file whose metadata is already known. Implementations that need the duration or size of
+     * the audio can take it from here instead of inspecting the file again.
+     */
+    default String transcribeAudioFile(String apiKey, String language, AudioFile audioFile) throws IOException {
+        return transcribeAudioFile(apiKey, language, audioFile.getFilePath());
+    }
 }
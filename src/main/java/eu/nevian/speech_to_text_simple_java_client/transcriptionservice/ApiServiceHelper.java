@@ -1,39 +1,73 @@
 package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
 
 public class ApiServiceHelper {
     /**
-     * Performs an API request and shows a loading animation while waiting for the response.
+     * Performs an API request. Nothing is printed while waiting: the run the request belongs to shows a single loading
+     * animation for all its uploads.
      *
      * @param request Request to perform.
      * @return Response from the API.
      * @throws IOException If an error occurs while making the API call.
      */
-    public static Response performApiRequestWithAnimation(Request request, OkHttpClient httpClient) throws IOException {
-        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-        char[] spinnerChars = new char[]{'|', '/', '-', '\\'};
-        AtomicInteger spinnerIndex = new AtomicInteger(0);
-
-        Runnable loadingTask = () ->
-                System.out.print("\rLoading... " + spinnerChars[spinnerIndex.getAndIncrement() % spinnerChars.length]);
-
-        // Schedule the loadingTask to run every 100 milliseconds
-        executor.scheduleAtFixedRate(loadingTask, 0, 100, TimeUnit.MILLISECONDS);
-
-        try {
-            return httpClient.newCall(request).execute();
-        } finally {
-            // Shutdown the executor always
-            executor.shutdown();
-        }
+    public static Response performApiRequest(Request request, OkHttpClient httpClient) throws IOException {
+        return httpClient.newCall(request).execute();
+    }
+
+    /**
+     * Performs an API request asynchronously, without blocking the caller thread. The response is handed to the given
+     * handler on an HTTP client thread and closed afterwards. Cancelling the returned future cancels the HTTP call.
+     *
+     * @param request         Request to perform.
+     * @param httpClient      HTTP client used to perform the request.
+     * @param responseHandler Converts the response into the result of the future.
+     * @return Future completed with the handler result, or exceptionally if the call or the handler fails.
+     */
+    public static <T> CompletableFuture<T> performApiRequestAsync(Request request, OkHttpClient httpClient,
+                                                                  ResponseHandler<T> responseHandler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = httpClient.newCall(request);
+
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failedCall, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call completedCall, Response response) {
+                try (response) {
+                    future.complete(responseHandler.handle(response));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Converts an HTTP response into a result.
+     *
+     * @param <T> Type of the result.
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
     }
 }
@@ -0,0 +1,154 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the model availability check in the background while the audio is being prepared, so the DNS lookup, the TLS
+ * handshake and the check itself overlap with the ffmpeg work and the first upload finds a connection already open in
+ * the shared pool.
+ * <p>
+ * A successful check is remembered in the state directory for a limited time. While it is fresh, the check is still
+ * sent to warm the connection up, but nobody waits for it or cares about its result.
+ */
+public final class ApiWarmUp {
+    private static final String MODEL_CHECK_CACHE_FILE_NAME = "model-check.properties";
+    private static final String CHECKED_AT_SUFFIX = ".checked_at";
+    private static final String RESPONSE_SUFFIX = ".response";
+
+    private final CompletableFuture<String> modelCheck;
+    private final String cachedResponse;
+    private final Path cacheFilePath;
+    private final String cacheEntryName;
+
+    private ApiWarmUp(CompletableFuture<String> modelCheck, String cachedResponse, Path cacheFilePath, String cacheEntryName) {
+        this.modelCheck = modelCheck;
+        this.cachedResponse = cachedResponse;
+        this.cacheFilePath = cacheFilePath;
+        this.cacheEntryName = cacheEntryName;
+    }
+
+    /**
+     * Starts the model check in the background.
+     *
+     * @param asyncApiService    Service used for the check.
+     * @param apiKey             API key to check.
+     * @param modelName          Name of the model to check (followed by the endpoint when it is not the OpenAI one).
+     * @param stateDirectoryPath Directory where the result of the last successful check is kept.
+     * @param cacheTtl           How long a successful check is trusted.
+     * @return The running warm-up.
+     */
+    public static ApiWarmUp start(AsyncApiService asyncApiService, String apiKey, String modelName,
+                                  Path stateDirectoryPath, Duration cacheTtl) {
+        Path cacheFilePath = stateDirectoryPath.resolve(MODEL_CHECK_CACHE_FILE_NAME);
+        String cacheEntryName = hash(apiKey) + "." + modelName;
+        String cachedResponse = readCachedResponse(cacheFilePath, cacheEntryName, cacheTtl);
+
+        CompletableFuture<String> modelCheck = asyncApiService.checkAiModelIsAvailableAsync(apiKey);
+        return new ApiWarmUp(modelCheck, cachedResponse, cacheFilePath, cacheEntryName);
+    }
+
+    /**
+     * Returns the result of the model check, waiting for it only if there is no fresh cached result.
+     *
+     * @return Response body of the model check.
+     * @throws IOException If the model check failed.
+     */
+    public String awaitModelCheck() throws IOException {
+        if (cachedResponse != null) {
+            return cachedResponse;
+        }
+
+        String response;
+        try {
+            response = modelCheck.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            modelCheck.cancel(true);
+            throw new IOException("Interrupted while waiting for the model check", e);
+        } catch (CancellationException e) {
+            throw new IOException("Model check was cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+
+        writeCachedResponse(response);
+        return response;
+    }
+
+    private static String readCachedResponse(Path cacheFilePath, String cacheEntryName, Duration cacheTtl) {
+        if (!Files.isRegularFile(cacheFilePath)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(cacheFilePath)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            return null;
+        }
+
+        String checkedAt = properties.getProperty(cacheEntryName + CHECKED_AT_SUFFIX);
+        String response = properties.getProperty(cacheEntryName + RESPONSE_SUFFIX);
+        if (checkedAt == null || response == null) {
+            return null;
+        }
+
+        try {
+            long ageMillis = System.currentTimeMillis() - Long.parseLong(checkedAt);
+            return ageMillis >= 0 && ageMillis < cacheTtl.toMillis() ? response : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeCachedResponse(String response) {
+        Properties properties = new Properties();
+
+        try {
+            Files.createDirectories(cacheFilePath.getParent());
+            if (Files.isRegularFile(cacheFilePath)) {
+                try (InputStream inputStream = Files.newInputStream(cacheFilePath)) {
+                    properties.load(inputStream);
+                }
+            }
+
+            properties.setProperty(cacheEntryName + CHECKED_AT_SUFFIX, String.valueOf(System.currentTimeMillis()));
+            properties.setProperty(cacheEntryName + RESPONSE_SUFFIX, response);
+
+            Path temporaryFilePath = Files.createTempFile(cacheFilePath.getParent(), MODEL_CHECK_CACHE_FILE_NAME, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFilePath)) {
+                properties.store(outputStream, null);
+            }
+            Files.move(temporaryFilePath, cacheFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not being able to cache the check only means it will be awaited again next time.
+            System.err.println("Warning: Failed to cache the model check: " + e.getMessage());
+        }
+    }
+
+    private static String hash(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
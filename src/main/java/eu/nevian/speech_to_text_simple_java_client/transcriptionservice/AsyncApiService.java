@@ -0,0 +1,12 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link ApiService}. The returned futures complete on the HTTP client's own threads, so no
+ * caller thread is held while a request is in flight. Cancelling a returned future cancels the underlying HTTP call.
+ */
+public interface AsyncApiService {
+    CompletableFuture<String> checkAiModelIsAvailableAsync(String apiKey);
+    CompletableFuture<String> transcribeAudioFileAsync(String apiKey, String language, String audioFilePath);
+}
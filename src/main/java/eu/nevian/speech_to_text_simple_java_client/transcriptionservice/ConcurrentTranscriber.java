@@ -0,0 +1,104 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Transcribes the parts of a split audio file concurrently. Parts are scheduled longest first, so the slowest upload
+ * starts as soon as possible, and the texts are joined back in the original part order.
+ */
+public class ConcurrentTranscriber {
+    /** Separator placed between the transcriptions of consecutive parts. */
+    public static final String PART_SEPARATOR = "\n//\n";
+
+    private final ApiService apiService;
+    private final int maxConcurrentTranscriptions;
+    private final boolean showProgress;
+
+    /**
+     * Constructor.
+     *
+     * @param apiService                  Service used to transcribe each part.
+     * @param maxConcurrentTranscriptions Maximum number of parts uploaded at the same time.
+     * @param showProgress                Whether a loading animation is shown while the parts are transcribed.
+     */
+    public ConcurrentTranscriber(ApiService apiService, int maxConcurrentTranscriptions, boolean showProgress) {
+        if (maxConcurrentTranscriptions <= 0) {
+            throw new IllegalArgumentException("maxConcurrentTranscriptions must be positive");
+        }
+
+        this.apiService = apiService;
+        this.maxConcurrentTranscriptions = maxConcurrentTranscriptions;
+        this.showProgress = showProgress;
+    }
+
+    /**
+     * Transcribes all the parts and joins the texts in the order of the given list.
+     *
+     * @param apiKey         API key to use for the API calls.
+     * @param language       Language of the audio.
+     * @param audioFileParts Parts to transcribe, in playback order.
+     * @return The joined transcription.
+     * @throws IOException If any of the parts cannot be transcribed. The remaining uploads are cancelled.
+     */
+    public String transcribeAll(String apiKey, String language, List<AudioFile> audioFileParts) throws IOException {
+        String[] transcriptions = new String[audioFileParts.size()];
+
+        // Longest parts first: with a bounded pool the total time is closer to the slowest single part.
+        List<Integer> schedulingOrder = IntStream.range(0, audioFileParts.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> audioFileParts.get(i).getDuration()).reversed())
+                .toList();
+
+        int poolSize = Math.min(maxConcurrentTranscriptions, Math.max(1, audioFileParts.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, Thread.ofVirtual().name("transcription-", 0).factory());
+        ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+
+        try (ProgressSpinner progressSpinner = ProgressSpinner.start(audioFileParts.size(), showProgress)) {
+            for (int index : schedulingOrder) {
+                completionService.submit(() -> {
+                    transcriptions[index] = apiService.transcribeAudioFile(apiKey, language, audioFileParts.get(index));
+                    progressSpinner.partTranscribed();
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < schedulingOrder.size(); i++) {
+                awaitNext(completionService);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return String.join(PART_SEPARATOR, transcriptions);
+    }
+
+    static void awaitNext(ExecutorCompletionService<Void> completionService) throws IOException {
+        try {
+            completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcription was interrupted", e);
+        } catch (CancellationException e) {
+            throw new IOException("Transcription was cancelled", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import eu.nevian.speech_to_text_simple_java_client.utils.FfmpegProcessHelper;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Request body that runs ffmpeg while it is written and copies the encoded audio from ffmpeg's standard output
+ * straight into the request. Nothing is written to disk, and the upload starts as soon as ffmpeg produces its first
+ * bytes. The size limit is enforced on the fly: ffmpeg is stopped and the upload fails as soon as it is exceeded.
+ * <p>
+ * Each call to {@link #writeTo(BufferedSink)} starts a new ffmpeg process, so the body can be written again when a
+ * request is retried.
+ */
+public class FfmpegStreamingRequestBody extends RequestBody {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String sourceFilePath;
+    private final double startTime;
+    private final double duration;
+    private final long maxSizeInBytes;
+    private final EncodingProfile encodingProfile;
+    private final double tempoFactor;
+    private final MediaType mediaType;
+
+    /**
+     * Constructor.
+     *
+     * @param sourceFilePath Path to the file the audio is cut from.
+     * @param startTime      Start time, in seconds, of the part to upload.
+     * @param duration       Duration, in seconds, of the part to upload.
+     * @param maxSizeInBytes Maximum number of bytes the encoded part may have.
+     * @param encodingProfile How the part is encoded. It also gives the media type of the body.
+     * @param tempoFactor    Speed-up applied to the part (1 to keep the original speed).
+     */
+    public FfmpegStreamingRequestBody(String sourceFilePath, double startTime, double duration, long maxSizeInBytes,
+                                      EncodingProfile encodingProfile, double tempoFactor) {
+        this.sourceFilePath = sourceFilePath;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.encodingProfile = encodingProfile;
+        this.tempoFactor = tempoFactor;
+        this.mediaType = MediaType.get(encodingProfile.getMediaType());
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        // Unknown until ffmpeg finishes: the body is sent with chunked transfer encoding.
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Process process = FfmpegProcessHelper.createCutAudioToStdoutProcessBuilder(sourceFilePath, startTime, duration, encodingProfile,
+                        tempoFactor)
+                .start();
+
+        try (InputStream encodedAudio = process.getInputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long writtenBytes = 0;
+            int readBytes;
+            while ((readBytes = encodedAudio.read(buffer)) != -1) {
+                writtenBytes += readBytes;
+                if (writtenBytes > maxSizeInBytes) {
+                    throw new IOException("Error streaming audio part: encoded size exceeds the limit of "
+                            + maxSizeInBytes + " bytes");
+                }
+                sink.write(buffer, 0, readBytes);
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Error streaming audio part: ffmpeg exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Error streaming audio part: ffmpeg process was interrupted", e);
+        } finally {
+            process.destroy();
+        }
+    }
+}
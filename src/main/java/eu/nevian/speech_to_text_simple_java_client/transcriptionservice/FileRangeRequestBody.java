@@ -0,0 +1,65 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request body made of a range of bytes of a file, sent as it is. The bytes go from the file channel to the request
+ * with {@link FileChannel#transferTo}, so the range is never read into an array of its own, and no part file has to be
+ * written to disk.
+ * <p>
+ * Each call to {@link #writeTo(BufferedSink)} opens the file again, so the body can be written again when a request is
+ * retried.
+ */
+public class FileRangeRequestBody extends RequestBody {
+    private final Path filePath;
+    private final long offset;
+    private final long length;
+    private final MediaType mediaType;
+
+    /**
+     * Constructor.
+     *
+     * @param filePath  Path to the file the range is read from.
+     * @param offset    Offset, in bytes, of the first byte of the range.
+     * @param length    Number of bytes of the range.
+     * @param mediaType Media type of the range.
+     */
+    public FileRangeRequestBody(Path filePath, long offset, long length, MediaType mediaType) {
+        this.filePath = filePath;
+        this.offset = offset;
+        this.length = length;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long transferredBytes = 0;
+            while (transferredBytes < length) {
+                long count = channel.transferTo(offset + transferredBytes, length - transferredBytes, sink);
+                if (count <= 0) {
+                    throw new IOException("Error uploading audio part: " + filePath + " ends before byte "
+                            + (offset + length));
+                }
+                transferredBytes += count;
+            }
+        }
+    }
+}
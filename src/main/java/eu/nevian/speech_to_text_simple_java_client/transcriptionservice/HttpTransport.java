@@ -0,0 +1,106 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide HTTP transport shared by every service instance. Sharing a single {@link OkHttpClient} means a single
+ * connection pool and dispatcher, so the model check and all the chunk uploads reuse the same TLS connections (and the
+ * same HTTP/2 connection when the server supports it).
+ */
+public final class HttpTransport {
+    private static final AtomicLong CONNECTIONS_OPENED = new AtomicLong();
+    private static final AtomicLong CONNECTIONS_ACQUIRED = new AtomicLong();
+
+    private static HttpTransportSettings settings = HttpTransportSettings.DEFAULT;
+    private static OkHttpClient sharedHttpClient;
+
+    private HttpTransport() {
+    }
+
+    /**
+     * Sets the tuning values of the shared transport. It must be called before the shared client is first used, unless
+     * the values are the ones it was created with (several contexts opened in the same JVM).
+     *
+     * @param transportSettings Tuning values to use.
+     * @throws IllegalStateException If the shared client has already been created with other values.
+     */
+    public static synchronized void configure(HttpTransportSettings transportSettings) {
+        if (sharedHttpClient != null && !settings.equals(transportSettings)) {
+            throw new IllegalStateException("The shared HTTP transport has already been created");
+        }
+
+        settings = transportSettings;
+    }
+
+    /**
+     * Returns the shared HTTP client, creating it on first use.
+     *
+     * @return The shared HTTP client.
+     */
+    public static synchronized OkHttpClient getSharedHttpClient() {
+        if (sharedHttpClient == null) {
+            sharedHttpClient = createHttpClient(settings);
+        }
+
+        return sharedHttpClient;
+    }
+
+    /**
+     * Returns the connection counters of the shared transport.
+     *
+     * @return Number of connections opened and number of requests that reused an already open connection.
+     */
+    public static HttpTransportStatistics getStatistics() {
+        long opened = CONNECTIONS_OPENED.get();
+        long acquired = CONNECTIONS_ACQUIRED.get();
+        return new HttpTransportStatistics(opened, Math.max(0, acquired - opened));
+    }
+
+    private static OkHttpClient createHttpClient(HttpTransportSettings transportSettings) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(transportSettings.maxRequests());
+        dispatcher.setMaxRequestsPerHost(transportSettings.maxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(0, TimeUnit.SECONDS)
+                .writeTimeout(0, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(
+                        transportSettings.maxIdleConnections(),
+                        transportSettings.keepAliveSeconds(),
+                        TimeUnit.SECONDS))
+                // HTTP/2 is negotiated through ALPN and lets concurrent uploads share one connection.
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListener(new ConnectionCountingEventListener())
+                .build();
+    }
+
+    /**
+     * Counts new connections against connection acquisitions. Every request acquires a connection, but only the
+     * requests that could not reuse one trigger a connect.
+     */
+    private static final class ConnectionCountingEventListener extends EventListener {
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            CONNECTIONS_OPENED.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            CONNECTIONS_ACQUIRED.incrementAndGet();
+        }
+    }
+}
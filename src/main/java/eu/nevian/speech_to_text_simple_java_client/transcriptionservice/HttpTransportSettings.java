@@ -0,0 +1,18 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+/**
+ * Tuning values for the process-wide HTTP transport.
+ *
+ * @param maxIdleConnections Maximum number of idle connections kept in the pool.
+ * @param keepAliveSeconds   Time an idle connection is kept in the pool before being closed.
+ * @param maxRequests        Maximum number of asynchronous requests executed at the same time.
+ * @param maxRequestsPerHost Maximum number of asynchronous requests executed at the same time against one host.
+ */
+public record HttpTransportSettings(
+        int maxIdleConnections,
+        long keepAliveSeconds,
+        int maxRequests,
+        int maxRequestsPerHost
+) {
+    public static final HttpTransportSettings DEFAULT = new HttpTransportSettings(5, 300, 64, 16);
+}
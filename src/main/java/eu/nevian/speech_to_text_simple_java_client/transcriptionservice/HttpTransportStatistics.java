@@ -0,0 +1,10 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+/**
+ * Connection counters of the shared HTTP transport.
+ *
+ * @param connectionsOpened Number of new connections established (each one implies a TCP and TLS handshake).
+ * @param connectionsReused Number of requests served over an already open connection.
+ */
+public record HttpTransportStatistics(long connectionsOpened, long connectionsReused) {
+}
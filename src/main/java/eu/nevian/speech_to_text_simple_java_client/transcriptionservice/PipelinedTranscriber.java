@@ -0,0 +1,129 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Transcribes parts planned by {@link AudioFileHelper#planAudioFileSplit} while they are still being encoded. One
+ * producer encodes the parts in playback order and hands them over through a bounded queue to the uploaders, which
+ * delete each part file as soon as its transcript has been received. ffmpeg therefore runs while the previous parts are
+ * uploading, and at most {@code readyPartCapacity} encoded parts wait on disk besides the ones being uploaded.
+ * <p>
+ * A part that turns out to be over the size limit once encoded is split again by the producer. Its sub-parts are
+ * uploaded one after the other by the same uploader, and their texts take the place of the part's.
+ */
+public class PipelinedTranscriber {
+    /** Number of encoded parts allowed to wait for an uploader when no explicit capacity is given. */
+    public static final int DEFAULT_READY_PART_CAPACITY = 2;
+
+    /** Queue marker telling an uploader that no more parts will come. */
+    private static final int NO_MORE_PARTS = -1;
+
+    private final ApiService apiService;
+    private final int maxConcurrentTranscriptions;
+    private final int readyPartCapacity;
+    private final long maxSizeInBytes;
+    private final boolean showProgress;
+    private final Predicate<AudioFile> alreadyTranscribed;
+
+    /**
+     * Constructor.
+     *
+     * @param apiService                  Service used to transcribe each part.
+     * @param maxConcurrentTranscriptions Maximum number of parts uploaded at the same time.
+     * @param readyPartCapacity           Maximum number of encoded parts waiting for an uploader.
+     * @param maxSizeInBytes              Maximum size of each uploaded part in bytes.
+     * @param alreadyTranscribed          Tells which parts the service can answer without their file (for example
+     *                                    from a journal), so they are not encoded again.
+     * @param showProgress                Whether a loading animation is shown while the parts are transcribed.
+     */
+    public PipelinedTranscriber(ApiService apiService, int maxConcurrentTranscriptions, int readyPartCapacity,
+                                long maxSizeInBytes, Predicate<AudioFile> alreadyTranscribed, boolean showProgress) {
+        if (maxConcurrentTranscriptions <= 0) {
+            throw new IllegalArgumentException("maxConcurrentTranscriptions must be positive");
+        }
+        if (readyPartCapacity <= 0) {
+            throw new IllegalArgumentException("readyPartCapacity must be positive");
+        }
+
+        this.apiService = apiService;
+        this.maxConcurrentTranscriptions = maxConcurrentTranscriptions;
+        this.readyPartCapacity = readyPartCapacity;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.alreadyTranscribed = alreadyTranscribed;
+        this.showProgress = showProgress;
+    }
+
+    /**
+     * Encodes and transcribes all the parts and joins the texts in the order of the given list.
+     *
+     * @param apiKey         API key to use for the API calls.
+     * @param language       Language of the audio.
+     * @param audioFileParts Planned parts to transcribe, in playback order.
+     * @return The joined transcription.
+     * @throws IOException If any of the parts cannot be encoded or transcribed. The remaining work is cancelled.
+     */
+    public String transcribeAll(String apiKey, String language, List<AudioFile> audioFileParts) throws IOException {
+        String[] transcriptions = new String[audioFileParts.size()];
+
+        int uploaderCount = Math.min(maxConcurrentTranscriptions, Math.max(1, audioFileParts.size()));
+        BlockingQueue<Integer> readyParts = new ArrayBlockingQueue<>(readyPartCapacity);
+        // What is uploaded for each planned part: the part itself, or its sub-parts if it was over the limit
+        Map<Integer, List<AudioFile>> encodedParts = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(uploaderCount + 1, Thread.ofVirtual().name("pipeline-", 0).factory());
+        ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+
+        try (ProgressSpinner progressSpinner = ProgressSpinner.start(audioFileParts.size(), showProgress)) {
+            completionService.submit(() -> {
+                for (int index = 0; index < audioFileParts.size(); index++) {
+                    AudioFile part = audioFileParts.get(index);
+                    encodedParts.put(index, alreadyTranscribed.test(part)
+                            ? List.of(part)
+                            : AudioFileHelper.encodeAudioFilePart(part, maxSizeInBytes));
+                    readyParts.put(index);
+                }
+                for (int i = 0; i < uploaderCount; i++) {
+                    readyParts.put(NO_MORE_PARTS);
+                }
+                return null;
+            });
+
+            for (int i = 0; i < uploaderCount; i++) {
+                completionService.submit(() -> {
+                    int index;
+                    while ((index = readyParts.take()) != NO_MORE_PARTS) {
+                        List<String> partTranscriptions = new ArrayList<>();
+                        for (AudioFile part : encodedParts.get(index)) {
+                            partTranscriptions.add(apiService.transcribeAudioFile(apiKey, language, part));
+                            AudioFileHelper.deleteEncodedAudioFilePart(part);
+                        }
+                        transcriptions[index] = String.join(ConcurrentTranscriber.PART_SEPARATOR, partTranscriptions);
+                        progressSpinner.partTranscribed();
+                    }
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < uploaderCount + 1; i++) {
+                ConcurrentTranscriber.awaitNext(completionService);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return String.join(ConcurrentTranscriber.PART_SEPARATOR, transcriptions);
+    }
+}
@@ -0,0 +1,74 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loading animation of a transcription run: a spinner on the current console line, followed by the number of parts
+ * transcribed so far. One spinner is shown per run, however many uploads are in flight.
+ */
+final class ProgressSpinner implements AutoCloseable {
+    private static final char[] SPINNER_CHARS = {'|', '/', '-', '\\'};
+    private static final long REFRESH_INTERVAL_MILLIS = 100;
+
+    private final int totalParts;
+    private final AtomicInteger transcribedParts = new AtomicInteger();
+    private final ScheduledExecutorService executor;
+
+    private ProgressSpinner(int totalParts, boolean visible) {
+        this.totalParts = totalParts;
+        this.executor = visible
+                ? Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("progress-spinner").daemon().factory())
+                : null;
+    }
+
+    /**
+     * Starts the animation.
+     *
+     * @param totalParts Number of parts of the run.
+     * @param visible    Whether anything is printed. Runs that only print their outcome get a silent spinner.
+     * @return The spinner, to be closed when the run is over.
+     */
+    static ProgressSpinner start(int totalParts, boolean visible) {
+        ProgressSpinner progressSpinner = new ProgressSpinner(totalParts, visible);
+        if (progressSpinner.executor != null) {
+            AtomicInteger spinnerIndex = new AtomicInteger();
+            progressSpinner.executor.scheduleAtFixedRate(
+                    () -> progressSpinner.print(SPINNER_CHARS[spinnerIndex.getAndIncrement() % SPINNER_CHARS.length]),
+                    0, REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return progressSpinner;
+    }
+
+    /**
+     * Counts a part whose transcript has been received.
+     */
+    void partTranscribed() {
+        transcribedParts.incrementAndGet();
+    }
+
+    /**
+     * Stops the animation. Nothing is printed once this returns.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void print(char spinnerChar) {
+        String partProgress = totalParts > 1 ? " " + transcribedParts.get() + "/" + totalParts + " parts" : "";
+        System.out.print("\rLoading... " + spinnerChar + partProgress);
+    }
+}
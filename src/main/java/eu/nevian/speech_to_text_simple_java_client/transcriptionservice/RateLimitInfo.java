@@ -0,0 +1,100 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import okhttp3.Response;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rate limit state reported by the API in the response headers. Values that are not present in the response are
+ * {@link #UNKNOWN}.
+ *
+ * @param limitRequests     Maximum number of requests allowed in the current window.
+ * @param remainingRequests Requests left in the current window.
+ * @param remainingTokens   Tokens left in the current window.
+ * @param retryAfterMillis  Time to wait before retrying, from Retry-After or the request window reset.
+ */
+public record RateLimitInfo(long limitRequests, long remainingRequests, long remainingTokens, long retryAfterMillis) {
+    public static final long UNKNOWN = -1;
+
+    /** Go-style durations used by the x-ratelimit-reset-* headers, e.g. "1s", "6m0s" or "120ms". */
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    /**
+     * Reads the rate limit headers of a response.
+     *
+     * @param response Response to read.
+     * @return The rate limit state reported by the response.
+     */
+    public static RateLimitInfo fromResponse(Response response) {
+        long retryAfterMillis = parseRetryAfterMillis(response.header("retry-after-ms"), response.header("Retry-After"));
+        if (retryAfterMillis == UNKNOWN) {
+            retryAfterMillis = parseDurationMillis(response.header("x-ratelimit-reset-requests"));
+        }
+
+        return new RateLimitInfo(
+                parseLong(response.header("x-ratelimit-limit-requests")),
+                parseLong(response.header("x-ratelimit-remaining-requests")),
+                parseLong(response.header("x-ratelimit-remaining-tokens")),
+                retryAfterMillis
+        );
+    }
+
+    private static long parseRetryAfterMillis(String retryAfterMs, String retryAfter) {
+        long millis = parseLong(retryAfterMs);
+        if (millis != UNKNOWN || retryAfter == null) {
+            return millis;
+        }
+
+        long seconds = parseLong(retryAfter);
+        if (seconds != UNKNOWN) {
+            return seconds * 1000;
+        }
+
+        // Retry-After may also be an HTTP date
+        try {
+            ZonedDateTime retryDate = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(retryDate.getZone()), retryDate).toMillis());
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static long parseDurationMillis(String value) {
+        if (value == null || value.isBlank()) {
+            return UNKNOWN;
+        }
+
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+        }
+
+        return found ? (long) Math.ceil(millis) : UNKNOWN;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return UNKNOWN;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+}
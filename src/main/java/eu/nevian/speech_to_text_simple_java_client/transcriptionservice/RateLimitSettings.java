@@ -0,0 +1,10 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+/**
+ * Client-side rate limits applied to every API key.
+ *
+ * @param requestsPerMinute     Maximum number of API requests per minute.
+ * @param audioSecondsPerMinute Maximum number of seconds of audio uploaded per minute.
+ */
+public record RateLimitSettings(long requestsPerMinute, long audioSecondsPerMinute) {
+}
@@ -0,0 +1,129 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * {@link ApiService} decorator that makes every call wait for the client-side rate limit of its API key
+ * ({@link ApiKeyRateLimiter}) before delegating to the wrapped service.
+ * <p>
+ * The asynchronous calls wait for the rate limit on a virtual thread, so they still return at once. The wrapped
+ * service must therefore also be an {@link AsyncApiService}.
+ */
+public class RateLimitedApiService implements ApiService, AsyncApiService {
+    private final ApiService delegate;
+    private final AsyncApiService asyncDelegate;
+    private final Path stateDirectoryPath;
+    private final RateLimitSettings rateLimitSettings;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate           Service that performs the API calls, synchronous and asynchronous.
+     * @param stateDirectoryPath Directory where the rate limit state shared between invocations is kept.
+     * @param rateLimitSettings  Limits applied to every API key.
+     * @throws IllegalArgumentException If the delegate is not an {@link AsyncApiService}.
+     */
+    public RateLimitedApiService(ApiService delegate, Path stateDirectoryPath, RateLimitSettings rateLimitSettings) {
+        if (!(delegate instanceof AsyncApiService asyncApiService)) {
+            throw new IllegalArgumentException(delegate.getClass().getSimpleName() + " has no asynchronous calls");
+        }
+
+        this.delegate = delegate;
+        this.asyncDelegate = asyncApiService;
+        this.stateDirectoryPath = stateDirectoryPath;
+        this.rateLimitSettings = rateLimitSettings;
+    }
+
+    @Override
+    public String checkAiModelIsAvailable(String apiKey) throws IOException {
+        limiterFor(apiKey).acquire(0);
+        return delegate.checkAiModelIsAvailable(apiKey);
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException {
+        limiterFor(apiKey).acquire(AudioFileHelper.getAudioFileDuration(audioFilePath));
+        return delegate.transcribeAudioFile(apiKey, language, audioFilePath);
+    }
+
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, AudioFile audioFile) throws IOException {
+        limiterFor(apiKey).acquire(audioFile.getUploadedDuration());
+        return delegate.transcribeAudioFile(apiKey, language, audioFile);
+    }
+
+    @Override
+    public CompletableFuture<String> checkAiModelIsAvailableAsync(String apiKey) {
+        return acquireThenCall(apiKey, () -> 0.0, () -> asyncDelegate.checkAiModelIsAvailableAsync(apiKey));
+    }
+
+    @Override
+    public CompletableFuture<String> transcribeAudioFileAsync(String apiKey, String language, String audioFilePath) {
+        return acquireThenCall(apiKey, () -> {
+            try {
+                return AudioFileHelper.getAudioFileDuration(audioFilePath);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, () -> asyncDelegate.transcribeAudioFileAsync(apiKey, language, audioFilePath));
+    }
+
+    /**
+     * Waits for the rate limit on a virtual thread, then starts the call. Cancelling the returned future stops the wait,
+     * or cancels the call once it is started. Whatever the wait or the start of the call throws fails the returned
+     * future, so its caller never waits for a result that will not come.
+     */
+    private CompletableFuture<String> acquireThenCall(String apiKey, Supplier<Double> audioSeconds,
+                                                      Supplier<CompletableFuture<String>> call) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        Thread waitingThread = Thread.ofVirtual().name("rate-limit-wait").start(() -> {
+            CompletableFuture<String> request;
+            try {
+                limiterFor(apiKey).acquire(audioSeconds.get());
+                if (result.isDone()) {
+                    return;
+                }
+                request = call.get();
+            } catch (CompletionException e) {
+                result.completeExceptionally(e.getCause());
+                return;
+            } catch (Throwable t) {
+                // Also runtime errors of the call, such as a header OkHttp rejects
+                result.completeExceptionally(t);
+                return;
+            }
+
+            request.whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((response, throwable) -> {
+                if (result.isCancelled()) {
+                    request.cancel(true);
+                }
+            });
+        });
+
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                waitingThread.interrupt();
+            }
+        });
+        return result;
+    }
+
+    private ApiKeyRateLimiter limiterFor(String apiKey) {
+        return ApiKeyRateLimiter.forApiKey(stateDirectoryPath, apiKey, rateLimitSettings);
+    }
+}
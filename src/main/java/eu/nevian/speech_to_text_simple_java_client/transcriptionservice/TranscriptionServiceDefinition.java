@@ -6,10 +6,23 @@ public record TranscriptionServiceDefinition(
         String transcriptionUrl,
         String organization
 ) {
-    public static final TranscriptionServiceDefinition OPENAI_WHISPER = new TranscriptionServiceDefinition(
-            "whisper-1",
-            "https://api.openai.com/v1/models/whisper-1",
-            "https://api.openai.com/v1/audio/transcriptions",
-            "org-GsWPyLdc05pSY3GVSQt2dWkP"
-    );
+    public static final String OPENAI_API_BASE_URL = "https://api.openai.com/v1";
+
+    public static final TranscriptionServiceDefinition OPENAI_WHISPER = openAiWhisper(OPENAI_API_BASE_URL);
+
+    /**
+     * Returns the definition of the Whisper model served under another base URL than the OpenAI one. Endpoints are
+     * internal and not set by the user: this is the seam used to run the client against a local stand-in in tests.
+     *
+     * @param apiBaseUrl Base URL of the API, without a trailing slash (for example {@code http://localhost:9000/v1}).
+     * @return The service definition.
+     */
+    public static TranscriptionServiceDefinition openAiWhisper(String apiBaseUrl) {
+        return new TranscriptionServiceDefinition(
+                "whisper-1",
+                apiBaseUrl + "/models/whisper-1",
+                apiBaseUrl + "/audio/transcriptions",
+                "org-GsWPyLdc05pSY3GVSQt2dWkP"
+        );
+    }
 }
@@ -2,25 +2,55 @@ package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.RateLimitExceededException;
 import okhttp3.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WhisperApiService implements ApiService, AsyncApiService {
+    /** HTTP status returned by the API when a rate limit is exceeded. */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /** Number of times a throttled request is retried before giving up. */
+    private static final int MAX_RATE_LIMIT_RETRIES = 5;
+
+    /** Media type of the uploaded audio, by file extension. */
+    private static final Map<String, String> MEDIA_TYPES_BY_EXTENSION = Map.of(
+            "mp3", "audio/mpeg",
+            "m4a", "audio/mp4",
+            "mp4", "audio/mp4",
+            "ogg", "audio/ogg",
+            "wav", "audio/wav",
+            "flac", "audio/flac",
+            "webm", "audio/webm"
+    );
+
+    private static final String DEFAULT_MEDIA_TYPE = "audio/mpeg";
 
-public class WhisperApiService implements ApiService{
     /**
      * HTTP client used for making API calls.
      */
     private final OkHttpClient httpClient;
     private final TranscriptionServiceDefinition transcriptionServiceDefinition;
 
+    /** Adapts the number of requests in flight to the rate limits reported by the API. */
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
     /**
-     * Constructor. Creates a new instance of {@link WhisperApiService} piService} and configures the timeout values for
-     * the HTTP client.
+     * Constructor. Creates a new instance of {@link WhisperApiService} that uses the process-wide HTTP transport
+     * ({@link HttpTransport#getSharedHttpClient()}).
      */
     public WhisperApiService() {
-        this(createDefaultHttpClient(), TranscriptionServiceDefinition.OPENAI_WHISPER);
+        this(HttpTransport.getSharedHttpClient(), TranscriptionServiceDefinition.OPENAI_WHISPER);
     }
 
     public WhisperApiService(OkHttpClient httpClient) {
@@ -28,12 +58,24 @@ public class WhisperApiService implements ApiService{
     }
 
     public WhisperApiService(TranscriptionServiceDefinition transcriptionServiceDefinition) {
-        this(createDefaultHttpClient(), transcriptionServiceDefinition);
+        this(HttpTransport.getSharedHttpClient(), transcriptionServiceDefinition);
     }
 
     public WhisperApiService(OkHttpClient httpClient, TranscriptionServiceDefinition transcriptionServiceDefinition) {
+        this(httpClient, transcriptionServiceDefinition,
+                new AdaptiveConcurrencyLimiter(AdaptiveConcurrencyLimiter.DEFAULT_MAX_LIMIT));
+    }
+
+    public WhisperApiService(TranscriptionServiceDefinition transcriptionServiceDefinition,
+                             AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(HttpTransport.getSharedHttpClient(), transcriptionServiceDefinition, concurrencyLimiter);
+    }
+
+    public WhisperApiService(OkHttpClient httpClient, TranscriptionServiceDefinition transcriptionServiceDefinition,
+                             AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.httpClient = httpClient;
         this.transcriptionServiceDefinition = transcriptionServiceDefinition;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     /**
@@ -44,6 +86,184 @@ public class WhisperApiService implements ApiService{
      * @throws IOException If an error occurs while making the API call.
      */
     public String checkAiModelIsAvailable(String apiKey) throws IOException {
+        return executeWithRateLimitHandling(buildModelCheckRequest(apiKey), this::readModelCheckResponse);
+    }
+
+    /**
+     * Performs an API call to OpenAI API to transcribe an audio file.
+     *
+     * @param apiKey        API key to use for the API call.
+     * @param audioFilePath Path to the audio file to transcribe.
+     * @return Response body as a string with the content of the transcription.
+     * @throws IOException If an error occurs while making the API call.
+     */
+    public String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException {
+        return executeWithRateLimitHandling(buildTranscriptionRequest(apiKey, language, audioFilePath),
+                this::readTranscriptionResponse);
+    }
+
+    /**
+     * Performs an API call to OpenAI API to transcribe an audio file. Unlike
+     * {@link #transcribeAudioFile(String, String, String)}, the audio does not need to be stored in a file: parts with
+     * {@link AudioFileStorage#FFMPEG_STREAM} storage are encoded by ffmpeg while they are uploaded.
+     *
+     * @param apiKey    API key to use for the API call.
+     * @param audioFile Audio to transcribe.
+     * @return Response body as a string with the content of the transcription.
+     * @throws IOException If an error occurs while making the API call.
+     */
+    @Override
+    public String transcribeAudioFile(String apiKey, String language, AudioFile audioFile) throws IOException {
+        return executeWithRateLimitHandling(buildTranscriptionRequest(apiKey, language, audioFile),
+                this::readTranscriptionResponse);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAiModelIsAvailable(String)}. The request waits for a slot of the
+     * concurrency limiter and throttled responses are retried, as with the blocking call.
+     *
+     * @param apiKey API key to use for the API call.
+     * @return Future completed with the response body as a string.
+     */
+    @Override
+    public CompletableFuture<String> checkAiModelIsAvailableAsync(String apiKey) {
+        return executeAsyncWithRateLimitHandling(buildModelCheckRequest(apiKey), this::readModelCheckResponse);
+    }
+
+    /**
+     * Asynchronous version of {@link #transcribeAudioFile(String, String, String)}. The request waits for a slot of the
+     * concurrency limiter and throttled responses are retried, as with the blocking call.
+     *
+     * @param apiKey        API key to use for the API call.
+     * @param audioFilePath Path to the audio file to transcribe.
+     * @return Future completed with the content of the transcription.
+     */
+    @Override
+    public CompletableFuture<String> transcribeAudioFileAsync(String apiKey, String language, String audioFilePath) {
+        return executeAsyncWithRateLimitHandling(buildTranscriptionRequest(apiKey, language, audioFilePath),
+                this::readTranscriptionResponse);
+    }
+
+    /**
+     * Executes a request inside a slot of the concurrency limiter. Throttled responses (HTTP 429) shrink the limit and
+     * are retried once the wait requested by the server has passed.
+     */
+    private <T> T executeWithRateLimitHandling(Request request, ApiServiceHelper.ResponseHandler<T> responseHandler)
+            throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                concurrencyLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the API rate limit", e);
+            }
+
+            try (Response response = ApiServiceHelper.performApiRequest(request, httpClient)) {
+                try {
+                    return readRateLimitedResponse(response, responseHandler);
+                } catch (RateLimitExceededException e) {
+                    if (attempt >= MAX_RATE_LIMIT_RETRIES) {
+                        throw e;
+                    }
+                    // Not on stdout: jobs that only print their outcome run this too
+                    System.err.println("Rate limited by the API. Retrying in " + e.getRetryAfterMillis() + " ms...");
+                }
+            } finally {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #executeWithRateLimitHandling}. Each attempt waits for its slot on a virtual
+     * thread, then sends the request without blocking it; a throttled attempt starts the next one once its slot is
+     * released. Cancelling the returned future stops the wait or cancels the request in flight.
+     */
+    private <T> CompletableFuture<T> executeAsyncWithRateLimitHandling(Request request,
+                                                                       ApiServiceHelper.ResponseHandler<T> responseHandler) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> currentAttempt = new AtomicReference<>();
+        result.whenComplete((response, throwable) -> {
+            Future<?> attempt = currentAttempt.get();
+            if (result.isCancelled() && attempt != null) {
+                attempt.cancel(true);
+            }
+        });
+
+        startAsyncAttempt(request, responseHandler, 0, result, currentAttempt);
+        return result;
+    }
+
+    private <T> void startAsyncAttempt(Request request, ApiServiceHelper.ResponseHandler<T> responseHandler, int attempt,
+                                       CompletableFuture<T> result, AtomicReference<Future<?>> currentAttempt) {
+        CompletableFuture<Void> slotWait = new CompletableFuture<>();
+        Thread waitingThread = Thread.ofVirtual().name("concurrency-limit-wait").unstarted(() -> {
+            try {
+                concurrencyLimiter.acquire();
+            } catch (InterruptedException e) {
+                result.completeExceptionally(new IOException("Interrupted while waiting for the API rate limit", e));
+                return;
+            }
+            if (result.isDone()) {
+                concurrencyLimiter.release();
+                return;
+            }
+
+            CompletableFuture<T> response;
+            try {
+                response = ApiServiceHelper.performApiRequestAsync(request, httpClient,
+                        httpResponse -> readRateLimitedResponse(httpResponse, responseHandler));
+            } catch (Throwable t) {
+                concurrencyLimiter.release();
+                result.completeExceptionally(t);
+                return;
+            }
+            currentAttempt.set(response);
+
+            response.whenComplete((body, throwable) -> {
+                concurrencyLimiter.release();
+                if (throwable == null) {
+                    result.complete(body);
+                } else if (throwable instanceof RateLimitExceededException e && attempt < MAX_RATE_LIMIT_RETRIES) {
+                    System.err.println("Rate limited by the API. Retrying in " + e.getRetryAfterMillis() + " ms...");
+                    startAsyncAttempt(request, responseHandler, attempt + 1, result, currentAttempt);
+                } else {
+                    result.completeExceptionally(throwable);
+                }
+            });
+            if (result.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+
+        // Until the request is sent, cancelling the result interrupts the wait for a slot
+        slotWait.whenComplete((ignored, throwable) -> waitingThread.interrupt());
+        currentAttempt.set(slotWait);
+        waitingThread.start();
+    }
+
+    private <T> T readRateLimitedResponse(Response response, ApiServiceHelper.ResponseHandler<T> responseHandler)
+            throws IOException {
+        RateLimitInfo rateLimitInfo = RateLimitInfo.fromResponse(response);
+
+        if (response.code() != HTTP_TOO_MANY_REQUESTS) {
+            if (response.isSuccessful()) {
+                concurrencyLimiter.onSuccess(rateLimitInfo);
+            }
+            return responseHandler.handle(response);
+        }
+
+        String responseBody = response.body() != null ? response.body().string() : "";
+        if (responseBody.contains("insufficient_quota")) {
+            // Retrying will not help until the account quota is increased.
+            throw new IOException("Unexpected response code: " + response + ". The account has exceeded its quota.");
+        }
+
+        long retryAfterMillis = concurrencyLimiter.onThrottled(rateLimitInfo);
+        throw new RateLimitExceededException("Rate limit exceeded: " + response, retryAfterMillis);
+    }
+
+    private Request buildModelCheckRequest(String apiKey) {
         Request.Builder requestBuilder = new Request.Builder()
                 .url(transcriptionServiceDefinition.modelCheckUrl())
                 .addHeader("Authorization", "Bearer " + apiKey)
@@ -53,60 +273,87 @@ public class WhisperApiService implements ApiService{
             requestBuilder.addHeader("OpenAI-Organization", transcriptionServiceDefinition.organization());
         }
 
-        Request request = requestBuilder.build();
+        return requestBuilder.build();
+    }
 
-        try (Response response = ApiServiceHelper.performApiRequestWithAnimation(request, httpClient)) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response code: " + response);
-            }
+    private Request buildTranscriptionRequest(String apiKey, String language, String audioFilePath) {
+        File file = new File(audioFilePath);
+        return buildTranscriptionRequest(apiKey, language, file.getName(),
+                RequestBody.create(file, getMediaType(file.getName())));
+    }
 
-            if (response.body() == null) {
-                throw new IOException("Response body is null");
-            }
+    private Request buildTranscriptionRequest(String apiKey, String language, AudioFile audioFile) {
+        if (audioFile.getStorage() == AudioFileStorage.FFMPEG_STREAM) {
+            RequestBody audioBody = new FfmpegStreamingRequestBody(
+                    audioFile.getSourceFilePath(),
+                    audioFile.getStartTime(),
+                    audioFile.getDuration(),
+                    audioFile.getFileSize(),
+                    audioFile.getEncodingProfile(),
+                    audioFile.getTempoFactor());
+            return buildTranscriptionRequest(apiKey, language, new File(audioFile.getFilePath()).getName(), audioBody);
+        }
 
-            return response.body().string();
+        if (audioFile.getStorage() == AudioFileStorage.BYTE_RANGE) {
+            String fileName = new File(audioFile.getFilePath()).getName();
+            RequestBody audioBody = new FileRangeRequestBody(
+                    Path.of(audioFile.getSourceFilePath()),
+                    audioFile.getByteOffset(),
+                    audioFile.getFileSize(),
+                    getMediaType(fileName));
+            return buildTranscriptionRequest(apiKey, language, fileName, audioBody);
         }
-    }
 
-    /**
-     * Performs an API call to OpenAI API to transcribe an audio file.
-     *
-     * @param apiKey        API key to use for the API call.
-     * @param audioFilePath Path to the audio file to transcribe.
-     * @return Response body as a string with the content of the transcription.
-     * @throws IOException If an error occurs while making the API call.
-     */
-    public String transcribeAudioFile(String apiKey, String language, String audioFilePath) throws IOException {
-        File file = new File(audioFilePath);
+        return buildTranscriptionRequest(apiKey, language, audioFile.getFilePath());
+    }
 
+    private Request buildTranscriptionRequest(String apiKey, String language, String fileName, RequestBody audioBody) {
         RequestBody requestBody = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart(
-                        "file", file.getName(),
-                        RequestBody.create(file, MediaType.get("audio/mpeg")))
+                .addFormDataPart("file", fileName, audioBody)
                 .addFormDataPart("model", transcriptionServiceDefinition.modelName())
                 .addFormDataPart("language", language)
                 .build();
 
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(transcriptionServiceDefinition.transcriptionUrl())
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "multipart/form-data")
                 .post(requestBody) // POST request
                 .build();
+    }
 
-        try (Response response = ApiServiceHelper.performApiRequestWithAnimation(request, httpClient)) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response code: " + response);
-            }
+    private static MediaType getMediaType(String fileName) {
+        int extensionSeparatorIndex = fileName.lastIndexOf('.');
+        String extension = extensionSeparatorIndex >= 0
+                ? fileName.substring(extensionSeparatorIndex + 1).toLowerCase(Locale.ROOT)
+                : "";
+        return MediaType.get(MEDIA_TYPES_BY_EXTENSION.getOrDefault(extension, DEFAULT_MEDIA_TYPE));
+    }
 
-            if (response.body() == null) {
-                throw new IOException("Response body is null");
-            }
+    private String readModelCheckResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Unexpected response code: " + response);
+        }
 
-            String responseBody = response.body().string();
-            return extractTranscriptionText(responseBody);
+        if (response.body() == null) {
+            throw new IOException("Response body is null");
         }
+
+        return response.body().string();
+    }
+
+    private String readTranscriptionResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Unexpected response code: " + response);
+        }
+
+        if (response.body() == null) {
+            throw new IOException("Response body is null");
+        }
+
+        String responseBody = response.body().string();
+        return extractTranscriptionText(responseBody);
     }
 
     private String extractTranscriptionText(String responseBody) throws IOException {
@@ -126,12 +373,4 @@ public class WhisperApiService implements ApiService{
         return textNode.asText();
     }
 
-    private static OkHttpClient createDefaultHttpClient() {
-        return new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(0, TimeUnit.SECONDS)
-                .writeTimeout(0, TimeUnit.SECONDS)
-                .build();
-    }
-
 }
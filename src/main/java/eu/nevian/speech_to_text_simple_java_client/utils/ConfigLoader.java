@@ -3,6 +3,8 @@ package eu.nevian.speech_to_text_simple_java_client.utils;
 import eu.nevian.speech_to_text_simple_java_client.config.ApplicationDefaults;
 import eu.nevian.speech_to_text_simple_java_client.config.UserConfig;
 import eu.nevian.speech_to_text_simple_java_client.exceptions.LoadingConfigurationException;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransportSettings;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.RateLimitSettings;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -12,15 +14,30 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.Properties;
 
 public class ConfigLoader {
     private static final String APPLICATION_DEFAULTS_RESOURCE = "application-defaults.properties";
+    private static final String STATE_DIRECTORY_NAME = ".sttsjc";
     private static final String API_KEY_PROPERTY = "api_key";
     private static final String LANGUAGE_PROPERTY = "language";
     private static final String DEFAULT_LANGUAGE_PROPERTY = "default_language";
     private static final String AUDIO_FILE_LIMIT_SIZE_PROPERTY = "audio_file_limit_size_in_bytes";
+    private static final String MAX_CONCURRENT_TRANSCRIPTIONS_PROPERTY = "max_concurrent_transcriptions";
+    private static final String MAX_CONCURRENT_JOBS_PROPERTY = "max_concurrent_jobs";
+    private static final String DAEMON_QUEUE_CAPACITY_PROPERTY = "daemon_queue_capacity";
+    private static final String WATCH_SETTLE_SECONDS_PROPERTY = "watch_settle_seconds";
+    private static final String HTTP_MAX_IDLE_CONNECTIONS_PROPERTY = "http_max_idle_connections";
+    private static final String HTTP_KEEP_ALIVE_SECONDS_PROPERTY = "http_keep_alive_seconds";
+    private static final String HTTP_MAX_REQUESTS_PROPERTY = "http_max_requests";
+    private static final String HTTP_MAX_REQUESTS_PER_HOST_PROPERTY = "http_max_requests_per_host";
+    private static final String RATE_LIMIT_REQUESTS_PER_MINUTE_PROPERTY = "rate_limit_requests_per_minute";
+    private static final String RATE_LIMIT_AUDIO_SECONDS_PER_MINUTE_PROPERTY = "rate_limit_audio_seconds_per_minute";
+    private static final String TRANSCRIPT_CACHE_MAX_SIZE_PROPERTY = "transcript_cache_max_size_in_bytes";
+    private static final String MODEL_CHECK_CACHE_TTL_SECONDS_PROPERTY = "model_check_cache_ttl_seconds";
+    private static final String ENCODING_PROFILE_PROPERTY = "encoding_profile";
 
     private ConfigLoader() {
     }
@@ -54,6 +71,21 @@ public class ConfigLoader {
         return currentWorkingDirectoryConfigPath;
     }
 
+    /**
+     * Resolves the directory, next to the config file, where the application keeps state shared between runs.
+     *
+     * @param configFilePath Path to the config file.
+     * @return Path to the state directory. It is not created by this method.
+     */
+    public static Path resolveStateDirectoryPath(Path configFilePath) {
+        Path configDirectoryPath = configFilePath.toAbsolutePath().normalize().getParent();
+        if (configDirectoryPath == null) {
+            configDirectoryPath = Path.of(".").toAbsolutePath().normalize();
+        }
+
+        return configDirectoryPath.resolve(STATE_DIRECTORY_NAME);
+    }
+
     public static boolean configFileDoesNotExist(Path configFilePath) {
         return !Files.exists(configFilePath);
     }
@@ -77,9 +109,33 @@ public class ConfigLoader {
             throw new LoadingConfigurationException(invalidDefaultsMessage(DEFAULT_LANGUAGE_PROPERTY));
         }
 
+        EncodingProfile encodingProfile = EncodingProfile.fromName(
+                readRequiredProperty(properties, ENCODING_PROFILE_PROPERTY, invalidDefaultsMessage(ENCODING_PROFILE_PROPERTY))
+        );
+        if (encodingProfile == null) {
+            throw new LoadingConfigurationException(invalidDefaultsMessage(ENCODING_PROFILE_PROPERTY));
+        }
+
         return new ApplicationDefaults(
                 defaultLanguage,
-                readRequiredPositiveLongProperty(properties, AUDIO_FILE_LIMIT_SIZE_PROPERTY)
+                readRequiredPositiveLongProperty(properties, AUDIO_FILE_LIMIT_SIZE_PROPERTY),
+                readRequiredPositiveIntProperty(properties, MAX_CONCURRENT_TRANSCRIPTIONS_PROPERTY),
+                readRequiredPositiveIntProperty(properties, MAX_CONCURRENT_JOBS_PROPERTY),
+                readRequiredPositiveIntProperty(properties, DAEMON_QUEUE_CAPACITY_PROPERTY),
+                Duration.ofSeconds(readRequiredPositiveLongProperty(properties, WATCH_SETTLE_SECONDS_PROPERTY)),
+                new HttpTransportSettings(
+                        readRequiredPositiveIntProperty(properties, HTTP_MAX_IDLE_CONNECTIONS_PROPERTY),
+                        readRequiredPositiveLongProperty(properties, HTTP_KEEP_ALIVE_SECONDS_PROPERTY),
+                        readRequiredPositiveIntProperty(properties, HTTP_MAX_REQUESTS_PROPERTY),
+                        readRequiredPositiveIntProperty(properties, HTTP_MAX_REQUESTS_PER_HOST_PROPERTY)
+                ),
+                new RateLimitSettings(
+                        readRequiredPositiveLongProperty(properties, RATE_LIMIT_REQUESTS_PER_MINUTE_PROPERTY),
+                        readRequiredPositiveLongProperty(properties, RATE_LIMIT_AUDIO_SECONDS_PER_MINUTE_PROPERTY)
+                ),
+                readRequiredPositiveLongProperty(properties, TRANSCRIPT_CACHE_MAX_SIZE_PROPERTY),
+                Duration.ofSeconds(readRequiredPositiveLongProperty(properties, MODEL_CHECK_CACHE_TTL_SECONDS_PROPERTY)),
+                encodingProfile
         );
     }
 
@@ -155,6 +211,16 @@ public class ConfigLoader {
         return parsedValue;
     }
 
+    private static int readRequiredPositiveIntProperty(Properties properties, String propertyName) {
+        long parsedValue = readRequiredPositiveLongProperty(properties, propertyName);
+
+        if (parsedValue > Integer.MAX_VALUE) {
+            throw new LoadingConfigurationException(invalidDefaultsMessage(propertyName));
+        }
+
+        return (int) parsedValue;
+    }
+
     private static String invalidDefaultsMessage(String propertyName) {
         return MessageManager.getApplicationDefaultsInvalidMessage(APPLICATION_DEFAULTS_RESOURCE, propertyName);
     }
@@ -0,0 +1,131 @@
+package eu.nevian.speech_to_text_simple_java_client.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How the audio is encoded before it is uploaded. The transcription model downsamples everything to 16 kHz mono
+ * anyway, so the mono profiles upload several times fewer bytes than stereo 64 kbit/s MP3 for the same transcript:
+ * fewer parts, and faster uploads.
+ */
+public enum EncodingProfile {
+    /** Stereo (or whatever the source has) MP3 at 64 kbit/s: the encoding used before profiles existed. */
+    MP3_64K("mp3-64k", "libmp3lame", 64_000, 0, 0, "mp3", "mp3", "audio/mpeg"),
+
+    /** Mono 16 kHz MP3 at 32 kbit/s. Only needs the MP3 encoder every ffmpeg build has. */
+    MP3_MONO("mp3-mono", "libmp3lame", 32_000, 1, 16_000, "mp3", "mp3", "audio/mpeg"),
+
+    /** Mono 16 kHz Opus in an Ogg container at 24 kbit/s. The smallest parts, but ffmpeg must be built with libopus. */
+    OPUS_MONO("opus-mono", "libopus", 24_000, 1, 16_000, "ogg", "ogg", "audio/ogg"),
+
+    /**
+     * Mono 16 kHz 16-bit PCM in a WAV file (256 kbit/s). Several times more parts than the compressed profiles, but
+     * WAV sources are cut and converted in process, without ffmpeg.
+     */
+    WAV_MONO("wav-mono", "pcm_s16le", 256_000, 1, 16_000, "wav", "wav", "audio/wav");
+
+    private final String name;
+    private final String codec;
+    private final long bitRateInBitsPerSecond;
+    private final int channels;
+    private final int sampleRate;
+    private final String extension;
+    private final String format;
+    private final String mediaType;
+
+    EncodingProfile(String name, String codec, long bitRateInBitsPerSecond, int channels, int sampleRate,
+                    String extension, String format, String mediaType) {
+        this.name = name;
+        this.codec = codec;
+        this.bitRateInBitsPerSecond = bitRateInBitsPerSecond;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.extension = extension;
+        this.format = format;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the profile with the given name.
+     *
+     * @param name Name of the profile, as used in the options (for example {@code opus-mono}).
+     * @return The profile, or null if there is none with this name.
+     */
+    public static EncodingProfile fromName(String name) {
+        String normalizedName = name.trim().toLowerCase(Locale.ROOT);
+        for (EncodingProfile encodingProfile : values()) {
+            if (encodingProfile.name.equals(normalizedName)) {
+                return encodingProfile;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public long getBitRateInBitsPerSecond() {
+        return bitRateInBitsPerSecond;
+    }
+
+    /** Number of channels of the output, or 0 to keep those of the source. */
+    public int getChannels() {
+        return channels;
+    }
+
+    /** Sample rate of the output, in Hz, or 0 to keep that of the source. */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** Extension of the files encoded with this profile. */
+    public String getExtension() {
+        return extension;
+    }
+
+    /** ffmpeg name of the container, for outputs that have no file extension to infer it from. */
+    public String getFormat() {
+        return format;
+    }
+
+    /** Media type of the files encoded with this profile, as sent to the API. */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns the ffmpeg output arguments that encode the first audio stream with this profile.
+     *
+     * @return The arguments, to place after the input.
+     */
+    public List<String> getFfmpegArguments() {
+        // -vn -> Disable video (only audio stream will be processed)
+        // -acodec -> The audio codec to use
+        // -b:a -> Sets the audio bitrate of the output file
+        // -ac -> Number of channels of the output (downmixed when the source has more)
+        // -ar -> Sample rate of the output (resampled when the source has another one)
+        List<String> arguments = new ArrayList<>(List.of(
+                "-vn",
+                "-acodec", codec,
+                "-b:a", String.valueOf(bitRateInBitsPerSecond)
+        ));
+        if (channels > 0) {
+            arguments.addAll(List.of("-ac", String.valueOf(channels)));
+        }
+        if (sampleRate > 0) {
+            arguments.addAll(List.of("-ar", String.valueOf(sampleRate)));
+        }
+        return arguments;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
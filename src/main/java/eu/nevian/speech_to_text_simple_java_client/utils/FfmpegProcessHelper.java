@@ -1,6 +1,5 @@
 package eu.nevian.speech_to_text_simple_java_client.utils;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -9,11 +8,17 @@ import java.util.List;
  * Helper class to create ffmpeg processes. Note that ffprobe command is a part of the ffmpeg suite.
  */
 public class FfmpegProcessHelper {
-    /** The audio codec to use */
-    private static final String AUDIO_CODEC = "libmp3lame";
+    /** Volume under which the audio is considered silent */
+    private static final String SILENCE_THRESHOLD = "-35dB";
 
-    /** The bitrate of the output audio files */
-    private static final String AUDIO_BITRATE = "64k";
+    /** Silences longer than this (in seconds) are shortened when trimming */
+    private static final String TRIMMED_SILENCE_MIN_DURATION = "2";
+
+    /** Silence (in seconds) kept in place of each shortened silence, so sentences stay apart */
+    private static final String TRIMMED_SILENCE_KEPT_DURATION = "0.5";
+
+    /** Shortest pause (in seconds) reported as a possible split point */
+    private static final String SPLIT_SILENCE_MIN_DURATION = "0.3";
 
     /**
      * Private constructor to prevent instantiation. All methods are static.
@@ -22,27 +27,16 @@ public class FfmpegProcessHelper {
     }
 
     /**
-     * Check if ffmpeg is NOT available on the system.
+     * Check if ffmpeg is NOT available on the system, as found by {@link FfmpegToolchain}.
      *
      * @return True if ffmpeg is NOT available, false otherwise.
      */
     public static boolean isFfmpegNotAvailable() {
-        return isCommandNotAvailable("ffmpeg");
+        return !FfmpegToolchain.get().isFfmpegAvailable();
     }
 
     public static boolean isFfprobeNotAvailable() {
-        return isCommandNotAvailable("ffprobe");
-    }
-
-    private static boolean isCommandNotAvailable(String commandName) {
-        ProcessBuilder processBuilder = new ProcessBuilder(commandName, "-version");
-        try {
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
-            return exitCode != 0;
-        } catch (IOException | InterruptedException e) {
-            return true;
-        }
+        return !FfmpegToolchain.get().isFfprobeAvailable();
     }
 
     /**
@@ -53,7 +47,7 @@ public class FfmpegProcessHelper {
      */
     public static ProcessBuilder createFfmpegProcessBuilder(String... args) {
         List<String> command = new ArrayList<>();
-        command.add("ffmpeg");
+        command.add(FfmpegToolchain.get().getFfmpegCommand());
         command.addAll(Arrays.asList(args));
 
         return new ProcessBuilder(command);
@@ -66,7 +60,7 @@ public class FfmpegProcessHelper {
      */
     public static ProcessBuilder createFfprobeProcessBuilder(String... args) {
         List<String> command = new ArrayList<>();
-        command.add("ffprobe");
+        command.add(FfmpegToolchain.get().getFfprobeCommand());
         command.addAll(Arrays.asList(args));
 
         return new ProcessBuilder(command);
@@ -77,22 +71,27 @@ public class FfmpegProcessHelper {
      *
      * @param inputFilePath The path to the video file
      * @param outputFilePath The path to the output audio file
+     * @param encodingProfile How the audio is encoded, or null to copy the audio packets as they are. The extension of
+     *                        the output file must then be one of a container that supports the input codec
      * @return The process builder
      */
-    public static ProcessBuilder createExtractAudioProcessBuilder(String inputFilePath, String outputFilePath) {
+    public static ProcessBuilder createExtractAudioProcessBuilder(String inputFilePath, String outputFilePath,
+                                                                  EncodingProfile encodingProfile) {
         // -y -> Overwrite without asking for confirmation the output file if it already exists
+        // -loglevel error -> Only errors on stderr, which is discarded so it never blocks the process
         // -i -> The input file
-        // -vn -> Disable video (only audio stream will be processed)
-        // -acodec -> The audio codec to use (libmp3lame)
-        // -b:a -> Sets the audio bitrate of the output file (64k)
-        return createFfmpegProcessBuilder(
+        List<String> command = new ArrayList<>(List.of(
                 "-y",
-                "-i", inputFilePath,
-                "-vn",
-                "-acodec", AUDIO_CODEC,
-                "-b:a", AUDIO_BITRATE,
-                outputFilePath
-        );
+                "-loglevel", "error",
+                "-i", inputFilePath
+        ));
+        command.addAll(audioOutputArguments(encodingProfile));
+        command.add(outputFilePath);
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder;
     }
 
     /**
@@ -102,28 +101,213 @@ public class FfmpegProcessHelper {
      * @param outputFilePath The path to the output audio file
      * @param startTime The start time (in seconds) of the part to extract
      * @param duration The duration (in seconds) of the part to extract
+     * @param encodingProfile How the part is encoded
+     * @param tempoFactor Speed-up applied to the part (1 to keep the original speed)
      * @return The process builder
      */
-    public static ProcessBuilder createCutAudioProcessBuilder(String inputFilePath, String outputFilePath, double startTime, double duration) {
+    public static ProcessBuilder createCutAudioProcessBuilder(String inputFilePath, String outputFilePath, double startTime,
+                                                              double duration, EncodingProfile encodingProfile,
+                                                              double tempoFactor) {
         // -y -> Overwrite without asking for confirmation the output file if it already exists
+        // -loglevel error -> Only errors on stderr, which is discarded so it never blocks the process
+        // -ss -> The start time (in seconds) of the part to extract. Placed before -i, ffmpeg seeks in the input
+        //        instead of decoding and discarding everything before the start time (still sample accurate when
+        //        transcoding)
+        // -t -> The duration (in seconds) of the part to extract. Placed before -i, it is measured on the input, so it
+        //       stays the same when the tempo of the output is changed
         // -i -> The input file
-        // -ss -> The start time (in seconds) of the part to extract
-        // -t -> The duration (in seconds) of the part to extract
-        // -vn -> Disable video (only audio stream will be processed)
-        // -acodec -> The audio codec to use (libmp3lame)
-        // -b:a -> Sets the audio bitrate of the output file (64k)
-        return createFfmpegProcessBuilder(
+        List<String> command = new ArrayList<>(List.of(
                 "-y",
+                "-loglevel", "error",
+                "-ss", String.valueOf(startTime),
+                "-t", String.valueOf(duration),
+                "-i", inputFilePath
+        ));
+        command.addAll(tempoArguments(tempoFactor));
+        command.addAll(audioOutputArguments(encodingProfile));
+        command.add(outputFilePath);
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder;
+    }
+
+    /**
+     * Create a process builder for ffmpeg command to cut a part of an audio file without encoding it again: the audio
+     * packets are copied as they are, so the output container must support the input codec.
+     *
+     * @param inputFilePath The path to the input audio file
+     * @param outputFilePath The path to the output audio file
+     * @param startTime The start time (in seconds) of the part to extract
+     * @param duration The duration (in seconds) of the part to extract
+     * @return The process builder
+     */
+    public static ProcessBuilder createCopyAudioPartProcessBuilder(String inputFilePath, String outputFilePath, double startTime, double duration) {
+        List<String> command = new ArrayList<>(List.of(
+                "-y",
+                "-loglevel", "error",
+                "-ss", String.valueOf(startTime),
                 "-i", inputFilePath,
+                "-t", String.valueOf(duration)
+        ));
+        command.addAll(audioOutputArguments(null));
+        command.add(outputFilePath);
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder;
+    }
+
+    /**
+     * Create a process builder for ffmpeg command to cut a part of an audio (or video) file and write the encoded
+     * audio to the standard output instead of a file.
+     *
+     * @param inputFilePath The path to the input file
+     * @param startTime The start time (in seconds) of the part to extract
+     * @param duration The duration (in seconds) of the part to extract
+     * @param encodingProfile How the part is encoded
+     * @param tempoFactor Speed-up applied to the part (1 to keep the original speed)
+     * @return The process builder
+     */
+    public static ProcessBuilder createCutAudioToStdoutProcessBuilder(String inputFilePath, double startTime, double duration,
+                                                                      EncodingProfile encodingProfile, double tempoFactor) {
+        // -loglevel error -> Only errors on stderr, which is discarded so it never blocks the process
+        // -f -> The output container format (needed because there is no file extension to infer it from)
+        // pipe:1 -> Write the output to the standard output
+        List<String> command = new ArrayList<>(List.of(
+                "-loglevel", "error",
                 "-ss", String.valueOf(startTime),
                 "-t", String.valueOf(duration),
-                "-vn",
-                "-acodec", AUDIO_CODEC,
-                "-b:a", AUDIO_BITRATE,
-                outputFilePath
+                "-i", inputFilePath
+        ));
+        command.addAll(tempoArguments(tempoFactor));
+        command.addAll(audioOutputArguments(encodingProfile));
+        command.addAll(List.of("-f", encodingProfile.getFormat(), "pipe:1"));
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder;
+    }
+
+    /**
+     * Create a process builder for ffmpeg command to split an audio (or video) file into several audio files in a single
+     * pass, with the segment muxer. The input is decoded once, whatever the number of parts.
+     *
+     * @param inputFilePath The path to the input file
+     * @param outputFilePattern The path of the output files, with a {@code %d} placeholder for the part number (first
+     *                          part is 1). Any other {@code %} must be escaped as {@code %%}
+     * @param segmentTimes The times (in seconds) where a new part starts, in increasing order, without 0. They are
+     *                     times of the output, so they are divided by the tempo factor when the tempo is changed
+     * @param segmentListFilePath The path to the CSV file where ffmpeg writes the name, start and end time of each part
+     * @param encodingProfile How the parts are encoded, or null to copy the audio packets as they are. The extension
+     *                        of the output files must then be one of a container that supports the input codec
+     * @param tempoFactor Speed-up applied to the parts (1 to keep the original speed). Must be 1 when the audio packets
+     *                    are copied
+     * @return The process builder
+     */
+    public static ProcessBuilder createSegmentAudioProcessBuilder(String inputFilePath, String outputFilePattern,
+                                                                  List<Double> segmentTimes, String segmentListFilePath,
+                                                                  EncodingProfile encodingProfile, double tempoFactor) {
+        // -f segment -> Write a new output file at each of the -segment_times
+        // -segment_start_number -> Number of the first part, used in the output file pattern
+        // -segment_list -> File listing the parts with their exact start and end times, once encoded
+        // -reset_timestamps -> Each part starts at timestamp 0, as if it had been cut on its own
+        List<String> command = new ArrayList<>(List.of(
+                "-y",
+                "-loglevel", "error",
+                "-i", inputFilePath
+        ));
+        command.addAll(tempoArguments(tempoFactor));
+        command.addAll(audioOutputArguments(encodingProfile));
+        command.addAll(List.of(
+                "-f", "segment",
+                "-segment_times", String.join(",", segmentTimes.stream().map(String::valueOf).toList()),
+                "-segment_start_number", "1",
+                "-segment_list", segmentListFilePath,
+                "-segment_list_type", "csv",
+                "-reset_timestamps", "1",
+                outputFilePattern
+        ));
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return processBuilder;
+    }
+
+    /**
+     * Create a process builder for ffmpeg command to shorten the long silences of an audio (or video) file and report
+     * the pauses left in the result. Both happen in the same pass: the pauses are detected on the trimmed audio, so
+     * their times are on the timeline of the output file. The pauses are written to the standard error, mixed with the
+     * rest of the log, which is redirected to the standard output so a single stream has to be read.
+     *
+     * @param inputFilePath The path to the input file
+     * @param outputFilePath The path to the output audio file
+     * @param encodingProfile How the output is encoded
+     * @return The process builder
+     */
+    public static ProcessBuilder createTrimSilenceProcessBuilder(String inputFilePath, String outputFilePath,
+                                                                 EncodingProfile encodingProfile) {
+        // -nostats -> No progress lines in the log, only the silencedetect output and errors
+        // silenceremove -> stop_periods=-1 shortens every silence longer than stop_duration anywhere in the audio,
+        //                  keeping stop_silence seconds of it
+        // silencedetect -> Logs "silence_start: <t>" and "silence_end: <t>" for every pause of at least d seconds
+        String audioFilter = "silenceremove=stop_periods=-1"
+                + ":stop_duration=" + TRIMMED_SILENCE_MIN_DURATION
+                + ":stop_threshold=" + SILENCE_THRESHOLD
+                + ":stop_silence=" + TRIMMED_SILENCE_KEPT_DURATION
+                + ",silencedetect=noise=" + SILENCE_THRESHOLD
+                + ":d=" + SPLIT_SILENCE_MIN_DURATION;
+
+        List<String> command = new ArrayList<>(List.of(
+                "-y",
+                "-nostats",
+                "-i", inputFilePath,
+                "-af", audioFilter
+        ));
+        command.addAll(encodingProfile.getFfmpegArguments());
+        command.add(outputFilePath);
+
+        ProcessBuilder processBuilder = createFfmpegProcessBuilder(command.toArray(String[]::new));
+        processBuilder.redirectErrorStream(true);
+        return processBuilder;
+    }
+
+    /**
+     * Create a process builder for ffprobe command to describe a file in one run: its container and all its streams.
+     *
+     * @param inputFilePath The path to the media file
+     * @return The process builder
+     */
+    public static ProcessBuilder createInspectMediaProcessBuilder(String inputFilePath) {
+        // -show_format -> Container name, duration, size and bitrate of the whole file
+        // -show_streams -> Type, codec, bitrate, sample rate, channels and disposition (cover art) of every stream
+        return createFfprobeProcessBuilder(
+                "-v", "error",
+                "-show_format",
+                "-show_streams",
+                "-of", "json",
+                inputFilePath
         );
     }
 
+    private static List<String> tempoArguments(double tempoFactor) {
+        // atempo -> Changes the speed of the audio without changing its pitch, so speech stays intelligible
+        return tempoFactor == 1
+                ? List.of()
+                : List.of("-af", "atempo=" + tempoFactor);
+    }
+
+    private static List<String> audioOutputArguments(EncodingProfile encodingProfile) {
+        // -map 0:a:0 -> Only the first audio stream
+        // -c:a copy -> Copy the audio packets without decoding them
+        return encodingProfile == null
+                ? List.of("-map", "0:a:0", "-c:a", "copy")
+                : encodingProfile.getFfmpegArguments();
+    }
+
     /**
      * Create a process builder for ffprobe command to get the duration of an audio file.
      *
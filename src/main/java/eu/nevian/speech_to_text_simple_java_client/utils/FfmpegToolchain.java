@@ -0,0 +1,395 @@
+package eu.nevian.speech_to_text_simple_java_client.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * What the installed ffmpeg and ffprobe can do: version, encoders, muxers and filters. They are probed once per run,
+ * all at the same time, and the result is kept in the state directory for as long as the binaries found on the PATH
+ * keep the same path, size and modification time. The helpers that run ffmpeg ask {@link #get()} instead of starting
+ * a process to find out whether it is there.
+ */
+public final class FfmpegToolchain {
+    private static final String CACHE_FILE_NAME = "ffmpeg-toolchain.properties";
+    private static final String KEY_PROPERTY = "key";
+    private static final String VERSION_PROPERTY = "version";
+    private static final String FFPROBE_AVAILABLE_PROPERTY = "ffprobe_available";
+    private static final String ENCODERS_PROPERTY = "encoders";
+    private static final String MUXERS_PROPERTY = "muxers";
+    private static final String FILTERS_PROPERTY = "filters";
+
+    /** Profiles used in place of one the toolchain cannot encode, in order of preference. */
+    private static final List<EncodingProfile> FALLBACK_PROFILES = List.of(EncodingProfile.MP3_MONO, EncodingProfile.MP3_64K);
+
+    private static volatile FfmpegToolchain current;
+
+    private final String ffmpegCommand;
+    private final String ffprobeCommand;
+    private final String version;
+    private final boolean ffprobeAvailable;
+    private final Set<String> encoders;
+    private final Set<String> muxers;
+    private final Set<String> filters;
+
+    private FfmpegToolchain(String ffmpegCommand, String ffprobeCommand, String version, boolean ffprobeAvailable,
+                            Set<String> encoders, Set<String> muxers, Set<String> filters) {
+        this.ffmpegCommand = ffmpegCommand;
+        this.ffprobeCommand = ffprobeCommand;
+        this.version = version;
+        this.ffprobeAvailable = ffprobeAvailable;
+        this.encoders = encoders;
+        this.muxers = muxers;
+        this.filters = filters;
+    }
+
+    /**
+     * Reads the capabilities of the installed toolchain from the state directory, or probes them if the binaries have
+     * changed since they were cached, and makes them the ones returned by {@link #get()}.
+     *
+     * @param stateDirectoryPath Directory where the capabilities are cached.
+     * @return The toolchain.
+     */
+    public static FfmpegToolchain load(Path stateDirectoryPath) {
+        String ffmpegCommand = resolveCommand("ffmpeg");
+        String ffprobeCommand = resolveCommand("ffprobe");
+        String cacheKey = cacheKeyOf(ffmpegCommand, ffprobeCommand);
+        Path cacheFilePath = stateDirectoryPath.resolve(CACHE_FILE_NAME);
+
+        FfmpegToolchain toolchain = cacheKey != null ? readCache(cacheFilePath, cacheKey, ffmpegCommand, ffprobeCommand) : null;
+        if (toolchain == null) {
+            toolchain = probe(ffmpegCommand, ffprobeCommand);
+            if (cacheKey != null && toolchain.isFfmpegAvailable() && toolchain.isFfprobeAvailable()) {
+                toolchain.writeCache(cacheFilePath, cacheKey);
+            }
+        }
+
+        current = toolchain;
+        return toolchain;
+    }
+
+    /**
+     * Returns the toolchain loaded by {@link #load(Path)}, or probes it without the cache the first time it is needed
+     * if it was not loaded.
+     *
+     * @return The toolchain.
+     */
+    public static FfmpegToolchain get() {
+        FfmpegToolchain toolchain = current;
+        if (toolchain == null) {
+            synchronized (FfmpegToolchain.class) {
+                toolchain = current;
+                if (toolchain == null) {
+                    toolchain = probe(resolveCommand("ffmpeg"), resolveCommand("ffprobe"));
+                    current = toolchain;
+                }
+            }
+        }
+        return toolchain;
+    }
+
+    public boolean isFfmpegAvailable() {
+        return version != null;
+    }
+
+    public boolean isFfprobeAvailable() {
+        return ffprobeAvailable;
+    }
+
+    /** Version reported by ffmpeg, or null if it is not available. */
+    public String getVersion() {
+        return version;
+    }
+
+    /** Command that starts ffmpeg: the path of the binary found on the PATH, or its name if there is none. */
+    public String getFfmpegCommand() {
+        return ffmpegCommand;
+    }
+
+    /** Command that starts ffprobe: the path of the binary found on the PATH, or its name if there is none. */
+    public String getFfprobeCommand() {
+        return ffprobeCommand;
+    }
+
+    public boolean hasEncoder(String encoderName) {
+        return encoders.contains(encoderName);
+    }
+
+    public boolean hasMuxer(String muxerName) {
+        return muxers.contains(muxerName);
+    }
+
+    public boolean hasFilter(String filterName) {
+        return filters.contains(filterName);
+    }
+
+    /**
+     * Checks if the toolchain has the encoder and the muxer of a profile.
+     *
+     * @param encodingProfile Profile to check.
+     * @return True if ffmpeg can write audio with this profile.
+     */
+    public boolean supports(EncodingProfile encodingProfile) {
+        return hasEncoder(encodingProfile.getCodec()) && hasMuxer(encodingProfile.getFormat());
+    }
+
+    /**
+     * Returns the given profile if the toolchain supports it, or the first fallback profile it supports.
+     *
+     * @param encodingProfile Requested profile.
+     * @return The profile to use, or null if the toolchain supports none.
+     */
+    public EncodingProfile resolveEncodingProfile(EncodingProfile encodingProfile) {
+        if (supports(encodingProfile)) {
+            return encodingProfile;
+        }
+        for (EncodingProfile fallbackProfile : FALLBACK_PROFILES) {
+            if (supports(fallbackProfile)) {
+                return fallbackProfile;
+            }
+        }
+        return null;
+    }
+
+    private static FfmpegToolchain probe(String ffmpegCommand, String ffprobeCommand) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<List<String>> versionOutput = executor.submit(() -> runProbe(ffmpegCommand, "-version"));
+            Future<List<String>> encodersOutput = executor.submit(() -> runProbe(ffmpegCommand, "-hide_banner", "-encoders"));
+            Future<List<String>> muxersOutput = executor.submit(() -> runProbe(ffmpegCommand, "-hide_banner", "-muxers"));
+            Future<List<String>> filtersOutput = executor.submit(() -> runProbe(ffmpegCommand, "-hide_banner", "-filters"));
+            Future<List<String>> ffprobeVersionOutput = executor.submit(() -> runProbe(ffprobeCommand, "-version"));
+
+            List<String> versionLines = awaitProbe(versionOutput);
+            return new FfmpegToolchain(
+                    ffmpegCommand,
+                    ffprobeCommand,
+                    versionLines != null ? parseVersion(versionLines) : null,
+                    awaitProbe(ffprobeVersionOutput) != null,
+                    parseListedNames(awaitProbe(encodersOutput)),
+                    parseListedNames(awaitProbe(muxersOutput)),
+                    parseFilterNames(awaitProbe(filtersOutput))
+            );
+        }
+    }
+
+    /**
+     * Runs a probe command and returns its output lines.
+     *
+     * @return The lines, or null if the command could not be run or failed.
+     */
+    private static List<String> runProbe(String command, String... args) {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(command);
+        commandLine.addAll(List.of(args));
+        ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        try {
+            Process process = processBuilder.start();
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = process.inputReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            return process.waitFor() == 0 ? lines : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static List<String> awaitProbe(Future<List<String>> probe) {
+        try {
+            return probe.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /** Reads the version from the first line, for example {@code ffmpeg version 6.1.1-3ubuntu5 Copyright ...}. */
+    private static String parseVersion(List<String> versionLines) {
+        if (!versionLines.isEmpty()) {
+            String[] tokens = versionLines.getFirst().trim().split("\\s+");
+            if (tokens.length >= 3 && tokens[1].equals("version")) {
+                return tokens[2];
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Reads the names of an {@code -encoders} or {@code -muxers} list: after a legend that ends with a dashed line,
+     * each line is a column of flags followed by one name, or several separated by commas.
+     */
+    private static Set<String> parseListedNames(List<String> lines) {
+        Set<String> names = new LinkedHashSet<>();
+        if (lines == null) {
+            return names;
+        }
+
+        boolean legendPassed = false;
+        for (String line : lines) {
+            String trimmedLine = line.trim();
+            if (!legendPassed) {
+                legendPassed = trimmedLine.startsWith("--");
+                continue;
+            }
+            String[] tokens = trimmedLine.split("\\s+");
+            if (tokens.length >= 2) {
+                Collections.addAll(names, tokens[1].split(","));
+            }
+        }
+        return names;
+    }
+
+    /** Reads the names of a {@code -filters} list, whose lines are flags, name, then inputs and outputs ({@code A->A}). */
+    private static Set<String> parseFilterNames(List<String> lines) {
+        Set<String> names = new LinkedHashSet<>();
+        if (lines == null) {
+            return names;
+        }
+
+        for (String line : lines) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length >= 3 && tokens[2].contains("->")) {
+                names.add(tokens[1]);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Finds a command on the PATH, the way the operating system would when starting it.
+     *
+     * @return The absolute path of the binary, or the command name if it was not found.
+     */
+    private static String resolveCommand(String commandName) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return commandName;
+        }
+
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+        String binaryName = windows ? commandName + ".exe" : commandName;
+        for (String directory : path.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+            try {
+                Path candidatePath = Path.of(directory, binaryName);
+                if (Files.isRegularFile(candidatePath) && Files.isExecutable(candidatePath)) {
+                    return candidatePath.toAbsolutePath().toString();
+                }
+            } catch (RuntimeException e) {
+                // Not a valid path on this system: try the next directory
+            }
+        }
+        return commandName;
+    }
+
+    /**
+     * Builds the cache key from the path, size and modification time of both binaries, after following links, so an
+     * upgrade that replaces them is noticed.
+     *
+     * @return The key, or null if a binary was not found.
+     */
+    private static String cacheKeyOf(String ffmpegCommand, String ffprobeCommand) {
+        StringBuilder cacheKey = new StringBuilder();
+        for (String command : List.of(ffmpegCommand, ffprobeCommand)) {
+            Path binaryPath = Path.of(command);
+            if (!binaryPath.isAbsolute()) {
+                return null;
+            }
+            try {
+                Path realPath = binaryPath.toRealPath();
+                cacheKey.append(realPath).append(':')
+                        .append(Files.size(realPath)).append(':')
+                        .append(Files.getLastModifiedTime(realPath).toMillis()).append('|');
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return cacheKey.toString();
+    }
+
+    private static FfmpegToolchain readCache(Path cacheFilePath, String cacheKey, String ffmpegCommand,
+                                             String ffprobeCommand) {
+        if (!Files.isRegularFile(cacheFilePath)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(cacheFilePath)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            return null;
+        }
+
+        if (!cacheKey.equals(properties.getProperty(KEY_PROPERTY)) || properties.getProperty(VERSION_PROPERTY) == null) {
+            return null;
+        }
+
+        return new FfmpegToolchain(
+                ffmpegCommand,
+                ffprobeCommand,
+                properties.getProperty(VERSION_PROPERTY),
+                Boolean.parseBoolean(properties.getProperty(FFPROBE_AVAILABLE_PROPERTY)),
+                splitNames(properties.getProperty(ENCODERS_PROPERTY)),
+                splitNames(properties.getProperty(MUXERS_PROPERTY)),
+                splitNames(properties.getProperty(FILTERS_PROPERTY))
+        );
+    }
+
+    private void writeCache(Path cacheFilePath, String cacheKey) {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_PROPERTY, cacheKey);
+        properties.setProperty(VERSION_PROPERTY, version);
+        properties.setProperty(FFPROBE_AVAILABLE_PROPERTY, String.valueOf(ffprobeAvailable));
+        properties.setProperty(ENCODERS_PROPERTY, String.join(",", encoders));
+        properties.setProperty(MUXERS_PROPERTY, String.join(",", muxers));
+        properties.setProperty(FILTERS_PROPERTY, String.join(",", filters));
+
+        try {
+            Files.createDirectories(cacheFilePath.getParent());
+            Path temporaryFilePath = Files.createTempFile(cacheFilePath.getParent(), CACHE_FILE_NAME, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFilePath)) {
+                properties.store(outputStream, null);
+            }
+            Files.move(temporaryFilePath, cacheFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not being able to cache the capabilities only means they will be probed again next time.
+            System.err.println("Warning: Failed to cache the ffmpeg capabilities: " + e.getMessage());
+        }
+    }
+
+    private static Set<String> splitNames(String names) {
+        Set<String> nameSet = new LinkedHashSet<>();
+        if (names != null && !names.isEmpty()) {
+            Collections.addAll(nameSet, names.split(","));
+        }
+        return nameSet;
+    }
+}
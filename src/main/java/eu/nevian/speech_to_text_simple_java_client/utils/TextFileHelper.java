@@ -14,6 +14,42 @@ public class TextFileHelper {
         Files.writeString(Path.of(outputFilePath), transcription);
     }
 
+    /**
+     * Returns where the transcription of an input file is kept: next to it, named {@code <BASE_NAME>_TRANSCRIPTION.txt}.
+     *
+     * @param inputFilePath Path to the transcribed file.
+     * @return Path to the transcription file.
+     */
+    public static Path getTranscriptionFilePath(Path inputFilePath) {
+        return getTranscriptionFilePath(inputFilePath, false);
+    }
+
+    /**
+     * Returns where the transcription of an input file is kept: next to it, named
+     * {@code <BASE_NAME>_TRANSCRIPTION.txt}, or {@code <FILE_NAME>_TRANSCRIPTION.txt} when the extension is kept. Modes
+     * that transcribe every file of a directory keep it, so that {@code talk.mp3} and {@code talk.mp4} do not write to
+     * the same file.
+     *
+     * @param inputFilePath Path to the transcribed file.
+     * @param keepExtension Whether the extension of the input is part of the name.
+     * @return Path to the transcription file.
+     */
+    public static Path getTranscriptionFilePath(Path inputFilePath, boolean keepExtension) {
+        Path resolvedInputPath = inputFilePath.toAbsolutePath().normalize();
+        Path inputDirectoryPath = resolvedInputPath.getParent() != null
+                ? resolvedInputPath.getParent()
+                : Path.of(".").toAbsolutePath().normalize();
+        String inputFileName = resolvedInputPath.getFileName() != null
+                ? resolvedInputPath.getFileName().toString()
+                : resolvedInputPath.toString();
+        int extensionSeparatorIndex = inputFileName.lastIndexOf('.');
+        String inputBaseName = extensionSeparatorIndex > 0 && !keepExtension
+                ? inputFileName.substring(0, extensionSeparatorIndex)
+                : inputFileName;
+
+        return inputDirectoryPath.resolve(inputBaseName + "_TRANSCRIPTION.txt");
+    }
+
     public static void moveTranscriptionFile(File sourceFile, String destinationFolder, String destinationFileName) throws IOException {
         File destinationFile = new File(destinationFolder, destinationFileName);
 
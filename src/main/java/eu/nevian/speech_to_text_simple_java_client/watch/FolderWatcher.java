@@ -0,0 +1,322 @@
+package eu.nevian.speech_to_text_simple_java_client.watch;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileHelper;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.FileValidationException;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.TranscriptionJobException;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJob;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobContext;
+import eu.nevian.speech_to_text_simple_java_client.utils.TextFileHelper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Transcribes the audio and video files dropped into a directory, or any of its subdirectories, as they arrive.
+ * <p>
+ * A file is only picked up once its size and modification time have not changed for the settle time, so files still
+ * being copied are left alone. The transcription of each file is saved next to it, as
+ * {@code <FILE_NAME>_TRANSCRIPTION.txt}, by a pool of workers sharing the same {@link TranscriptionJobContext}. The
+ * extension is kept so that {@code talk.mp3} and {@code talk.mp4} dropped side by side get a transcription each.
+ * <p>
+ * Files already in the directory when the watcher starts are handled too, except those recorded in the
+ * {@link ProcessedFileLedger} or that already have a transcription, so a restart only picks up what arrived in the
+ * meantime. Hidden files and directories are ignored.
+ */
+public class FolderWatcher {
+    /** How often pending files are checked for being settled, when no event comes in. */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    /** How long a file whose job failed because of the API, the network or the disk waits before being tried again. */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final TranscriptionJobContext context;
+    private final Path watchDirectoryPath;
+    private final long settleTimeNanos;
+    private final ProcessedFileLedger ledger;
+    private final WatchService watchService;
+    private final ExecutorService jobExecutor;
+
+    // Only used by the thread running the watcher
+    private final Map<WatchKey, Path> directoryPathsByKey = new HashMap<>();
+    private final Map<Path, PendingFile> pendingFilesByPath = new HashMap<>();
+
+    private final Set<Path> runningFilePaths = ConcurrentHashMap.newKeySet();
+    private final Queue<Path> retryFilePaths = new ConcurrentLinkedQueue<>();
+    private volatile boolean stopped;
+
+    /** Size and modification time of a file, which tell if it changed. */
+    private record FileVersion(long sizeInBytes, long lastModifiedTimeMillis) {
+    }
+
+    /** A file waiting to settle, and since when it has not changed (in the future for a file waiting to be retried). */
+    private record PendingFile(FileVersion version, long unchangedSinceNanos) {
+    }
+
+    private FolderWatcher(TranscriptionJobContext context, Path watchDirectoryPath, Duration settleTime,
+                          ProcessedFileLedger ledger, WatchService watchService, int maxConcurrentJobs) {
+        this.context = context;
+        this.watchDirectoryPath = watchDirectoryPath;
+        this.settleTimeNanos = settleTime.toNanos();
+        this.ledger = ledger;
+        this.watchService = watchService;
+        this.jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs, Thread.ofVirtual().name("watch-job-", 0).factory());
+    }
+
+    /**
+     * Creates a watcher. Nothing is watched until {@link #run()} is called.
+     *
+     * @param context            Settings and services shared by all the jobs.
+     * @param watchDirectoryPath Directory to watch.
+     * @param maxConcurrentJobs  Maximum number of files transcribed at the same time.
+     * @param settleTime         How long a file must stay unchanged before it is transcribed.
+     * @return The watcher.
+     * @throws IOException If the file system cannot watch the directory.
+     */
+    public static FolderWatcher open(TranscriptionJobContext context, Path watchDirectoryPath, int maxConcurrentJobs,
+                                     Duration settleTime) throws IOException {
+        if (maxConcurrentJobs <= 0) {
+            throw new IllegalArgumentException("maxConcurrentJobs must be positive");
+        }
+
+        Path absoluteWatchDirectoryPath = watchDirectoryPath.toAbsolutePath().normalize();
+        return new FolderWatcher(context, absoluteWatchDirectoryPath, settleTime,
+                ProcessedFileLedger.load(context.getConfig().stateDirectoryPath()),
+                absoluteWatchDirectoryPath.getFileSystem().newWatchService(), maxConcurrentJobs);
+    }
+
+    /**
+     * Watches the directory until {@link #stop()} is called or the thread is interrupted.
+     *
+     * @throws IOException If the directory cannot be registered with the watch service.
+     */
+    public void run() throws IOException {
+        try {
+            registerDirectoryTree(watchDirectoryPath);
+
+            while (!stopped) {
+                WatchKey watchKey = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                while (watchKey != null) {
+                    handleEvents(watchKey);
+                    watchKey = watchService.poll();
+                }
+
+                Path retryFilePath;
+                while ((retryFilePath = retryFilePaths.poll()) != null) {
+                    FileVersion version = readVersion(retryFilePath);
+                    if (version != null) {
+                        pendingFilesByPath.put(retryFilePath, new PendingFile(version, System.nanoTime() + RETRY_DELAY.toNanos()));
+                    }
+                }
+                submitSettledFiles();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stop() was called
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops watching and interrupts the running jobs. They are not recorded in the ledger, and their journals keep what
+     * was done, so the next watcher resumes them.
+     */
+    public void stop() {
+        stopped = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it
+        }
+        jobExecutor.shutdownNow();
+    }
+
+    private void handleEvents(WatchKey watchKey) throws IOException {
+        Path directoryPath = directoryPathsByKey.get(watchKey);
+
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Some events were lost, look at everything again
+                registerDirectoryTree(watchDirectoryPath);
+                continue;
+            }
+            if (directoryPath == null) {
+                continue;
+            }
+
+            Path path = directoryPath.resolve((Path) event.context());
+            if (isHidden(path)) {
+                continue;
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // A directory moved or copied in comes with its files, and no event for them
+                registerDirectoryTree(path);
+            } else {
+                observe(path);
+            }
+        }
+
+        if (!watchKey.reset()) {
+            directoryPathsByKey.remove(watchKey);
+        }
+    }
+
+    private void registerDirectoryTree(Path rootPath) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walkedPaths = Files.walk(rootPath)) {
+            paths = walkedPaths.filter(path -> !isHidden(path)).toList();
+        } catch (UncheckedIOException e) {
+            // Something was removed while walking, its events tell the rest
+            System.err.println("Warning: Failed to list " + rootPath + ": " + e.getCause().getMessage());
+            return;
+        }
+
+        for (Path path : paths) {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                WatchKey watchKey = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directoryPathsByKey.put(watchKey, path);
+            } else {
+                observe(path);
+            }
+        }
+    }
+
+    private void observe(Path path) {
+        if (runningFilePaths.contains(path) || pendingFilesByPath.containsKey(path)) {
+            return;
+        }
+
+        FileVersion version = readVersion(path);
+        if (version != null && !ledger.contains(path, version.sizeInBytes(), version.lastModifiedTimeMillis())) {
+            pendingFilesByPath.put(path, new PendingFile(version, System.nanoTime()));
+        }
+    }
+
+    private void submitSettledFiles() {
+        long nowNanos = System.nanoTime();
+
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFilesByPath.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path path = entry.getKey();
+            FileVersion version = readVersion(path);
+
+            if (version == null) {
+                iterator.remove();
+            } else if (!version.equals(entry.getValue().version())) {
+                // Still being written, wait for it to settle again
+                entry.setValue(new PendingFile(version, nowNanos));
+            } else if (nowNanos - entry.getValue().unchangedSinceNanos() >= settleTimeNanos) {
+                iterator.remove();
+                if (!ledger.contains(path, version.sizeInBytes(), version.lastModifiedTimeMillis()) && isMediaFile(path)) {
+                    runningFilePaths.add(path);
+                    jobExecutor.execute(() -> transcribe(path, version));
+                }
+            }
+        }
+    }
+
+    private void transcribe(Path inputPath, FileVersion version) {
+        long startNanos = System.nanoTime();
+        Path outputPath = TextFileHelper.getTranscriptionFilePath(inputPath, true);
+
+        String status;
+        String error = null;
+        boolean retryable = false;
+        try {
+            if (Files.exists(outputPath)) {
+                status = "skipped";
+            } else {
+                new TranscriptionJob(context, inputPath, context.getConfig().effectiveLanguage(), false).run(outputPath);
+                status = ProcessedFileLedger.STATUS_DONE;
+            }
+        } catch (TranscriptionJobException e) {
+            status = ProcessedFileLedger.STATUS_FAILED;
+            error = e.getMessage();
+            retryable = e.isRetryable();
+        } catch (RuntimeException e) {
+            status = ProcessedFileLedger.STATUS_FAILED;
+            error = String.valueOf(e.getMessage());
+        } finally {
+            runningFilePaths.remove(inputPath);
+        }
+
+        // A job interrupted by stop() is not finished, the next watcher picks it up again
+        if (stopped) {
+            return;
+        }
+
+        if (retryable) {
+            // Nothing is wrong with the file itself, it is tried again later and is not recorded
+            status = "retry";
+            retryFilePaths.add(inputPath);
+        } else {
+            // A file that failed on its own is only tried again once it is replaced, or removed from the ledger
+            ledger.record(inputPath, version.sizeInBytes(), version.lastModifiedTimeMillis(),
+                    status.equals(ProcessedFileLedger.STATUS_FAILED) ? ProcessedFileLedger.STATUS_FAILED : ProcessedFileLedger.STATUS_DONE);
+        }
+
+        System.out.printf("[%s] %-7s %s (%.1f s)%n", LocalTime.now().truncatedTo(ChronoUnit.SECONDS), status,
+                inputPath, (System.nanoTime() - startNanos) / 1_000_000_000.0);
+        if (error != null) {
+            System.err.println("        " + error.replace("\n", "\n        "));
+        }
+    }
+
+    private static FileVersion readVersion(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new FileVersion(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            // Removed or moved away
+            return null;
+        }
+    }
+
+    private boolean isHidden(Path path) {
+        for (Path segment : watchDirectoryPath.relativize(path)) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMediaFile(Path path) {
+        try {
+            AudioFileHelper.getFileType(path.toString());
+            return true;
+        } catch (FileValidationException e) {
+            return false;
+        }
+    }
+}
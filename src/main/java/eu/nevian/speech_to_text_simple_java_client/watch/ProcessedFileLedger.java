@@ -0,0 +1,95 @@
+package eu.nevian.speech_to_text_simple_java_client.watch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers the files a {@link FolderWatcher} has already handled, so that restarting it does not transcribe them
+ * again. A file is identified by its absolute path, size and modification time: a file that is replaced or modified
+ * afterwards is handled again.
+ * <p>
+ * The ledger is a properties file of the state directory, rewritten atomically after each file, so a crash never
+ * leaves it half written.
+ */
+public class ProcessedFileLedger {
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final String LEDGER_FILE_NAME = "watch-ledger.properties";
+
+    private final Path ledgerFilePath;
+    private final Properties entries;
+
+    private ProcessedFileLedger(Path ledgerFilePath, Properties entries) {
+        this.ledgerFilePath = ledgerFilePath;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the ledger of the state directory. A missing or unreadable ledger is treated as empty.
+     *
+     * @param stateDirectoryPath State directory of the application.
+     * @return The ledger.
+     */
+    public static ProcessedFileLedger load(Path stateDirectoryPath) {
+        Path ledgerFilePath = stateDirectoryPath.resolve(LEDGER_FILE_NAME);
+        Properties entries = new Properties();
+
+        if (Files.isRegularFile(ledgerFilePath)) {
+            try (InputStream inputStream = Files.newInputStream(ledgerFilePath)) {
+                entries.load(inputStream);
+            } catch (IOException e) {
+                System.err.println("Warning: Failed to read the watch ledger, all files will be handled again: " + e.getMessage());
+                entries.clear();
+            }
+        }
+
+        return new ProcessedFileLedger(ledgerFilePath, entries);
+    }
+
+    /**
+     * Tells if a file was already handled, whether it succeeded or failed.
+     *
+     * @param path                   Absolute path to the file.
+     * @param sizeInBytes            Current size of the file.
+     * @param lastModifiedTimeMillis Current modification time of the file.
+     * @return True if the same version of the file is in the ledger.
+     */
+    public synchronized boolean contains(Path path, long sizeInBytes, long lastModifiedTimeMillis) {
+        String entry = entries.getProperty(path.toString());
+        return entry != null && entry.startsWith(getVersion(sizeInBytes, lastModifiedTimeMillis) + ",");
+    }
+
+    /**
+     * Records a file as handled and saves the ledger.
+     *
+     * @param path                   Absolute path to the file.
+     * @param sizeInBytes            Size of the file that was handled.
+     * @param lastModifiedTimeMillis Modification time of the file that was handled.
+     * @param status                 {@link #STATUS_DONE} or {@link #STATUS_FAILED}.
+     */
+    public synchronized void record(Path path, long sizeInBytes, long lastModifiedTimeMillis, String status) {
+        entries.setProperty(path.toString(), getVersion(sizeInBytes, lastModifiedTimeMillis) + "," + status);
+
+        try {
+            Files.createDirectories(ledgerFilePath.getParent());
+            Path temporaryFilePath = Files.createTempFile(ledgerFilePath.getParent(), LEDGER_FILE_NAME, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFilePath)) {
+                entries.store(outputStream, null);
+            }
+            Files.move(temporaryFilePath, ledgerFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The file stays known until the watcher stops, it is only handled again after a restart.
+            System.err.println("Warning: Failed to save the watch ledger: " + e.getMessage());
+        }
+    }
+
+    private static String getVersion(long sizeInBytes, long lastModifiedTimeMillis) {
+        return sizeInBytes + "," + lastModifiedTimeMillis;
+    }
+}
@@ -0,0 +1,191 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads WAV headers and cuts 16-bit mono parts out of WAV files without ffmpeg, on the sample file and on synthetic
+ * RIFF and RF64 files.
+ */
+public class CutWavFileInProcessTest {
+    private static final String AUDIO_FILE_WAV_PATH = "src/test/resources/sample_audio.wav";
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenTheSampleWavWhenItIsReadThenItsFormatAndDurationAreFound() throws IOException {
+        WavFormat format = WavFileReader.read(Path.of(AUDIO_FILE_WAV_PATH));
+
+        assertFalse(format.floatingPoint());
+        assertEquals(2, format.channels());
+        assertEquals(44100, format.sampleRate());
+        assertEquals(16, format.bitsPerSample());
+        assertEquals("pcm_s16le", format.getCodecName());
+        // Its format chunk is 18 bytes long, the samples come after it and the data chunk header
+        assertEquals(12 + 8 + 18 + 8, format.dataOffset());
+        // Other chunks follow the samples, the size written in the data chunk header leaves them out
+        assertEquals(3_238_032, format.dataLength());
+        assertEquals(format.dataLength() / 4 / 44100.0, format.getDurationInSeconds(), 1e-9);
+    }
+
+    @Test
+    public void givenTheSampleWavWhenAPartIsCutThenItIsMono16BitAtTheRequestedRate() throws IOException {
+        Path sourcePath = Path.of(AUDIO_FILE_WAV_PATH);
+        Path partPath = tempDir.resolve("part.wav");
+
+        WavFileReader.writeMonoPart(sourcePath, WavFileReader.read(sourcePath), 2, 1, 16000, partPath);
+
+        WavFormat partFormat = WavFileReader.read(partPath);
+        assertEquals(1, partFormat.channels());
+        assertEquals(16000, partFormat.sampleRate());
+        assertEquals(16, partFormat.bitsPerSample());
+        assertEquals(44, partFormat.dataOffset());
+        assertEquals(1, partFormat.getDurationInSeconds(), 1.0 / 16000);
+        assertEquals(44 + partFormat.dataLength(), Files.size(partPath));
+    }
+
+    @Test
+    public void givenAnRf64FileWhenItIsReadThenTheDataSizeComesFromTheDs64Chunk() throws IOException {
+        byte[] samples = new byte[8000 * 2];
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(ascii("RF64"));
+        file.writeBytes(littleEndianInt(-1));
+        file.writeBytes(ascii("WAVE"));
+        // ds64: RIFF size, data size, sample count, table length
+        file.writeBytes(ascii("ds64"));
+        file.writeBytes(littleEndianInt(28));
+        file.writeBytes(ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(0).putLong(samples.length).putLong(8000).putInt(0).array());
+        file.writeBytes(formatChunk(WAVE_FORMAT_PCM, 1, 8000, 16, null));
+        file.writeBytes(ascii("data"));
+        file.writeBytes(littleEndianInt(-1));
+        file.writeBytes(samples);
+        // A chunk after the samples, which the data size must leave out
+        file.writeBytes(ascii("LIST"));
+        file.writeBytes(littleEndianInt(4));
+        file.writeBytes(ascii("INFO"));
+
+        WavFormat format = WavFileReader.read(write("long.wav", file.toByteArray()));
+
+        assertEquals(samples.length, format.dataLength());
+        assertEquals(1, format.getDurationInSeconds(), 1e-9);
+    }
+
+    @Test
+    public void givenAnExtensibleFormatChunkWhenItIsReadThenTheSubFormatGivesTheSampleType() throws IOException {
+        // Sub-format GUID of IEEE float, preceded by the valid bits and channel mask
+        byte[] extension = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) 22).putShort((short) 32).putInt(0x3).putShort((short) WAVE_FORMAT_IEEE_FLOAT)
+                .array();
+        Path filePath = write("float.wav", wav(formatChunk(WAVE_FORMAT_EXTENSIBLE, 2, 48000, 32, extension),
+                new byte[48000 * 8]));
+
+        WavFormat format = WavFileReader.read(filePath);
+
+        assertTrue(format.floatingPoint());
+        assertEquals("pcm_f32le", format.getCodecName());
+        assertEquals(8, format.blockAlign());
+        assertEquals(1, format.getDurationInSeconds(), 1e-9);
+    }
+
+    @Test
+    public void givenAStereoFileWhenAPartIsCutThenTheChannelsAreAveragedAndResampled() throws IOException {
+        // One second at 32 kHz, the left channel at half scale and the right one silent
+        ByteBuffer samples = ByteBuffer.allocate(32000 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        while (samples.hasRemaining()) {
+            samples.putShort((short) 16384).putShort((short) 0);
+        }
+        Path sourcePath = write("stereo.wav", wav(formatChunk(WAVE_FORMAT_PCM, 2, 32000, 16, null), samples.array()));
+        Path partPath = tempDir.resolve("part.wav");
+
+        WavFileReader.writeMonoPart(sourcePath, WavFileReader.read(sourcePath), 0, 1, 16000, partPath);
+
+        WavFormat partFormat = WavFileReader.read(partPath);
+        assertEquals(16000, partFormat.sampleRate());
+        assertEquals(16000 * 2, partFormat.dataLength());
+        ByteBuffer partSamples = ByteBuffer.wrap(Files.readAllBytes(partPath)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 44; offset < partSamples.limit(); offset += 2) {
+            assertEquals(8192, partSamples.getShort(offset), 1);
+        }
+    }
+
+    @Test
+    public void givenAMono16BitFileWhenAPartIsCutThenItsSamplesAreCopiedAsTheyAre() throws IOException {
+        byte[] samples = new byte[16000 * 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (byte) i;
+        }
+        Path sourcePath = write("mono.wav", wav(formatChunk(WAVE_FORMAT_PCM, 1, 16000, 16, null), samples));
+        Path partPath = tempDir.resolve("part.wav");
+
+        WavFileReader.writeMonoPart(sourcePath, WavFileReader.read(sourcePath), 0.5, 0.25, 16000, partPath);
+
+        byte[] part = Files.readAllBytes(partPath);
+        assertArrayEquals(Arrays.copyOfRange(samples, 8000 * 2, 12000 * 2), Arrays.copyOfRange(part, 44, part.length));
+    }
+
+    @Test
+    public void givenAFileThatIsNotAWavWhenItIsReadThenItIsRejected() throws IOException {
+        Path filePath = write("notes.wav", ascii("This is a text file, not a RIFF one"));
+
+        assertThrows(IOException.class, () -> WavFileReader.read(filePath));
+    }
+
+    private static byte[] wav(byte[] formatChunk, byte[] samples) {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(ascii("RIFF"));
+        file.writeBytes(littleEndianInt(4 + formatChunk.length + 8 + samples.length));
+        file.writeBytes(ascii("WAVE"));
+        file.writeBytes(formatChunk);
+        file.writeBytes(ascii("data"));
+        file.writeBytes(littleEndianInt(samples.length));
+        file.writeBytes(samples);
+        return file.toByteArray();
+    }
+
+    private static byte[] formatChunk(int formatTag, int channels, int sampleRate, int bitsPerSample, byte[] extension) {
+        int blockAlign = channels * bitsPerSample / 8;
+        int chunkSize = 16 + (extension != null ? extension.length : 0);
+        ByteBuffer chunk = ByteBuffer.allocate(8 + chunkSize).order(ByteOrder.LITTLE_ENDIAN)
+                .put(ascii("fmt "))
+                .putInt(chunkSize)
+                .putShort((short) formatTag)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) bitsPerSample);
+        if (extension != null) {
+            chunk.put(extension);
+        }
+        return chunk.array();
+    }
+
+    private static byte[] littleEndianInt(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(fileName), content);
+    }
+}
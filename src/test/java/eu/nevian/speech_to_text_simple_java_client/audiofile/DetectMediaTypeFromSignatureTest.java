@@ -0,0 +1,134 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import eu.nevian.speech_to_text_simple_java_client.utils.FileType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tells audio from video by the first bytes of the file, on the sample files and on synthetic signatures. Files that
+ * are not recognized get no type, and are left to Tika.
+ */
+public class DetectMediaTypeFromSignatureTest {
+    private static final String AUDIO_FILE_MP3_PATH = "src/test/resources/sample_audio.mp3";
+    private static final String AUDIO_FILE_WAV_PATH = "src/test/resources/sample_audio.wav";
+    private static final String VIDEO_FILE_MP4_PATH = "src/test/resources/sample_video.mp4";
+
+    private static final byte[] MATROSKA_SIGNATURE = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenTheSampleFilesWhenTheyAreSniffedThenTheirTypeIsFound() throws IOException {
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(Path.of(AUDIO_FILE_MP3_PATH)));
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(Path.of(AUDIO_FILE_WAV_PATH)));
+        assertEquals(FileType.VIDEO, MediaSniffer.sniff(Path.of(VIDEO_FILE_MP4_PATH)));
+    }
+
+    @Test
+    public void givenAnMp3StreamWithoutId3TagWhenItIsSniffedThenItIsAudio() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            stream.writeBytes(mp3Frame());
+        }
+
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(write("raw.mp3", stream.toByteArray())));
+    }
+
+    @Test
+    public void givenAnAdtsStreamWhenItIsSniffedThenItIsAudio() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            stream.writeBytes(adtsFrame(100));
+        }
+
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(write("raw.aac", stream.toByteArray())));
+    }
+
+    @Test
+    public void givenAUtf16TextWithByteOrderMarkWhenItIsSniffedThenItIsNotTakenForAudio() throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        // FF FE, followed by text whose first bytes would make a valid MPEG 1 Layer I header
+        text.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xFE});
+        text.writeBytes("Hello, this is not a sound file. ".repeat(50).getBytes(StandardCharsets.UTF_16LE));
+
+        assertNull(MediaSniffer.sniff(write("notes.txt", text.toByteArray())));
+    }
+
+    @Test
+    public void givenASingleSyncWordWhenItIsSniffedThenItIsNotTakenForAudio() throws IOException {
+        // A valid frame header, but no other one where the frame ends
+        byte[] data = new byte[2000];
+        System.arraycopy(mp3Frame(), 0, data, 0, 4);
+
+        assertNull(MediaSniffer.sniff(write("data.bin", data)));
+    }
+
+    @Test
+    public void givenContainersThatMayHoldVideoWhenTheyAreSniffedThenTheirBrandOrExtensionDecides() throws IOException {
+        byte[] matroska = withPadding(MATROSKA_SIGNATURE);
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(write("music.mka", matroska)));
+        assertEquals(FileType.VIDEO, MediaSniffer.sniff(write("movie.mkv", matroska)));
+
+        byte[] m4a = withPadding(new byte[]{0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'M', '4', 'A', ' '});
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(write("song.mp4", m4a)));
+    }
+
+    @Test
+    public void givenOggFilesWhenTheyAreSniffedThenATheoraStreamMakesThemVideo() throws IOException {
+        byte[] vorbis = withPadding("OggS\0\2 vorbis".getBytes(StandardCharsets.US_ASCII));
+        byte[] theora = withPadding("OggS\0\2 theora".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(FileType.AUDIO, MediaSniffer.sniff(write("voice.ogg", vorbis)));
+        assertEquals(FileType.VIDEO, MediaSniffer.sniff(write("clip.ogg", theora)));
+    }
+
+    @Test
+    public void givenAnUnknownSignatureWhenItIsSniffedThenNoTypeIsFound() throws IOException {
+        byte[] text = "Plain text notes".repeat(20).getBytes(StandardCharsets.US_ASCII);
+
+        assertNull(MediaSniffer.sniff(write("notes.txt", text)));
+        assertNull(MediaSniffer.sniff(write("tiny.bin", new byte[]{1, 2})));
+    }
+
+    /** An MPEG 1 Layer III stereo frame at 128 kbit/s and 48 kHz (384 bytes), whose audio data is silent. */
+    private static byte[] mp3Frame() {
+        byte[] frame = new byte[384];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) 0x94;
+        frame[3] = (byte) 0x44;
+        return frame;
+    }
+
+    /** An ADTS frame of AAC LC at 44.1 kHz, stereo, without CRC. */
+    private static byte[] adtsFrame(int frameLength) {
+        byte[] frame = new byte[frameLength];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xF1;
+        frame[2] = (byte) 0x50;
+        frame[3] = (byte) (0x80 | (frameLength >> 11) & 0x03);
+        frame[4] = (byte) (frameLength >> 3);
+        frame[5] = (byte) ((frameLength & 0x07) << 5 | 0x1F);
+        frame[6] = (byte) 0xFC;
+        return frame;
+    }
+
+    private static byte[] withPadding(byte[] signature) {
+        byte[] data = new byte[1024];
+        System.arraycopy(signature, 0, data, 0, signature.length);
+        return data;
+    }
+
+    private Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(fileName), content);
+    }
+}
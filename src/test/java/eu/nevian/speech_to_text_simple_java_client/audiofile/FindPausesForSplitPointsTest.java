@@ -0,0 +1,79 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the pauses reported by the ffmpeg {@code silencedetect} filter and moves split points into them.
+ */
+public class FindPausesForSplitPointsTest {
+
+    @Test
+    public void givenASilenceDetectLogWhenItIsReadThenEveryClosedSilenceIsKept() {
+        SilenceMap silenceMap = SilenceMap.fromSilenceDetectLog(List.of(
+                "Input #0, mp3, from 'interview.mp3':",
+                "[silencedetect @ 0x55d5c8a3c2c0] silence_start: 12.5",
+                "[silencedetect @ 0x55d5c8a3c2c0] silence_end: 14 | silence_duration: 1.5",
+                "size=N/A time=00:00:30.00 bitrate=N/A speed= 512x",
+                "[silencedetect @ 0x55d5c8a3c2c0] silence_start: 28.25",
+                "[silencedetect @ 0x55d5c8a3c2c0] silence_end: 29.75 | silence_duration: 1.5"
+        ));
+
+        assertEquals(List.of(new SilenceMap.Silence(12.5, 14), new SilenceMap.Silence(28.25, 29.75)),
+                silenceMap.getSilences());
+        assertEquals(3, silenceMap.getTotalSilenceDuration(), 1e-9);
+    }
+
+    @Test
+    public void givenASilenceStartingBeforeTheAudioWhenItIsReadThenItStartsAtZero() {
+        // silencedetect reports a negative start for a silence at the very beginning
+        SilenceMap silenceMap = SilenceMap.fromSilenceDetectLog(List.of(
+                "[silencedetect @ 0x1] silence_start: -0.0125",
+                "[silencedetect @ 0x1] silence_end: 0.8 | silence_duration: 0.8125"
+        ));
+
+        assertEquals(List.of(new SilenceMap.Silence(0, 0.8)), silenceMap.getSilences());
+    }
+
+    @Test
+    public void givenASilenceStillOpenAtTheEndWhenTheLogIsReadThenItIsIgnored() {
+        SilenceMap silenceMap = SilenceMap.fromSilenceDetectLog(List.of(
+                "[silencedetect @ 0x1] silence_start: 3",
+                "[silencedetect @ 0x1] silence_end: 4 | silence_duration: 1",
+                "[silencedetect @ 0x1] silence_end: 6 | silence_duration: 1",
+                "[silencedetect @ 0x1] silence_start: 59.5"
+        ));
+
+        // An end without a start is dropped too
+        assertEquals(List.of(new SilenceMap.Silence(3, 4)), silenceMap.getSilences());
+    }
+
+    @Test
+    public void givenNoSilenceDetectLinesWhenTheLogIsReadThenTheMapIsEmpty() {
+        SilenceMap silenceMap = SilenceMap.fromSilenceDetectLog(List.of("ffmpeg version 6.1", "Stream #0:0: Audio: mp3"));
+
+        assertTrue(silenceMap.getSilences().isEmpty());
+        assertEquals(0, silenceMap.getTotalSilenceDuration());
+        assertEquals(120, silenceMap.findSplitTime(120, 10));
+    }
+
+    @Test
+    public void givenPausesNearASplitPointWhenItIsPlacedThenItMovesToTheMiddleOfTheNearestOne() {
+        SilenceMap silenceMap = SilenceMap.fromSilenceDetectLog(List.of(
+                "silence_start: 95",
+                "silence_end: 97",
+                "silence_start: 101",
+                "silence_end: 102",
+                "silence_start: 200",
+                "silence_end: 210"
+        ));
+
+        assertEquals(101.5, silenceMap.findSplitTime(100, 5));
+        assertEquals(96, silenceMap.findSplitTime(98, 5));
+        // The only pauses are too far away
+        assertEquals(150, silenceMap.findSplitTime(150, 5));
+    }
+}
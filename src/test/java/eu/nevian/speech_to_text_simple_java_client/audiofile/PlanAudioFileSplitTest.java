@@ -0,0 +1,95 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chooses between uploading a file as it is, cutting it with stream copy and encoding it, with a 20 MB size limit.
+ */
+public class PlanAudioFileSplitTest {
+    private static final long MAX_SIZE_IN_BYTES = 20 * 1024 * 1024;
+
+    private static final double ONE_HOUR = 3600;
+
+    private static final SilenceMap PAUSES = SilenceMap.fromSilenceDetectLog(List.of(
+            "silence_start: 203",
+            "silence_end: 205"
+    ));
+
+    @Test
+    public void givenAFileUnderTheLimitWhenItIsPlannedThenItIsUploadedAsItIs() {
+        SplitPlanner.SplitPlan plan = SplitPlanner.plan(audioFile(ONE_HOUR, 10_000_000), MAX_SIZE_IN_BYTES,
+                new AudioCodecInfo("mp3", 22_000), EncodingProfile.MP3_MONO, 1, SilenceMap.EMPTY);
+
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.UPLOAD_AS_IS, 1, null), plan);
+    }
+
+    @Test
+    public void givenAnHourOf128KbitMp3WhenItIsPlannedThenItIsCutWithStreamCopy() {
+        // 3 copied parts instead of 1 encoded part: 20 seconds of extra requests against 90 seconds of encoding
+        SplitPlanner.SplitPlan plan = SplitPlanner.plan(audioFile(ONE_HOUR, (long) (ONE_HOUR * 128_000 / 8)),
+                MAX_SIZE_IN_BYTES, new AudioCodecInfo("mp3", 128_000), EncodingProfile.MP3_MONO, 1, SilenceMap.EMPTY);
+
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.STREAM_COPY, 3, "mp3"), plan);
+    }
+
+    @Test
+    public void givenAVeryHighBitRateSourceWhenItIsPlannedThenItIsEncoded() {
+        // 12 copied parts of 512 kbit/s AAC would cost more requests than encoding takes
+        SplitPlanner.SplitPlan plan = SplitPlanner.plan(audioFile(ONE_HOUR, (long) (ONE_HOUR * 512_000 / 8)),
+                MAX_SIZE_IN_BYTES, new AudioCodecInfo("aac", 512_000), EncodingProfile.MP3_MONO, 1, SilenceMap.EMPTY);
+
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.TRANSCODE, 1, "mp3"), plan);
+    }
+
+    @Test
+    public void givenACodecTheApiDoesNotTakeWhenItIsPlannedThenItIsEncoded() {
+        SplitPlanner.SplitPlan pcmPlan = SplitPlanner.plan(audioFile(ONE_HOUR, (long) (ONE_HOUR * 1_411_200 / 8)),
+                MAX_SIZE_IN_BYTES, new AudioCodecInfo("pcm_s16le", 1_411_200), EncodingProfile.OPUS_MONO, 1,
+                SilenceMap.EMPTY);
+        SplitPlanner.SplitPlan unknownCodecPlan = SplitPlanner.plan(audioFile(ONE_HOUR, 50_000_000),
+                MAX_SIZE_IN_BYTES, null, EncodingProfile.OPUS_MONO, 1, SilenceMap.EMPTY);
+
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.TRANSCODE, 1, "ogg"), pcmPlan);
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.TRANSCODE, 1, "ogg"), unknownCodecPlan);
+    }
+
+    @Test
+    public void givenAChangedTempoWhenAFileUnderTheLimitIsPlannedThenItIsEncodedFromTheShorterDuration() {
+        SplitPlanner.SplitPlan smallFilePlan = SplitPlanner.plan(audioFile(600, 5_000_000), MAX_SIZE_IN_BYTES,
+                new AudioCodecInfo("mp3", 64_000), EncodingProfile.MP3_MONO, 1.5, SilenceMap.EMPTY);
+        // 12 hours are 173 MB of 32 kbit/s MP3, 8 hours at double speed are 115 MB
+        SplitPlanner.SplitPlan longFilePlan = SplitPlanner.plan(audioFile(12 * ONE_HOUR, 500_000_000),
+                MAX_SIZE_IN_BYTES, new AudioCodecInfo("mp3", 64_000), EncodingProfile.MP3_MONO, 1.5, SilenceMap.EMPTY);
+
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.TRANSCODE, 1, "mp3"), smallFilePlan);
+        assertEquals(new SplitPlanner.SplitPlan(SplitPlanner.Strategy.TRANSCODE, 7, "mp3"), longFilePlan);
+    }
+
+    @Test
+    public void givenPausesWhenThePartsAreCountedThenTheyLeaveRoomForSplitPointsToMove() {
+        assertEquals(2, SplitPlanner.countParts(100, 50, SilenceMap.EMPTY));
+        // Parts may grow by 10 % when both ends move into a pause
+        assertEquals(3, SplitPlanner.countParts(100, 50, PAUSES));
+        assertEquals(1, SplitPlanner.countParts(0, 50, PAUSES));
+    }
+
+    @Test
+    public void givenAPauseNearASplitPointWhenTheSplitTimesAreComputedThenItMovesIntoThePause() {
+        assertEquals(List.of(200.0, 300.0), SplitPlanner.computeSplitTimes(100, 300, 3, SilenceMap.EMPTY));
+        // Parts of 100 seconds, split points move by 5 seconds at most
+        assertEquals(List.of(204.0, 300.0), SplitPlanner.computeSplitTimes(100, 300, 3, PAUSES));
+        assertTrue(SplitPlanner.computeSplitTimes(0, 300, 1, PAUSES).isEmpty());
+    }
+
+    private static AudioFile audioFile(double duration, long fileSize) {
+        AudioFile audioFile = new AudioFile();
+        audioFile.setDuration(duration);
+        audioFile.setFileSize(fileSize);
+        return audioFile;
+    }
+}
@@ -0,0 +1,191 @@
+package eu.nevian.speech_to_text_simple_java_client.audiofile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads MP3 durations from the frame headers, on the sample file and on synthetic MPEG 1 Layer III streams at 48 kHz,
+ * whose frames last exactly 24 ms: 384 bytes at 128 kbit/s and 192 bytes at 64 kbit/s.
+ */
+public class ReadMp3DurationFromFrameHeadersTest {
+    private static final String AUDIO_FILE_MP3_PATH = "src/test/resources/sample_audio.mp3";
+
+    /** Frames of the sample file, as written in its Info header. */
+    private static final int SAMPLE_AUDIO_FRAME_COUNT = 704;
+
+    private static final double FRAME_DURATION_IN_SECONDS = 0.024;
+    private static final int BIT_RATE_INDEX_128K = 9;
+    private static final int BIT_RATE_INDEX_64K = 5;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenTheSampleMp3WhenItIsProbedThenTheDurationComesFromItsInfoHeader() throws IOException {
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(Path.of(AUDIO_FILE_MP3_PATH));
+        Mp3FrameIndex indexed = Mp3FrameIndexer.index(Path.of(AUDIO_FILE_MP3_PATH));
+
+        assertEquals(SAMPLE_AUDIO_FRAME_COUNT * 1152 / 44100.0, probed.durationInSeconds(), 1e-9);
+        assertEquals(44100, probed.sampleRate());
+        assertEquals(2, probed.channels());
+        assertEquals(0, probed.frameOffsets().length);
+        // Walking the frames finds as many as the header announces, the silent Info frame excluded
+        assertEquals(SAMPLE_AUDIO_FRAME_COUNT, indexed.frameOffsets().length);
+        assertEquals(probed.durationInSeconds(), indexed.durationInSeconds(), 1e-9);
+        assertEquals(probed.firstFrameOffset(), indexed.frameOffsets()[0]);
+    }
+
+    @Test
+    public void givenAConstantBitRateStreamWhenItIsProbedThenTheDurationComesFromItsSize() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            stream.writeBytes(frame(BIT_RATE_INDEX_128K));
+        }
+
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(write("cbr.mp3", stream.toByteArray()));
+
+        assertEquals(100 * FRAME_DURATION_IN_SECONDS, probed.durationInSeconds(), 1e-9);
+        assertEquals(128_000, probed.bitRateInBitsPerSecond());
+        assertEquals(48_000, probed.sampleRate());
+        assertEquals(1152, probed.samplesPerFrame());
+        assertEquals(0, probed.firstFrameOffset());
+        assertEquals(100 * 384, probed.audioDataEnd());
+    }
+
+    @Test
+    public void givenAVariableBitRateStreamWithoutHeaderWhenItIsProbedThenEveryFrameIsCounted() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            stream.writeBytes(frame(BIT_RATE_INDEX_128K));
+            stream.writeBytes(frame(BIT_RATE_INDEX_64K));
+        }
+        Path filePath = write("vbr.mp3", stream.toByteArray());
+
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(filePath);
+        Mp3FrameIndex indexed = Mp3FrameIndexer.index(filePath);
+
+        assertEquals(100 * FRAME_DURATION_IN_SECONDS, probed.durationInSeconds(), 1e-9);
+        assertEquals(96_000, probed.bitRateInBitsPerSecond());
+        assertEquals(100, indexed.frameOffsets().length);
+        assertEquals(384, indexed.frameOffsets()[1]);
+        assertEquals(384 + 192, indexed.frameOffsets()[2]);
+    }
+
+    @Test
+    public void givenAXingHeaderWhenTheFileIsProbedThenItsFrameCountIsTrusted() throws IOException {
+        byte[] xingFrame = frame(BIT_RATE_INDEX_128K);
+        // Stereo MPEG 1: the Xing header follows 32 bytes of side information
+        ByteBuffer.wrap(xingFrame, 4 + 32, 12)
+                .put("Xing".getBytes(StandardCharsets.US_ASCII))
+                .putInt(0x1)
+                .putInt(1000);
+        Path filePath = write("xing.mp3", stream(xingFrame, 10));
+
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(filePath);
+        Mp3FrameIndex indexed = Mp3FrameIndexer.index(filePath);
+
+        // The header is believed without reading the frames, the walk counts the ones that are there
+        assertEquals(1000 * FRAME_DURATION_IN_SECONDS, probed.durationInSeconds(), 1e-9);
+        assertEquals(384, probed.firstFrameOffset());
+        assertEquals(10 * FRAME_DURATION_IN_SECONDS, indexed.durationInSeconds(), 1e-9);
+        assertEquals(10, indexed.frameOffsets().length);
+        assertEquals(384, indexed.frameOffsets()[0]);
+    }
+
+    @Test
+    public void givenAVbriHeaderWhenTheFileIsProbedThenItsFrameCountIsTrusted() throws IOException {
+        byte[] vbriFrame = frame(BIT_RATE_INDEX_128K);
+        // The VBRI header sits 32 bytes after the frame header, and holds the frame count 14 bytes further
+        ByteBuffer.wrap(vbriFrame).put(4 + 32, "VBRI".getBytes(StandardCharsets.US_ASCII)).putInt(4 + 32 + 14, 500);
+        Path filePath = write("vbri.mp3", stream(vbriFrame, 10));
+
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(filePath);
+
+        assertEquals(500 * FRAME_DURATION_IN_SECONDS, probed.durationInSeconds(), 1e-9);
+        assertEquals(384, probed.firstFrameOffset());
+    }
+
+    @Test
+    public void givenId3AndApeTagsAroundTheFramesWhenTheFileIsProbedThenOnlyTheFramesAreCounted() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+        // ID3v2 tag of 100 bytes, its size written as a synchsafe integer
+        byte[] id3v2Tag = new byte[10 + 100];
+        id3v2Tag[0] = 'I';
+        id3v2Tag[1] = 'D';
+        id3v2Tag[2] = '3';
+        id3v2Tag[3] = 4;
+        id3v2Tag[9] = 100;
+        file.writeBytes(id3v2Tag);
+
+        for (int i = 0; i < 20; i++) {
+            file.writeBytes(frame(BIT_RATE_INDEX_128K));
+        }
+
+        // APE tag of 64 bytes of items, with a footer and no header, then an ID3v1 tag
+        byte[] apeTag = new byte[64 + 32];
+        ByteBuffer.wrap(apeTag).order(ByteOrder.LITTLE_ENDIAN)
+                .put(64, "APETAGEX".getBytes(StandardCharsets.US_ASCII))
+                .putInt(64 + 8, 2000)
+                .putInt(64 + 12, 64 + 32);
+        file.writeBytes(apeTag);
+        byte[] id3v1Tag = new byte[128];
+        id3v1Tag[0] = 'T';
+        id3v1Tag[1] = 'A';
+        id3v1Tag[2] = 'G';
+        file.writeBytes(id3v1Tag);
+
+        Path filePath = write("tagged.mp3", file.toByteArray());
+
+        // The constant bitrate estimate divides the size of the audio data, the tags must not be part of it
+        Mp3FrameIndex probed = Mp3FrameIndexer.probe(filePath);
+        Mp3FrameIndex indexed = Mp3FrameIndexer.index(filePath);
+
+        assertEquals(110, probed.firstFrameOffset());
+        assertEquals(110 + 20 * 384, probed.audioDataEnd());
+        assertEquals(20 * FRAME_DURATION_IN_SECONDS, probed.durationInSeconds(), 1e-9);
+        assertEquals(20, indexed.frameOffsets().length);
+    }
+
+    @Test
+    public void givenAFileWithoutMpegFramesWhenItIsProbedThenItIsRejected() throws IOException {
+        Path filePath = write("notes.mp3", "Not an MP3 file at all".repeat(100).getBytes(StandardCharsets.US_ASCII));
+
+        assertThrows(IOException.class, () -> Mp3FrameIndexer.probe(filePath));
+    }
+
+    /** An MPEG 1 Layer III stereo frame at 48 kHz, without padding, whose audio data is silent. */
+    private static byte[] frame(int bitRateIndex) {
+        int bitRate = bitRateIndex == BIT_RATE_INDEX_128K ? 128_000 : 64_000;
+        byte[] frame = new byte[144 * bitRate / 48_000];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xFB;
+        frame[2] = (byte) (bitRateIndex << 4 | 1 << 2);
+        frame[3] = (byte) 0x44;
+        return frame;
+    }
+
+    /** A first frame followed by audio frames at 128 kbit/s. */
+    private static byte[] stream(byte[] firstFrame, int audioFrameCount) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.writeBytes(firstFrame);
+        for (int i = 0; i < audioFrameCount; i++) {
+            stream.writeBytes(frame(BIT_RATE_INDEX_128K));
+        }
+        return stream.toByteArray();
+    }
+
+    private Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(fileName), content);
+    }
+}
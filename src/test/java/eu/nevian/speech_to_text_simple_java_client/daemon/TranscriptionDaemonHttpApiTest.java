@@ -0,0 +1,314 @@
+package eu.nevian.speech_to_text_simple_java_client.daemon;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.nevian.speech_to_text_simple_java_client.config.ResolvedApplicationConfig;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionjob.TranscriptionJobContext;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.HttpTransportSettings;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.RateLimitSettings;
+import eu.nevian.speech_to_text_simple_java_client.transcriptionservice.TranscriptionServiceDefinition;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the daemon against a local stand-in for the Whisper endpoint. The sample MP3 is under the size limit, so it is
+ * uploaded as it is and no ffmpeg run is needed.
+ */
+public class TranscriptionDaemonHttpApiTest {
+    private static final String AUDIO_FILE_MP3_PATH = "src/test/resources/sample_audio.mp3";
+    private static final String STAND_IN_TRANSCRIPT = "Transcript from the stand-in";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer standInServer;
+    private ExecutorService standInExecutor;
+    private final AtomicInteger transcriptionRequestCount = new AtomicInteger();
+    private volatile CountDownLatch transcriptionGate = new CountDownLatch(0);
+
+    private TranscriptionDaemon daemon;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void startStandIn() throws IOException {
+        standInServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        standInServer.createContext("/v1/models/whisper-1",
+                exchange -> respond(exchange, "{\"id\": \"whisper-1\", \"object\": \"model\"}"));
+        standInServer.createContext("/v1/audio/transcriptions", exchange -> {
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                requestBody.readAllBytes();
+            }
+            transcriptionRequestCount.incrementAndGet();
+            try {
+                transcriptionGate.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "{\"text\": \"" + STAND_IN_TRANSCRIPT + "\"}");
+        });
+        // Several uploads are held at the same time by the queue test
+        standInExecutor = Executors.newCachedThreadPool();
+        standInServer.setExecutor(standInExecutor);
+        standInServer.start();
+    }
+
+    @AfterEach
+    public void stopServers() {
+        transcriptionGate.countDown();
+        if (daemon != null) {
+            daemon.stop();
+        }
+        standInServer.stop(0);
+        standInExecutor.shutdownNow();
+    }
+
+    @Test
+    public void givenAnAudioFileWhenItIsSubmittedThenItsJobCanBePolledAndItsTranscriptFetched() throws Exception {
+        daemon = startDaemon(2, 10);
+        Path audioFilePath = copySampleAudio("interview.mp3");
+
+        HttpResponse<String> submitResponse = post("/jobs", "{\"path\": " + OBJECT_MAPPER.writeValueAsString(
+                audioFilePath.toString()) + ", \"language\": \"fr\"}");
+        assertEquals(202, submitResponse.statusCode());
+        JsonNode submittedJob = OBJECT_MAPPER.readTree(submitResponse.body());
+        String jobId = submittedJob.path("id").asText();
+        assertEquals("/jobs/" + jobId, submitResponse.headers().firstValue("Location").orElse(null));
+        assertEquals("fr", submittedJob.path("language").asText());
+
+        JsonNode finishedJob = awaitFinishedJob(jobId);
+        assertEquals("done", finishedJob.path("status").asText(), finishedJob.toString());
+        assertEquals(1, finishedJob.path("parts").asInt());
+        assertTrue(finishedJob.path("audio_seconds").asDouble() > 0);
+
+        HttpResponse<String> transcriptResponse = get("/jobs/" + jobId + "/transcript");
+        assertEquals(200, transcriptResponse.statusCode());
+        assertTrue(transcriptResponse.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        assertEquals(STAND_IN_TRANSCRIPT, transcriptResponse.body().strip());
+        assertEquals(1, transcriptionRequestCount.get());
+    }
+
+    @Test
+    public void givenAFullQueueWhenAJobIsSubmittedThenItIsRejectedWithRetryAfter() throws Exception {
+        // One job running, held by the stand-in, and one waiting fill the daemon
+        transcriptionGate = new CountDownLatch(1);
+        daemon = startDaemon(1, 1);
+
+        HttpResponse<String> runningResponse = submit(copySampleAudio("first.mp3"));
+        HttpResponse<String> queuedResponse = submit(copySampleAudio("second.mp3"));
+        HttpResponse<String> rejectedResponse = submit(copySampleAudio("third.mp3"));
+
+        assertEquals(202, runningResponse.statusCode());
+        assertEquals(202, queuedResponse.statusCode());
+        assertEquals(503, rejectedResponse.statusCode());
+        assertEquals("5", rejectedResponse.headers().firstValue("Retry-After").orElse(null));
+
+        JsonNode health = OBJECT_MAPPER.readTree(get("/health").body());
+        assertEquals(1, health.path("queued").asInt());
+
+        // Once the stand-in answers, the accepted jobs finish and room is made again
+        transcriptionGate.countDown();
+        assertEquals("done", awaitFinishedJob(OBJECT_MAPPER.readTree(runningResponse.body()).path("id").asText())
+                .path("status").asText());
+        assertEquals("done", awaitFinishedJob(OBJECT_MAPPER.readTree(queuedResponse.body()).path("id").asText())
+                .path("status").asText());
+        assertEquals(202, submit(copySampleAudio("fourth.mp3")).statusCode());
+    }
+
+    @Test
+    public void givenAFileAlreadyQueuedWhenItIsSubmittedAgainThenTheSameJobIsReturned() throws Exception {
+        transcriptionGate = new CountDownLatch(1);
+        daemon = startDaemon(1, 10);
+        Path audioFilePath = copySampleAudio("meeting.mp3");
+
+        HttpResponse<String> firstResponse = submit(audioFilePath);
+        HttpResponse<String> secondResponse = submit(audioFilePath);
+
+        assertEquals(202, firstResponse.statusCode());
+        assertEquals(200, secondResponse.statusCode());
+        assertEquals(OBJECT_MAPPER.readTree(firstResponse.body()).path("id").asText(),
+                OBJECT_MAPPER.readTree(secondResponse.body()).path("id").asText());
+    }
+
+    @Test
+    public void givenAnUnfinishedOrUnknownJobWhenItsTranscriptIsFetchedThenItIsRefused() throws Exception {
+        transcriptionGate = new CountDownLatch(1);
+        daemon = startDaemon(1, 10);
+
+        String jobId = OBJECT_MAPPER.readTree(submit(copySampleAudio("lecture.mp3")).body()).path("id").asText();
+
+        assertEquals(409, get("/jobs/" + jobId + "/transcript").statusCode());
+        assertEquals(404, get("/jobs/unknown").statusCode());
+        assertEquals(404, get("/jobs/unknown/transcript").statusCode());
+    }
+
+    @Test
+    public void givenAnInvalidSubmissionWhenItIsPostedThenItIsRejectedAsABadRequest() throws Exception {
+        daemon = startDaemon(1, 10);
+
+        assertEquals(400, post("/jobs", "not json").statusCode());
+        assertEquals(400, post("/jobs", "{}").statusCode());
+        assertEquals(400, post("/jobs", "{\"path\": " + OBJECT_MAPPER.writeValueAsString(
+                tempDir.resolve("missing.mp3").toString()) + "}").statusCode());
+        assertEquals(400, submit(copySampleAudio("talk.mp3"), "xx").statusCode());
+    }
+
+    @Test
+    public void givenASubmissionThatIsNotJsonWhenItIsPostedThenItIsRejectedAsAnUnsupportedMediaType() throws Exception {
+        daemon = startDaemon(1, 10);
+        String submission = "{\"path\": " + OBJECT_MAPPER.writeValueAsString(copySampleAudio("form.mp3").toString())
+                + "}";
+
+        HttpResponse<String> textResponse = post("/jobs", submission, "text/plain");
+        HttpResponse<String> formResponse = post("/jobs", submission, "application/x-www-form-urlencoded");
+
+        assertEquals(415, textResponse.statusCode());
+        assertEquals(415, formResponse.statusCode());
+        assertEquals(0, OBJECT_MAPPER.readTree(get("/health").body()).path("queued").asInt());
+        assertEquals(202, post("/jobs", submission, "application/json; charset=utf-8").statusCode());
+    }
+
+    @Test
+    public void givenARequestForAnotherHostWhenItIsReceivedThenItIsForbidden() throws Exception {
+        daemon = startDaemon(1, 10);
+
+        // A page whose DNS name was rebound to the loopback address still sends its own name
+        assertEquals(403, statusCodeForHost("attacker.example:" + daemon.getPort()));
+        assertEquals(403, statusCodeForHost("localhost:" + (daemon.getPort() + 1)));
+        assertEquals(403, statusCodeForHost(null));
+        assertEquals(200, statusCodeForHost("localhost:" + daemon.getPort()));
+        assertEquals(200, statusCodeForHost("[::1]:" + daemon.getPort()));
+        assertEquals(200, get("/health").statusCode());
+    }
+
+    private TranscriptionDaemon startDaemon(int maxConcurrentJobs, int queueCapacity) throws IOException {
+        String standInBaseUrl = "http://127.0.0.1:" + standInServer.getAddress().getPort() + "/v1";
+        ResolvedApplicationConfig config = new ResolvedApplicationConfig(
+                "test-api-key",
+                "en",
+                20971520,
+                2,
+                maxConcurrentJobs,
+                0,
+                queueCapacity,
+                null,
+                Duration.ofSeconds(5),
+                false,
+                false,
+                false,
+                EncodingProfile.MP3_MONO,
+                1,
+                TranscriptionServiceDefinition.openAiWhisper(standInBaseUrl),
+                HttpTransportSettings.DEFAULT,
+                new RateLimitSettings(1000, 1_000_000),
+                tempDir.resolve(".sttsjc"),
+                10 * 1024 * 1024,
+                Duration.ofMinutes(1),
+                null
+        );
+
+        TranscriptionJobContext context = TranscriptionJobContext.open(config, EncodingProfile.MP3_MONO, false, 1);
+        return TranscriptionDaemon.start(context, 0, maxConcurrentJobs, queueCapacity);
+    }
+
+    private Path copySampleAudio(String fileName) throws IOException {
+        Path audioFilePath = tempDir.resolve(fileName);
+        Files.copy(Path.of(AUDIO_FILE_MP3_PATH), audioFilePath);
+        return audioFilePath;
+    }
+
+    private JsonNode awaitFinishedJob(String jobId) throws Exception {
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadlineNanos) {
+            JsonNode job = OBJECT_MAPPER.readTree(get("/jobs/" + jobId).body());
+            String status = job.path("status").asText();
+            if (status.equals("done") || status.equals("failed")) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Job " + jobId + " did not finish");
+    }
+
+    private HttpResponse<String> submit(Path audioFilePath) throws Exception {
+        return post("/jobs", "{\"path\": " + OBJECT_MAPPER.writeValueAsString(audioFilePath.toString()) + "}");
+    }
+
+    private HttpResponse<String> submit(Path audioFilePath, String language) throws Exception {
+        return post("/jobs", "{\"path\": " + OBJECT_MAPPER.writeValueAsString(audioFilePath.toString())
+                + ", \"language\": \"" + language + "\"}");
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return post(path, body, "application/json");
+    }
+
+    private HttpResponse<String> post(String path, String body, String contentType) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(daemonUri(path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends {@code GET /health} with the given Host header, or none, over a plain socket: the HTTP client always sets
+     * the Host header from the URI.
+     */
+    private int statusCodeForHost(String host) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            String request = "GET /health HTTP/1.1\r\n"
+                    + (host != null ? "Host: " + host + "\r\n" : "")
+                    + "Connection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(daemonUri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI daemonUri(String path) {
+        return URI.create("http://127.0.0.1:" + daemon.getPort() + path);
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
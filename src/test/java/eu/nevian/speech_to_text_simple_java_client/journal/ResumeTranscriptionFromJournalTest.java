@@ -0,0 +1,191 @@
+package eu.nevian.speech_to_text_simple_java_client.journal;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+import eu.nevian.speech_to_text_simple_java_client.utils.EncodingProfile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads back the plan and the finished transcripts of an interrupted job, and starts over when the input or the
+ * settings of the job changed.
+ */
+public class ResumeTranscriptionFromJournalTest {
+    private static final String LANGUAGE = "en";
+    private static final EncodingProfile ENCODING_PROFILE = EncodingProfile.MP3_MONO;
+    private static final double TEMPO_FACTOR = 1.5;
+    private static final boolean TRIM_SILENCE = true;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenAnInterruptedJobWhenItsJournalIsOpenedAgainThenThePlanAndTranscriptsAreRestored()
+            throws IOException {
+        Path inputPath = writeInput();
+
+        TranscriptionJournal journal = openJournal(inputPath);
+        AudioFile filePart = filePart(journal, "talk_part1.mp3");
+        journal.recordPlan(List.of(filePart, byteRangePart(inputPath)));
+        journal.recordTranscript(filePart, "Hello and welcome.");
+        journal.close();
+
+        TranscriptionJournal resumedJournal = openJournal(inputPath);
+
+        assertTrue(resumedJournal.hasPlan());
+        assertEquals(1, resumedJournal.getTranscribedPartCount());
+        List<AudioFile> parts = resumedJournal.getPlannedParts();
+        assertEquals(2, parts.size());
+        assertEquals("Hello and welcome.", resumedJournal.getTranscript(parts.get(0)));
+        assertNull(resumedJournal.getTranscript(parts.get(1)));
+
+        AudioFile resumedFilePart = parts.get(0);
+        assertEquals(AudioFileStorage.FILE, resumedFilePart.getStorage());
+        assertEquals(Path.of(filePart.getFilePath()).toAbsolutePath().toString(), resumedFilePart.getFilePath());
+        assertEquals(ENCODING_PROFILE, resumedFilePart.getEncodingProfile());
+        assertEquals(TEMPO_FACTOR, resumedFilePart.getTempoFactor());
+
+        AudioFile resumedByteRangePart = parts.get(1);
+        assertEquals(AudioFileStorage.BYTE_RANGE, resumedByteRangePart.getStorage());
+        assertEquals(inputPath.toAbsolutePath().toString(), resumedByteRangePart.getSourceFilePath());
+        assertEquals(1000, resumedByteRangePart.getByteOffset());
+        assertEquals(2000, resumedByteRangePart.getFileSize());
+        assertEquals(600, resumedByteRangePart.getStartTime());
+        assertEquals(1, resumedByteRangePart.getTempoFactor());
+        assertNull(resumedByteRangePart.getEncodingProfile());
+        resumedJournal.close();
+    }
+
+    @Test
+    public void givenChangedSettingsWhenTheJournalIsOpenedAgainThenItIsDiscarded() throws IOException {
+        Path inputPath = writeInput();
+        List<JournalOpener> changedSettingsOpeners = List.of(
+                () -> TranscriptionJournal.open(inputPath, "fr", ENCODING_PROFILE, TEMPO_FACTOR, TRIM_SILENCE),
+                () -> TranscriptionJournal.open(inputPath, LANGUAGE, EncodingProfile.OPUS_MONO, TEMPO_FACTOR,
+                        TRIM_SILENCE),
+                () -> TranscriptionJournal.open(inputPath, LANGUAGE, ENCODING_PROFILE, 1, TRIM_SILENCE),
+                () -> TranscriptionJournal.open(inputPath, LANGUAGE, ENCODING_PROFILE, TEMPO_FACTOR, false)
+        );
+
+        for (JournalOpener changedSettingsOpener : changedSettingsOpeners) {
+            TranscriptionJournal journal = openJournal(inputPath);
+            AudioFile filePart = filePart(journal, "talk_part1.mp3");
+            journal.recordPlan(List.of(filePart));
+            journal.recordTranscript(filePart, "Hello and welcome.");
+            journal.close();
+
+            TranscriptionJournal reopenedJournal = changedSettingsOpener.open();
+
+            assertFalse(reopenedJournal.hasPlan());
+            assertEquals(0, reopenedJournal.getTranscribedPartCount());
+            reopenedJournal.close();
+        }
+    }
+
+    @Test
+    public void givenAModifiedInputWhenTheJournalIsOpenedAgainThenItIsDiscardedWithItsAudio() throws IOException {
+        Path inputPath = writeInput();
+        TranscriptionJournal journal = openJournal(inputPath);
+        AudioFile filePart = filePart(journal, "talk_part1.mp3");
+        journal.recordPlan(List.of(filePart));
+        journal.close();
+
+        Files.write(inputPath, new byte[100], StandardOpenOption.APPEND);
+        TranscriptionJournal reopenedJournal = openJournal(inputPath);
+
+        assertFalse(reopenedJournal.hasPlan());
+        assertFalse(Files.exists(Path.of(filePart.getFilePath())));
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void givenAMissingPartFileWhenTheJournalIsOpenedAgainThenItIsDiscarded() throws IOException {
+        Path inputPath = writeInput();
+        TranscriptionJournal journal = openJournal(inputPath);
+        AudioFile filePart = filePart(journal, "talk_part1.mp3");
+        journal.recordPlan(List.of(filePart));
+        journal.close();
+
+        Files.delete(Path.of(filePart.getFilePath()));
+        TranscriptionJournal reopenedJournal = openJournal(inputPath);
+
+        assertFalse(reopenedJournal.hasPlan());
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void givenARecordTornByACrashWhenTheJournalIsOpenedAgainThenTheRecordsBeforeItAreKept() throws IOException {
+        Path inputPath = writeInput();
+        TranscriptionJournal journal = openJournal(inputPath);
+        AudioFile filePart = filePart(journal, "talk_part1.mp3");
+        journal.recordPlan(List.of(filePart, filePart(journal, "talk_part2.mp3")));
+        journal.recordTranscript(filePart, "Hello and welcome.");
+        journal.close();
+
+        Files.writeString(journal.getDirectoryPath().resolve("journal.log"),
+                "{\"type\":\"transcript\",\"part\":\"talk_part2.mp3\",\"te", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        TranscriptionJournal resumedJournal = openJournal(inputPath);
+
+        assertEquals(2, resumedJournal.getPlannedParts().size());
+        assertEquals(1, resumedJournal.getTranscribedPartCount());
+        resumedJournal.close();
+    }
+
+    @Test
+    public void givenAFinishedJobWhenTheJournalIsDeletedThenItsDirectoryIsGone() throws IOException {
+        Path inputPath = writeInput();
+        TranscriptionJournal journal = openJournal(inputPath);
+        journal.recordPlan(List.of(filePart(journal, "talk_part1.mp3")));
+
+        journal.delete();
+
+        assertFalse(Files.exists(journal.getDirectoryPath()));
+        assertTrue(Files.exists(inputPath));
+    }
+
+    private Path writeInput() throws IOException {
+        return Files.write(tempDir.resolve("talk.mp3"), new byte[10_000]);
+    }
+
+    private static TranscriptionJournal openJournal(Path inputPath) throws IOException {
+        return TranscriptionJournal.open(inputPath, LANGUAGE, ENCODING_PROFILE, TEMPO_FACTOR, TRIM_SILENCE);
+    }
+
+    /** A part encoded into the journal directory. */
+    private static AudioFile filePart(TranscriptionJournal journal, String fileName) throws IOException {
+        AudioFile part = new AudioFile();
+        part.setFilePath(Files.write(journal.getDirectoryPath().resolve(fileName), new byte[500]).toString());
+        part.setDuration(400);
+        part.setFileSize(500);
+        part.setEncodingProfile(ENCODING_PROFILE);
+        part.setTempoFactor(TEMPO_FACTOR);
+        return part;
+    }
+
+    /** A part uploaded as a range of bytes of the input. */
+    private static AudioFile byteRangePart(Path inputPath) {
+        AudioFile part = new AudioFile();
+        part.setFilePath("talk_part2.mp3");
+        part.setStorage(AudioFileStorage.BYTE_RANGE);
+        part.setSourceFilePath(inputPath.toString());
+        part.setByteOffset(1000);
+        part.setFileSize(2000);
+        part.setStartTime(600);
+        part.setDuration(600);
+        return part;
+    }
+
+    private interface JournalOpener {
+        TranscriptionJournal open() throws IOException;
+    }
+}
@@ -0,0 +1,138 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptcache;
+
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFile;
+import eu.nevian.speech_to_text_simple_java_client.audiofile.AudioFileStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keeps transcripts between runs under a size cap, evicting the least recently used ones, and keys them on the audio
+ * content and the request parameters.
+ */
+public class ReuseCachedTranscriptsTest {
+    private static final String TRANSCRIPT = "Hello and welcome to the show.";
+    private static final long UNLIMITED_SIZE = Long.MAX_VALUE;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenAStoredTranscriptWhenTheCacheIsOpenedAgainThenItIsReturned() throws IOException {
+        Path cacheDirectoryPath = tempDir.resolve("cache");
+        TranscriptCache.open(cacheDirectoryPath, UNLIMITED_SIZE).put("key-first", TRANSCRIPT);
+
+        TranscriptCache reopenedCache = TranscriptCache.open(cacheDirectoryPath, UNLIMITED_SIZE);
+
+        assertEquals(TRANSCRIPT, reopenedCache.get("key-first"));
+        assertNull(reopenedCache.get("key-unknown"));
+        assertEquals(1, reopenedCache.getHits());
+        assertEquals(1, reopenedCache.getMisses());
+    }
+
+    @Test
+    public void givenACacheAtItsCapWhenAnotherTranscriptIsStoredThenTheLeastRecentlyUsedIsEvicted()
+            throws IOException {
+        Path cacheDirectoryPath = tempDir.resolve("cache");
+        TranscriptCache transcriptCache = TranscriptCache.open(cacheDirectoryPath, 2 * entrySize());
+        transcriptCache.put("key-first", TRANSCRIPT);
+        transcriptCache.put("key-second", TRANSCRIPT);
+
+        // Reading the first entry makes the second one the least recently used
+        assertEquals(TRANSCRIPT, transcriptCache.get("key-first"));
+        transcriptCache.put("key-third", TRANSCRIPT);
+
+        assertEquals(TRANSCRIPT, transcriptCache.get("key-first"));
+        assertNull(transcriptCache.get("key-second"));
+        assertEquals(TRANSCRIPT, transcriptCache.get("key-third"));
+        assertFalse(Files.exists(entryPath(cacheDirectoryPath, "key-second")));
+    }
+
+    @Test
+    public void givenACacheOverItsCapWhenItIsOpenedThenTheOldestEntriesAreEvicted() throws IOException {
+        Path cacheDirectoryPath = tempDir.resolve("cache");
+        TranscriptCache transcriptCache = TranscriptCache.open(cacheDirectoryPath, UNLIMITED_SIZE);
+        transcriptCache.put("key-first", TRANSCRIPT);
+        transcriptCache.put("key-second", TRANSCRIPT);
+        transcriptCache.put("key-third", TRANSCRIPT);
+        // Recency is read back from the modification times
+        setLastModified(cacheDirectoryPath, "key-second", 1_000);
+        setLastModified(cacheDirectoryPath, "key-first", 2_000);
+        setLastModified(cacheDirectoryPath, "key-third", 3_000);
+
+        TranscriptCache reopenedCache = TranscriptCache.open(cacheDirectoryPath, 2 * entrySize());
+
+        assertFalse(Files.exists(entryPath(cacheDirectoryPath, "key-second")));
+        assertEquals(TRANSCRIPT, reopenedCache.get("key-first"));
+        assertEquals(TRANSCRIPT, reopenedCache.get("key-third"));
+    }
+
+    @Test
+    public void givenADamagedEntryWhenItIsReadThenItIsAMissAndItIsRemoved() throws IOException {
+        Path cacheDirectoryPath = tempDir.resolve("cache");
+        TranscriptCache.open(cacheDirectoryPath, UNLIMITED_SIZE).put("key-first", TRANSCRIPT);
+        Files.writeString(entryPath(cacheDirectoryPath, "key-first"), "not gzip");
+
+        TranscriptCache reopenedCache = TranscriptCache.open(cacheDirectoryPath, UNLIMITED_SIZE);
+
+        assertNull(reopenedCache.get("key-first"));
+        assertEquals(1, reopenedCache.getMisses());
+        assertFalse(Files.exists(entryPath(cacheDirectoryPath, "key-first")));
+
+        reopenedCache.put("key-first", TRANSCRIPT);
+        assertEquals(TRANSCRIPT, reopenedCache.get("key-first"));
+    }
+
+    @Test
+    public void givenTheSameAudioWhenItIsKeyedThenOnlyTheContentAndRequestParametersMatter() throws IOException {
+        Path audioFilePath = Files.write(tempDir.resolve("talk.mp3"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Path copiedAudioFilePath = Files.copy(audioFilePath, tempDir.resolve("copy of talk.mp3"));
+        Path otherAudioFilePath = Files.write(tempDir.resolve("other.mp3"), new byte[]{8, 7, 6, 5, 4, 3, 2, 1});
+
+        String key = TranscriptCacheKey.of(filePart(audioFilePath), "whisper-1", "en");
+
+        assertEquals(key, TranscriptCacheKey.of(filePart(copiedAudioFilePath), "whisper-1", "en"));
+        assertNotEquals(key, TranscriptCacheKey.of(filePart(otherAudioFilePath), "whisper-1", "en"));
+        assertNotEquals(key, TranscriptCacheKey.of(filePart(audioFilePath), "whisper-1", "fr"));
+        assertNotEquals(key, TranscriptCacheKey.of(filePart(audioFilePath), "other-model", "en"));
+        assertNotEquals(TranscriptCacheKey.of(byteRangePart(audioFilePath, 0), "whisper-1", "en"),
+                TranscriptCacheKey.of(byteRangePart(audioFilePath, 4), "whisper-1", "en"));
+    }
+
+    /** Size on disk of an entry holding {@link #TRANSCRIPT}, the same for every key. */
+    private long entrySize() throws IOException {
+        Path measureDirectoryPath = tempDir.resolve("measure");
+        TranscriptCache.open(measureDirectoryPath, UNLIMITED_SIZE).put("key-measure", TRANSCRIPT);
+        return Files.size(entryPath(measureDirectoryPath, "key-measure"));
+    }
+
+    private static Path entryPath(Path cacheDirectoryPath, String key) {
+        return cacheDirectoryPath.resolve(key + ".txt.gz");
+    }
+
+    private static void setLastModified(Path cacheDirectoryPath, String key, long millis) throws IOException {
+        Files.setLastModifiedTime(entryPath(cacheDirectoryPath, key), FileTime.fromMillis(millis));
+    }
+
+    private static AudioFile filePart(Path audioFilePath) {
+        AudioFile part = new AudioFile();
+        part.setFilePath(audioFilePath.toString());
+        return part;
+    }
+
+    private static AudioFile byteRangePart(Path sourceFilePath, long byteOffset) {
+        AudioFile part = new AudioFile();
+        part.setFilePath("talk_part1.mp3");
+        part.setStorage(AudioFileStorage.BYTE_RANGE);
+        part.setSourceFilePath(sourceFilePath.toString());
+        part.setByteOffset(byteOffset);
+        part.setFileSize(4);
+        return part;
+    }
+}
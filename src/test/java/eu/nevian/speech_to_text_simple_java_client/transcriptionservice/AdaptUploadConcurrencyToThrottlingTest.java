@@ -0,0 +1,104 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Adapts the number of uploads in flight to the throttling of the API: halved on a 429, grown back by successes.
+ */
+public class AdaptUploadConcurrencyToThrottlingTest {
+    private static final RateLimitInfo NO_HEADERS = new RateLimitInfo(RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN,
+            RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN);
+
+    @Test
+    public void givenANewLimiterWhenNothingWasThrottledThenTheLimitIsTheMaximum() {
+        assertEquals(8, new AdaptiveConcurrencyLimiter(8).getLimit());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0));
+    }
+
+    @Test
+    public void givenThrottledResponsesWhenTheyAreRecordedThenTheLimitIsHalvedDownToOne() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8);
+
+        assertEquals(1000, limiter.onThrottled(NO_HEADERS));
+        assertEquals(4, limiter.getLimit());
+        assertEquals(50, limiter.onThrottled(new RateLimitInfo(50, 0, RateLimitInfo.UNKNOWN, 50)));
+        assertEquals(2, limiter.getLimit());
+        limiter.onThrottled(retryAfter(0));
+        limiter.onThrottled(retryAfter(0));
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void givenSuccessesAfterAThrottleWhenTheyAreRecordedThenTheLimitGrowsBackToTheMaximum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8);
+        limiter.onThrottled(retryAfter(0));
+
+        // About one more request per window of successes
+        for (int i = 0; i < 4; i++) {
+            limiter.onSuccess(NO_HEADERS);
+        }
+        assertEquals(4, limiter.getLimit());
+        limiter.onSuccess(NO_HEADERS);
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(NO_HEADERS);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void givenAnAlmostExhaustedWindowWhenASuccessIsRecordedThenTheLimitHolds() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8);
+        limiter.onThrottled(retryAfter(0));
+        limiter.acquire();
+        limiter.acquire();
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(new RateLimitInfo(50, 2, RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN));
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void givenEverySlotTakenWhenAnotherRequestIsAcquiredThenItWaitsForARelease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1);
+        limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waitingThread = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        limiter.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waitingThread.join();
+    }
+
+    @Test
+    public void givenAThrottledResponseWhenARequestIsAcquiredThenItWaitsForTheRetryDelay() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+        limiter.onThrottled(retryAfter(300));
+
+        long startNanos = System.nanoTime();
+        limiter.acquire();
+
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    private static RateLimitInfo retryAfter(long millis) {
+        return new RateLimitInfo(RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN, millis);
+    }
+}
@@ -0,0 +1,94 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts asynchronous calls once the rate limit of their API key allows it, and fails their future when they cannot be
+ * started.
+ */
+public class RateLimitAsyncApiCallsTest {
+    private static final RateLimitSettings RATE_LIMIT_SETTINGS = new RateLimitSettings(100, 36_000);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenAnAsyncServiceWhenAModelCheckIsSentThenItsResponseIsReturned() throws Exception {
+        RateLimitedApiService apiService = new RateLimitedApiService(
+                new StubApiService(() -> CompletableFuture.completedFuture("{\"id\": \"whisper-1\"}")), tempDir,
+                RATE_LIMIT_SETTINGS);
+
+        assertEquals("{\"id\": \"whisper-1\"}",
+                apiService.checkAiModelIsAvailableAsync("sk-async-ok").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void givenACallThatThrowsWhenItIsStartedThenTheFutureFailsInsteadOfHanging() {
+        // OkHttp rejects header values with non-ASCII characters when the request is built
+        RateLimitedApiService apiService = new RateLimitedApiService(new StubApiService(() -> {
+            throw new IllegalArgumentException("Unexpected char 0xe9 in Authorization value");
+        }), tempDir, RATE_LIMIT_SETTINGS);
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> apiService.checkAiModelIsAvailableAsync("sk-café").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    public void givenAServiceWithoutAsyncCallsWhenItIsWrappedThenItIsRejected() {
+        ApiService syncOnlyApiService = new ApiService() {
+            @Override
+            public String checkAiModelIsAvailable(String apiKey) {
+                return "";
+            }
+
+            @Override
+            public String transcribeAudioFile(String apiKey, String language, String audioFilePath) {
+                return "";
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new RateLimitedApiService(syncOnlyApiService, tempDir, RATE_LIMIT_SETTINGS));
+    }
+
+    private interface ModelCheck {
+        CompletableFuture<String> start();
+    }
+
+    private static final class StubApiService implements ApiService, AsyncApiService {
+        private final ModelCheck modelCheck;
+
+        private StubApiService(ModelCheck modelCheck) {
+            this.modelCheck = modelCheck;
+        }
+
+        @Override
+        public String checkAiModelIsAvailable(String apiKey) {
+            return modelCheck.start().join();
+        }
+
+        @Override
+        public String transcribeAudioFile(String apiKey, String language, String audioFilePath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> checkAiModelIsAvailableAsync(String apiKey) {
+            return modelCheck.start();
+        }
+
+        @Override
+        public CompletableFuture<String> transcribeAudioFileAsync(String apiKey, String language, String audioFilePath) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the rate limit state the API reports in its response headers.
+ */
+public class ReadApiRateLimitHeadersTest {
+
+    @Test
+    public void givenTheRateLimitHeadersWhenTheResponseIsReadThenEveryValueIsFound() {
+        RateLimitInfo rateLimitInfo = RateLimitInfo.fromResponse(response(200)
+                .header("x-ratelimit-limit-requests", "50")
+                .header("x-ratelimit-remaining-requests", "49")
+                .header("x-ratelimit-remaining-tokens", "149984")
+                .header("x-ratelimit-reset-requests", "1.2s")
+                .build());
+
+        assertEquals(new RateLimitInfo(50, 49, 149984, 1200), rateLimitInfo);
+    }
+
+    @Test
+    public void givenNoRateLimitHeaderWhenTheResponseIsReadThenEveryValueIsUnknown() {
+        RateLimitInfo rateLimitInfo = RateLimitInfo.fromResponse(response(200)
+                .header("x-ratelimit-remaining-requests", "not a number")
+                .build());
+
+        assertEquals(new RateLimitInfo(RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN, RateLimitInfo.UNKNOWN,
+                RateLimitInfo.UNKNOWN), rateLimitInfo);
+    }
+
+    @Test
+    public void givenAThrottledResponseWhenItIsReadThenRetryAfterMsComesFirst() {
+        RateLimitInfo rateLimitInfo = RateLimitInfo.fromResponse(response(429)
+                .header("retry-after-ms", "350")
+                .header("Retry-After", "2")
+                .header("x-ratelimit-reset-requests", "6m0s")
+                .build());
+
+        assertEquals(350, rateLimitInfo.retryAfterMillis());
+    }
+
+    @Test
+    public void givenRetryAfterInSecondsWhenTheResponseIsReadThenItIsUsedBeforeTheWindowReset() {
+        RateLimitInfo rateLimitInfo = RateLimitInfo.fromResponse(response(429)
+                .header("Retry-After", "2")
+                .header("x-ratelimit-reset-requests", "6m0s")
+                .build());
+
+        assertEquals(2000, rateLimitInfo.retryAfterMillis());
+    }
+
+    @Test
+    public void givenRetryAfterAsAnHttpDateWhenTheResponseIsReadThenTheWaitRunsUntilThatDate() {
+        String retryDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+
+        long retryAfterMillis = RateLimitInfo.fromResponse(response(503).header("Retry-After", retryDate).build())
+                .retryAfterMillis();
+
+        // The date has a precision of one second
+        assertTrue(retryAfterMillis > 28_000 && retryAfterMillis <= 30_000, String.valueOf(retryAfterMillis));
+    }
+
+    @Test
+    public void givenGoStyleResetDurationsWhenTheResponseIsReadThenEveryUnitIsAdded() {
+        assertEquals(360_000, resetRequestsMillis("6m0s"));
+        assertEquals(120, resetRequestsMillis("120ms"));
+        assertEquals(3_723_500, resetRequestsMillis("1h2m3.5s"));
+        assertEquals(RateLimitInfo.UNKNOWN, resetRequestsMillis("soon"));
+    }
+
+    private static long resetRequestsMillis(String resetRequests) {
+        return RateLimitInfo.fromResponse(response(200).header("x-ratelimit-reset-requests", resetRequests).build())
+                .retryAfterMillis();
+    }
+
+    private static Response.Builder response(int code) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("https://api.openai.com/v1/audio/transcriptions").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("");
+    }
+}
@@ -0,0 +1,139 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.nevian.speech_to_text_simple_java_client.exceptions.RateLimitExceededException;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends the asynchronous calls of {@link WhisperApiService} inside a slot of the concurrency limiter and retries them
+ * when the API throttles them, as the blocking calls do.
+ */
+public class RetryThrottledAsyncApiCallsTest {
+    private static final String MODEL_JSON = "{\"id\": \"whisper-1\", \"object\": \"model\"}";
+
+    private HttpServer standInServer;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile int throttledRequestCount;
+
+    @BeforeEach
+    public void startStandIn() throws IOException {
+        standInServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        standInServer.createContext("/v1/models/whisper-1", exchange -> {
+            if (requestCount.incrementAndGet() <= throttledRequestCount) {
+                exchange.getResponseHeaders().set("retry-after-ms", "10");
+                respond(exchange, 429, "{\"error\": {\"code\": \"rate_limit_exceeded\"}}");
+            } else {
+                respond(exchange, 200, MODEL_JSON);
+            }
+        });
+        standInServer.start();
+    }
+
+    @AfterEach
+    public void stopStandIn() {
+        standInServer.stop(0);
+    }
+
+    @Test
+    public void givenAThrottledResponseWhenTheCallIsAsynchronousThenItIsRetried() throws Exception {
+        throttledRequestCount = 2;
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+
+        String response = apiService(limiter).checkAiModelIsAvailableAsync("test-api-key").get(10, TimeUnit.SECONDS);
+
+        assertEquals(MODEL_JSON, response);
+        assertEquals(3, requestCount.get());
+        assertTrue(limiter.getLimit() < 4);
+        assertEveryDeclaredSlotIsFree(limiter);
+    }
+
+    @Test
+    public void givenAThrottledResponseEveryTimeWhenTheRetriesRunOutThenTheFutureFails() throws Exception {
+        throttledRequestCount = Integer.MAX_VALUE;
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+
+        CompletableFuture<String> response = apiService(limiter).checkAiModelIsAvailableAsync("test-api-key");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RateLimitExceededException.class, e.getCause());
+        assertEquals(6, requestCount.get());
+        assertEveryDeclaredSlotIsFree(limiter);
+    }
+
+    @Test
+    public void givenEverySlotTakenWhenAnAsynchronousCallIsMadeThenItWaitsForARelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1);
+        limiter.acquire();
+
+        CompletableFuture<String> response = apiService(limiter).checkAiModelIsAvailableAsync("test-api-key");
+
+        Thread.sleep(200);
+        assertFalse(response.isDone());
+        assertEquals(0, requestCount.get());
+        limiter.release();
+        assertEquals(MODEL_JSON, response.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void givenACallWaitingForASlotWhenItIsCancelledThenNoRequestIsSent() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1);
+        limiter.acquire();
+
+        apiService(limiter).checkAiModelIsAvailableAsync("test-api-key").cancel(true);
+        limiter.release();
+
+        assertEveryDeclaredSlotIsFree(limiter);
+        assertEquals(0, requestCount.get());
+    }
+
+    private WhisperApiService apiService(AdaptiveConcurrencyLimiter limiter) {
+        String standInBaseUrl = "http://127.0.0.1:" + standInServer.getAddress().getPort() + "/v1";
+        return new WhisperApiService(new OkHttpClient(), TranscriptionServiceDefinition.openAiWhisper(standInBaseUrl),
+                limiter);
+    }
+
+    /** Every slot the limiter allows can be taken at once, so none was left held by a finished call. */
+    private static void assertEveryDeclaredSlotIsFree(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        int limit = limiter.getLimit();
+        CountDownLatch acquired = new CountDownLatch(limit);
+        Thread acquiringThread = Thread.ofVirtual().start(() -> {
+            try {
+                for (int i = 0; i < limit; i++) {
+                    limiter.acquire();
+                    acquired.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        acquiringThread.join();
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
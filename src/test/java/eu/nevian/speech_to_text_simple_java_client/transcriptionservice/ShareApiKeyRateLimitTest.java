@@ -0,0 +1,126 @@
+package eu.nevian.speech_to_text_simple_java_client.transcriptionservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shares the request and audio budgets of an API key between every caller, through a state file of the state
+ * directory.
+ */
+public class ShareApiKeyRateLimitTest {
+    private static final String API_KEY = "sk-test-0123456789";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void givenFullBucketsWhenRequestsAreAcquiredThenTheyDoNotWait() throws IOException {
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(20, 600));
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(30);
+        }
+
+        assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void givenAnEmptyRequestBucketWhenARequestIsAcquiredThenItWaitsForItToRefill() throws IOException {
+        // A request every 500 ms
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(120, 600));
+        for (int i = 0; i < 120; i++) {
+            limiter.acquire(0);
+        }
+
+        long startNanos = System.nanoTime();
+        limiter.acquire(0);
+
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void givenAnEmptyAudioBucketWhenAnUploadIsAcquiredThenItWaitsForItsDuration() throws IOException {
+        // A second of audio per second
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(1000, 60));
+        limiter.acquire(60);
+
+        long startNanos = System.nanoTime();
+        limiter.acquire(0.3);
+
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void givenAnUploadLongerThanTheAudioBucketWhenItIsAcquiredThenItGoesThroughOnceTheBucketIsFull()
+            throws IOException {
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(1000, 60));
+
+        long startNanos = System.nanoTime();
+        limiter.acquire(3600);
+
+        assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void givenABudgetUsedByAnotherProcessWhenARequestIsAcquiredThenItWaits() throws IOException {
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(600, 600));
+        limiter.acquire(0);
+
+        // Another process left the request bucket empty, the state file is all that is shared
+        Path stateFilePath = listStateFiles().getFirst();
+        Files.write(stateFilePath, ByteBuffer.allocate(Double.BYTES * 2 + Long.BYTES)
+                .putDouble(0).putDouble(600).putLong(System.currentTimeMillis()).array());
+
+        long startNanos = System.nanoTime();
+        limiter.acquire(0);
+
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void givenApiKeysWhenTheirLimitersAreOpenedThenEachHasItsOwnStateFileNamedAfterAHash() throws IOException {
+        RateLimitSettings settings = new RateLimitSettings(50, 7200);
+
+        assertSame(ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, settings),
+                ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, settings));
+        ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, settings).acquire(0);
+        ApiKeyRateLimiter.forApiKey(tempDir, "sk-other-key", settings).acquire(0);
+
+        List<Path> stateFilePaths = listStateFiles();
+        assertEquals(2, stateFilePaths.size());
+        for (Path stateFilePath : stateFilePaths) {
+            assertFalse(stateFilePath.getFileName().toString().contains("sk-"));
+            assertFalse(new String(Files.readAllBytes(stateFilePath)).contains(API_KEY));
+        }
+    }
+
+    @Test
+    public void givenALimiterAlreadyOpenedWhenItIsOpenedWithOtherLimitsThenItIsRefused() {
+        ApiKeyRateLimiter limiter = ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(50, 7200));
+
+        assertThrows(IllegalStateException.class,
+                () -> ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(100, 7200)));
+        assertThrows(IllegalStateException.class,
+                () -> ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(50, 3600)));
+        assertSame(limiter, ApiKeyRateLimiter.forApiKey(tempDir, API_KEY, new RateLimitSettings(50, 7200)));
+        assertNotSame(limiter, ApiKeyRateLimiter.forApiKey(tempDir.resolve("other"), API_KEY,
+                new RateLimitSettings(100, 7200)));
+    }
+
+    private List<Path> listStateFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(tempDir)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".ratelimit")).toList();
+        }
+    }
+}